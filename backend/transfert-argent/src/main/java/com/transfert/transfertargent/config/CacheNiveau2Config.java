@@ -0,0 +1,75 @@
+package com.transfert.transfertargent.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Cache de second niveau Hibernate (JCache, implémentation Caffeine).
+ * Les régions sont créées ici, bornées, et chacune est exposée dans Micrometer
+ * (cache.gets hit / miss, cache.puts, cache.evictions avec le tag cache=<région>).
+ */
+@Configuration
+public class CacheNiveau2Config {
+
+    public static final String REGION_USERS = "users";
+    public static final String REGION_USERS_TELEPHONE = "users-telephone";
+    public static final String REGION_COMPTES = "comptes";
+    public static final String REGION_COMPTES_NUMERO = "comptes-numero";
+    // Noms par défaut des régions du cache de requêtes
+    private static final String REGION_REQUETES = "default-query-results-region";
+    private static final String REGION_HORODATAGES = "default-update-timestamps-region";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(MeterRegistry registry,
+                                              @Value("${cache.niveau2.taille-max:100000}") long tailleMax,
+                                              @Value("${cache.niveau2.requetes.taille-max:10000}") long requetesTailleMax,
+                                              @Value("${cache.niveau2.ttl-minutes:10}") long ttlMinutes) {
+        // Un gestionnaire par contexte Spring : sa fermeture ne doit pas toucher celui d'un autre contexte
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("hibernate-niveau2-" + UUID.randomUUID()), getClass().getClassLoader());
+        Duration ttl = Duration.ofMinutes(ttlMinutes);
+        for (String region : new String[]{REGION_USERS, REGION_USERS_TELEPHONE, REGION_COMPTES, REGION_COMPTES_NUMERO}) {
+            creer(cacheManager, registry, region, tailleMax, ttl);
+        }
+        creer(cacheManager, registry, REGION_REQUETES, requetesTailleMax, ttl);
+        // Horodatages des tables : jamais évincés, sinon le cache de requêtes servirait des résultats périmés
+        creer(cacheManager, registry, REGION_HORODATAGES, null, null);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer cacheNiveau2HibernateProperties(CacheManager hibernateCacheManager) {
+        return properties -> properties.put("hibernate.javax.cache.cache_manager", hibernateCacheManager);
+    }
+
+    private static void creer(CacheManager cacheManager, MeterRegistry registry, String region,
+                              Long tailleMax, Duration ttl) {
+        Cache<Object, Object> cache = cacheManager.getCache(region);
+        if (cache == null) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            if (tailleMax != null) {
+                configuration.setMaximumSize(OptionalLong.of(tailleMax));
+            }
+            if (ttl != null) {
+                configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+            }
+            configuration.setStatisticsEnabled(true);
+            cache = cacheManager.createCache(region, configuration);
+        }
+        JCacheMetrics.monitor(registry, cache);
+    }
+}
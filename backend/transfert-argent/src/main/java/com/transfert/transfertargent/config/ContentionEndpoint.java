@@ -0,0 +1,24 @@
+package com.transfert.transfertargent.config;
+
+import com.transfert.transfertargent.services.TransfertContentionMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+// Exposé sur /actuator/contention : comptes les plus disputés par les transferts
+@Component
+@Endpoint(id = "contention")
+@RequiredArgsConstructor
+public class ContentionEndpoint {
+
+    private final TransfertContentionMetrics contentionMetrics;
+
+    @ReadOperation
+    public List<Map<String, Object>> comptesLesPlusDisputes() {
+        return contentionMetrics.comptesLesPlusDisputes(20);
+    }
+}
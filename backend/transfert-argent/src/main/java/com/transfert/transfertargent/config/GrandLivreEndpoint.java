@@ -0,0 +1,21 @@
+package com.transfert.transfertargent.config;
+
+import com.transfert.transfertargent.services.ReconciliationGrandLivre;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+// Exposé sur /actuator/grandlivre : rapprochement des soldes des comptes avec le grand livre
+@Component
+@Endpoint(id = "grandlivre")
+@RequiredArgsConstructor
+public class GrandLivreEndpoint {
+
+    private final ReconciliationGrandLivre reconciliation;
+
+    @ReadOperation
+    public ReconciliationGrandLivre.Resultat reconcilier() {
+        return reconciliation.reconcilier();
+    }
+}
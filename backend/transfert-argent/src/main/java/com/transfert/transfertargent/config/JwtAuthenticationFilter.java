@@ -1,6 +1,6 @@
 package com.transfert.transfertargent.config;
 
-import com.transfert.transfertargent.models.User;
+import com.transfert.transfertargent.models.PrincipalUtilisateur;
 import com.transfert.transfertargent.services.JwtService;
 import com.transfert.transfertargent.services.UserDetailsServiceImpl;
 import jakarta.servlet.FilterChain;
@@ -46,11 +46,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         // Vérifier que l'utilisateur n'est pas encore authentifié
         if (telephone != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            // Charger l'utilisateur réel depuis la base
-            User user = userDetailsService.loadUserByUsername(telephone);
+            // Instantané de l'utilisateur (cache, sinon base)
+            PrincipalUtilisateur user = userDetailsService.chargerPrincipal(telephone);
 
-            // Vérifier la validité du token
-            if (jwtService.isTokenValid(jwt, user)) {
+            // Vérifier la validité du token et que le compte utilisateur est toujours actif
+            if (user.isEnabled() && jwtService.isTokenValid(jwt, user)) {
                 UsernamePasswordAuthenticationToken authToken =
                         new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
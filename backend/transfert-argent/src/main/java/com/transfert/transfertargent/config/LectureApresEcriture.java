@@ -0,0 +1,66 @@
+package com.transfert.transfertargent.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Lecture de ses propres écritures malgré le retard de la réplique : après une écriture
+ * sur ses comptes, un utilisateur lit sur la base principale pendant une courte fenêtre.
+ */
+@Component
+public class LectureApresEcriture {
+
+    private final Cache<String, Boolean> collants;
+
+    public LectureApresEcriture(@Value("${datasource.replica.collant-secondes:5}") long collantSecondes,
+                                @Value("${datasource.replica.utilisateurs-max:100000}") long utilisateursMax) {
+        this.collants = Caffeine.newBuilder()
+                .maximumSize(utilisateursMax)
+                .expireAfterWrite(Duration.ofSeconds(collantSecondes))
+                .build();
+    }
+
+    /**
+     * Ouvre la fenêtre pour ces téléphones, maintenant puis à nouveau après le commit
+     * (la réplique ne peut recevoir l'écriture qu'à partir du commit)
+     */
+    public void marquer(Collection<String> telephones) {
+        marquerMaintenant(telephones);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<String> copie = new ArrayList<>(telephones);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    marquerMaintenant(copie);
+                }
+            });
+        }
+    }
+
+    /**
+     * Vrai si l'utilisateur de la requête en cours a écrit récemment
+     */
+    public boolean estCollant() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && collants.getIfPresent(authentication.getName()) != null;
+    }
+
+    private void marquerMaintenant(Collection<String> telephones) {
+        for (String telephone : telephones) {
+            if (telephone != null) {
+                collants.put(telephone, Boolean.TRUE);
+            }
+        }
+    }
+}
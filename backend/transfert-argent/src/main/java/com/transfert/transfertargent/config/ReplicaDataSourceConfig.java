@@ -0,0 +1,127 @@
+package com.transfert.transfertargent.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Lectures sur une réplique, écritures sur la base principale. Actif seulement si
+ * datasource.replica.url est renseignée ; sinon la datasource unique de Spring Boot est gardée.
+ *
+ * Les transactions @Transactional(readOnly = true) passent la connexion en lecture seule :
+ * le proxy paresseux n'ouvre la vraie connexion qu'à la première requête SQL et la prend
+ * alors dans le pool de la réplique, sauf pendant la fenêtre de LectureApresEcriture.
+ * Chaque transaction choisit ainsi sa base, y compris quand le contexte de persistance
+ * survit à la transaction : sa connexion est rendue à la fin de chacune.
+ */
+@Configuration
+@ConditionalOnProperty("datasource.replica.url")
+public class ReplicaDataSourceConfig {
+
+    @Bean(destroyMethod = "close")
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource principaleDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("principale");
+        return dataSource;
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConfigurationProperties("datasource.replica.hikari")
+    public HikariDataSource repliqueDataSource(Environment environment) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(environment.getRequiredProperty("datasource.replica.url"))
+                .username(environment.getProperty("datasource.replica.username"))
+                .password(environment.getProperty("datasource.replica.password"))
+                .build();
+        dataSource.setPoolName("replique");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource principaleDataSource,
+                                 HikariDataSource repliqueDataSource,
+                                 LectureApresEcriture lectureApresEcriture) {
+        AbstractRoutingDataSource lecture = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return lectureApresEcriture.estCollant() ? Cible.PRINCIPALE : Cible.REPLIQUE;
+            }
+        };
+        lecture.setTargetDataSources(Map.of(Cible.PRINCIPALE, principaleDataSource, Cible.REPLIQUE, repliqueDataSource));
+        lecture.afterPropertiesSet();
+
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(principaleDataSource);
+        proxy.setReadOnlyDataSource(lecture);
+        return proxy;
+    }
+
+    /**
+     * Une transaction readOnly peut lire une réplique en retard : elle lit le cache de second
+     * niveau mais ne l'alimente pas (CacheMode.GET), sinon un solde périmé y resterait jusqu'à expiration.
+     */
+    @Bean
+    public JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory,
+                                                    ObjectProvider<TransactionManagerCustomizers> customizers) {
+        JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory) {
+            @Override
+            protected void doBegin(Object transaction, TransactionDefinition definition) {
+                super.doBegin(transaction, definition);
+                if (definition.isReadOnly()) {
+                    session().setCacheMode(CacheMode.GET);
+                }
+            }
+
+            @Override
+            protected void doCleanupAfterCompletion(Object transaction) {
+                // Le contexte peut survivre à la transaction (open-in-view) : retour au mode normal
+                Session session = session();
+                if (session != null && session.getCacheMode() == CacheMode.GET) {
+                    session.setCacheMode(CacheMode.NORMAL);
+                }
+                super.doCleanupAfterCompletion(transaction);
+                // ... et connexion rendue : sinon une écriture suivant une lecture dans le même
+                // contexte partirait sur la connexion déjà prise dans le pool de la réplique
+                if (session != null && session.isOpen()) {
+                    session.unwrap(SessionImplementor.class).getJdbcCoordinator().getLogicalConnection().manualDisconnect();
+                }
+            }
+
+            private Session session() {
+                EntityManagerHolder holder = (EntityManagerHolder)
+                        TransactionSynchronizationManager.getResource(obtainEntityManagerFactory());
+                return holder != null ? holder.getEntityManager().unwrap(Session.class) : null;
+            }
+        };
+        customizers.ifAvailable(c -> c.customize(transactionManager));
+        return transactionManager;
+    }
+
+    private enum Cible {
+        PRINCIPALE, REPLIQUE
+    }
+}
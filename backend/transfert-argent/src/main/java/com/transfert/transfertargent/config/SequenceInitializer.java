@@ -0,0 +1,64 @@
+package com.transfert.transfertargent.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.TableStructure;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recale les séquences d'ids au-dessus des ids existants, avant l'ouverture du serveur web.
+ * Nécessaire au passage IDENTITY -> SEQUENCE : les tables déjà remplies par l'auto-incrément
+ * auraient sinon une séquence qui repart de 1.
+ */
+@Component
+@RequiredArgsConstructor
+public class SequenceInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(SequenceInitializer.class);
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    void recalerSequences() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        Dialect dialect = sessionFactory.getJdbcServices().getDialect();
+        sessionFactory.getMappingMetamodel().forEachEntityDescriptor(persister -> {
+            if (persister.getGenerator() instanceof SequenceStyleGenerator generator
+                    && persister instanceof AbstractEntityPersister entite) {
+                recaler(dialect, generator.getDatabaseStructure(),
+                        entite.getTableName(), entite.getIdentifierColumnNames()[0]);
+            }
+        });
+    }
+
+    private void recaler(Dialect dialect, DatabaseStructure sequence, String table, String colonneId) {
+        String nom = sequence.getPhysicalName().render();
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(" + colonneId + "), 0) FROM " + table, Long.class);
+        // Marge d'un bloc : quelle que soit la lecture faite par l'optimiseur pooled
+        long minimum = (maxId == null ? 0 : maxId) + sequence.getIncrementSize() + 1;
+
+        if (sequence instanceof TableStructure) {
+            int lignes = jdbcTemplate.update("UPDATE " + nom + " SET next_val = ? WHERE next_val < ?", minimum, minimum);
+            if (lignes > 0) {
+                log.info("Séquence {} recalée à {} (max id de {} : {})", nom, minimum, table, maxId);
+            }
+        } else {
+            Long suivante = jdbcTemplate.queryForObject(
+                    dialect.getSequenceSupport().getSequenceNextValString(nom), Long.class);
+            if (suivante != null && suivante < minimum) {
+                jdbcTemplate.execute("ALTER SEQUENCE " + nom + " RESTART WITH " + minimum);
+                log.info("Séquence {} recalée à {} (max id de {} : {})", nom, minimum, table, maxId);
+            }
+        }
+    }
+}
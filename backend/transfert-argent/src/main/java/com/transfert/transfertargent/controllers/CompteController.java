@@ -2,6 +2,7 @@ package com.transfert.transfertargent.controllers;
 
 import com.transfert.transfertargent.dto.CompteRequest;
 import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.Montant;
 import com.transfert.transfertargent.models.User;
 import com.transfert.transfertargent.services.CompteService;
 import com.transfert.transfertargent.services.UserService;
@@ -38,7 +39,7 @@ public class CompteController {
     @GetMapping("/solde")
     public Double consulterSolde() {
         Compte compte = compteService.getCompteConnecte();
-        return compte.getSolde();
+        return Montant.versDecimal(compte.getSolde());
     }
 
     /**
@@ -47,8 +48,7 @@ public class CompteController {
     @PostMapping("/depot")
     public Compte depot(@RequestParam Double montant) {
         Compte compte = compteService.getCompteConnecte();
-        compte.setSolde(compte.getSolde() + montant);
-        return compteService.mettreAJourSolde(compte.getId(), compte.getSolde());
+        return compteService.deposer(compte.getId(), montant).getCompteDestination();
     }
 
     /**
@@ -57,11 +57,7 @@ public class CompteController {
     @PostMapping("/retrait")
     public Compte retrait(@RequestParam Double montant) {
         Compte compte = compteService.getCompteConnecte();
-        if (compte.getSolde() < montant) {
-            throw new RuntimeException("Solde insuffisant pour le retrait");
-        }
-        compte.setSolde(compte.getSolde() - montant);
-        return compteService.mettreAJourSolde(compte.getId(), compte.getSolde());
+        return compteService.retirer(compte.getId(), montant).getCompteSource();
     }
 
     /**
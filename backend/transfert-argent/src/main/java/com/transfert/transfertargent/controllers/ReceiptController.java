@@ -1,16 +1,15 @@
 package com.transfert.transfertargent.controllers;
 
+import com.transfert.transfertargent.models.Receipt;
+import com.transfert.transfertargent.services.ReceiptDownloadService;
 import com.transfert.transfertargent.services.ReceiptService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/api/receipts")
@@ -19,42 +18,37 @@ import java.nio.file.Paths;
 public class ReceiptController {
 
     private final ReceiptService receiptService;
+    private final ReceiptDownloadService receiptDownloadService;
 
-    // ✅ TÉLÉCHARGEMENT PAR NUMÉRO DE REÇU
+    // ✅ TÉLÉCHARGEMENT PAR NUMÉRO DE REÇU (ETag / 304 / Range, sans copie en mémoire), émetteur ou destinataire
     @GetMapping("/{numero}/download")
-    public ResponseEntity<Resource> downloadReceipt(@PathVariable String numero) {
+    public void downloadReceipt(@PathVariable String numero, HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
+        Receipt receipt;
         try {
-            // Récupère le reçu
-            var receipt = receiptService.getReceiptByNumero(numero);
-
-            // Charge le fichier PDF
-            Path filePath = Paths.get(receipt.getUrlFichier());
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                return ResponseEntity.ok()
-                        .contentType(MediaType.APPLICATION_PDF)
-                        .header(HttpHeaders.CONTENT_DISPOSITION,
-                                "attachment; filename=\"" + receipt.getNumero() + ".pdf\"")
-                        .body(resource);
-            } else {
-                return ResponseEntity.notFound().build();
-            }
-
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
+            receipt = receiptService.getReceiptByNumero(numero, telephoneConnecte());
+        } catch (RuntimeException e) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+        receiptDownloadService.envoyer(receipt, request, response);
     }
 
-    // ✅ TÉLÉCHARGEMENT PAR ID DE TRANSACTION
+    // ✅ TÉLÉCHARGEMENT PAR ID DE TRANSACTION, mêmes droits
     @GetMapping("/transaction/{transactionId}/download")
-    public ResponseEntity<Resource> downloadReceiptByTransaction(@PathVariable Long transactionId) {
+    public void downloadReceiptByTransaction(@PathVariable Long transactionId, HttpServletRequest request,
+                                             HttpServletResponse response) throws IOException {
+        Receipt receipt;
         try {
-            var receipt = receiptService.getReceiptByTransactionId(transactionId);
-            return downloadReceipt(receipt.getNumero());
-
-        } catch (Exception e) {
-            return ResponseEntity.notFound().build();
+            receipt = receiptService.getReceiptByTransactionId(transactionId, telephoneConnecte());
+        } catch (RuntimeException e) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+        receiptDownloadService.envoyer(receipt, request, response);
+    }
+
+    private static String telephoneConnecte() {
+        return SecurityContextHolder.getContext().getAuthentication().getName();
     }
 }
\ No newline at end of file
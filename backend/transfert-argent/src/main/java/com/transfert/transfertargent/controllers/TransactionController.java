@@ -1,16 +1,29 @@
 package com.transfert.transfertargent.controllers;
 
+import com.transfert.transfertargent.dto.PageTransactionsDTO;
 import com.transfert.transfertargent.dto.TransactionDTO;
+import com.transfert.transfertargent.models.Receipt;
 import com.transfert.transfertargent.services.JwtService;
+import com.transfert.transfertargent.services.ReceiptDownloadService;
+import com.transfert.transfertargent.services.ReleveService;
 import com.transfert.transfertargent.services.TransactionService;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.*;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/transactions")
@@ -20,13 +33,20 @@ public class TransactionController {
 
     private final TransactionService transactionService;
     private final JwtService jwtService;
+    private final ReleveService releveService;
+    private final ReceiptDownloadService receiptDownloadService;
 
     @GetMapping("/historique")
-    public ResponseEntity<List<TransactionDTO>> getHistoriqueComplet(HttpServletRequest request) {
+    public ResponseEntity<PageTransactionsDTO> getHistoriqueComplet(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            HttpServletRequest request) {
         try {
             String telephone = extractTelephoneFromRequest(request);
-            List<TransactionDTO> dtos = transactionService.getHistoriqueComplet(telephone);
-            return ResponseEntity.ok(dtos);
+            PageTransactionsDTO page = transactionService.getHistoriqueComplet(telephone, cursor, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         } catch (Exception e) {
@@ -35,11 +55,16 @@ public class TransactionController {
     }
 
     @GetMapping("/envoyees")
-    public ResponseEntity<List<TransactionDTO>> getTransactionsEnvoyees(HttpServletRequest request) {
+    public ResponseEntity<PageTransactionsDTO> getTransactionsEnvoyees(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            HttpServletRequest request) {
         try {
             String telephone = extractTelephoneFromRequest(request);
-            List<TransactionDTO> dtos = transactionService.getTransactionsEnvoyees(telephone);
-            return ResponseEntity.ok(dtos);
+            PageTransactionsDTO page = transactionService.getTransactionsEnvoyees(telephone, cursor, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         } catch (Exception e) {
@@ -48,11 +73,16 @@ public class TransactionController {
     }
 
     @GetMapping("/recues")
-    public ResponseEntity<List<TransactionDTO>> getTransactionsRecues(HttpServletRequest request) {
+    public ResponseEntity<PageTransactionsDTO> getTransactionsRecues(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            HttpServletRequest request) {
         try {
             String telephone = extractTelephoneFromRequest(request);
-            List<TransactionDTO> dtos = transactionService.getTransactionsRecues(telephone);
-            return ResponseEntity.ok(dtos);
+            PageTransactionsDTO page = transactionService.getTransactionsRecues(telephone, cursor, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         } catch (Exception e) {
@@ -60,25 +90,97 @@ public class TransactionController {
         }
     }
 
-    @GetMapping("/{id}/receipt")
-    public ResponseEntity<byte[]> downloadReceipt(@PathVariable Long id, HttpServletRequest request) {
+    // ✅ TRANSACTIONS D'UNE PÉRIODE (dates incluses), paginées par curseur
+    @GetMapping("/periode")
+    public ResponseEntity<PageTransactionsDTO> getTransactionsByDateRange(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            HttpServletRequest request) {
         try {
             String telephone = extractTelephoneFromRequest(request);
-            byte[] pdfBytes = transactionService.generateReceiptPdf(id, telephone);
+            PageTransactionsDTO page = transactionService.getTransactionsByDateRange(telephone,
+                    start != null ? start.atStartOfDay() : null,
+                    end != null ? end.plusDays(1).atStartOfDay() : null,
+                    cursor, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
 
+    // ✅ RELEVÉ COMPLET en flux (csv ou ndjson, gzip optionnel) : écrit au fil de la lecture,
+    // sans jamais charger l'historique en mémoire. Bornes de dates incluses, comme /periode.
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exporterReleve(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletRequest request) {
+        try {
+            String telephone = extractTelephoneFromRequest(request);
+            ReleveService.Format formatReleve = ReleveService.Format.depuis(format);
+            if (from != null && to != null && from.isAfter(to)) {
+                throw new IllegalArgumentException("Période invalide");
+            }
+            LocalDateTime debut = from != null ? from.atStartOfDay() : LocalDateTime.of(2000, 1, 1, 0, 0);
+            LocalDateTime fin = to != null ? to.plusDays(1).atStartOfDay() : LocalDateTime.of(9999, 1, 1, 0, 0);
+
+            // Exécuté après le retour du contrôleur, sur un thread de la file asynchrone de Spring MVC
+            StreamingResponseBody corps = sortie -> {
+                OutputStream flux = gzip ? new GZIPOutputStream(sortie, 64 * 1024) : sortie;
+                releveService.exporter(telephone, formatReleve, debut, fin, flux);
+                if (flux instanceof GZIPOutputStream compresse) {
+                    compresse.finish();
+                }
+            };
+
+            String nomFichier = "releve-" + (from != null ? from : "debut") + "-" + (to != null ? to : "fin")
+                    + "." + formatReleve.getExtension() + (gzip ? ".gz" : "");
             HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_PDF);
-            headers.setContentDisposition(ContentDisposition.builder("attachment")
-                    .filename("receipt-" + id + ".pdf")
-                    .build());
-            headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
+            headers.setContentType(gzip ? MediaType.parseMediaType("application/gzip")
+                    : MediaType.parseMediaType(formatReleve.getTypeContenu() + ";charset=UTF-8"));
+            headers.setContentDisposition(ContentDisposition.builder("attachment").filename(nomFichier).build());
+            headers.setCacheControl(CacheControl.noStore());
+            return new ResponseEntity<>(corps, headers, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+    }
 
-            return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
+    @GetMapping("/statistiques")
+    public ResponseEntity<Map<String, Object>> getStatistiques(HttpServletRequest request) {
+        try {
+            String telephone = extractTelephoneFromRequest(request);
+            return ResponseEntity.ok(transactionService.getStatistiques(telephone));
         } catch (RuntimeException e) {
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(null);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // ✅ Fichier envoyé sans copie en mémoire, avec ETag / 304 / Range (voir ReceiptDownloadService)
+    @GetMapping("/{id}/receipt")
+    public void downloadReceipt(@PathVariable Long id, HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
+        Receipt receipt;
+        try {
+            String telephone = extractTelephoneFromRequest(request);
+            receipt = transactionService.getReceiptForDownload(id, telephone);
+        } catch (RuntimeException e) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return;
         }
+        receiptDownloadService.envoyer(receipt, request, response);
     }
 
     // MODIFICATION ICI POUR RENVOYER UNE RÉPONSE JSON
@@ -117,10 +219,12 @@ public class TransactionController {
             boolean hasReceipt = transactionService.hasReceipt(id, telephone);
             String receiptNumero = transactionService.getReceiptNumero(id, telephone);
 
-            return ResponseEntity.ok(Map.of(
-                    "hasReceipt", hasReceipt,
-                    "receiptNumero", receiptNumero
-            ));
+            // HashMap : receiptNumero est null tant que le reçu n'est pas généré
+            Map<String, Object> info = new HashMap<>();
+            info.put("hasReceipt", hasReceipt);
+            info.put("receiptNumero", receiptNumero);
+            info.put("receiptStatut", transactionService.getReceiptStatut(id, telephone));
+            return ResponseEntity.ok(info);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         } catch (Exception e) {
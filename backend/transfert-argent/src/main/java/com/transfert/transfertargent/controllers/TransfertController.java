@@ -1,12 +1,17 @@
 package com.transfert.transfertargent.controllers;
 
+import com.transfert.transfertargent.dto.BatchTransfertRequest;
+import com.transfert.transfertargent.dto.BatchTransfertResponse;
 import com.transfert.transfertargent.dto.TransfertRequest;
 import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.Montant;
 import com.transfert.transfertargent.models.Transaction;
 import com.transfert.transfertargent.services.CompteService;
+import com.transfert.transfertargent.services.IdempotencyService;
 import com.transfert.transfertargent.services.TransfertService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import org.springframework.web.bind.annotation.*;
@@ -22,26 +27,41 @@ public class TransfertController {
 
     private final TransfertService transfertService;
     private final CompteService compteService;
+    private final IdempotencyService idempotencyService;
 
     @PostMapping
-    public ResponseEntity<?> effectuerTransfert(@RequestBody TransfertRequest request) {
+    public ResponseEntity<?> effectuerTransfert(@RequestBody TransfertRequest request,
+                                                @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
-            Compte compteSource = compteService.getCompteConnecte();
-
-            Transaction transaction = transfertService.effectuerTransfert(
-                    compteSource,
-                    request.getTelephoneDestinataire(),
-                    request.getMontant()
-            );
+            Transaction transaction;
+            if (idempotencyKey == null) {
+                transaction = transfertService.effectuerTransfert(
+                        compteService.getCompteConnecte(),
+                        request.getTelephoneDestinataire(),
+                        request.getMontant()
+                );
+            } else {
+                // ✅ Un rejeu avec la même clé renvoie la transaction d'origine sans nouveau débit
+                String telephone = SecurityContextHolder.getContext().getAuthentication().getName();
+                String empreinte = IdempotencyService.empreinte(request.getTelephoneDestinataire(), request.getMontant());
+                transaction = idempotencyService.executerUneFois(telephone, idempotencyKey, empreinte,
+                        cle -> transfertService.effectuerTransfert(
+                                compteService.getCompteConnecte(),
+                                request.getTelephoneDestinataire(),
+                                request.getMontant(),
+                                cle));
+            }
 
             // ✅ RÉPONSE PROPRE SANS RÉFÉRENCES CIRCULAIRES
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Transfert effectué avec succès");
             response.put("transactionId", transaction.getId());
-            response.put("montant", transaction.getMontant());
-            response.put("frais", transaction.getFrais());
+            response.put("montant", Montant.versDecimal(transaction.getMontant()));
+            response.put("frais", Montant.versDecimal(transaction.getFrais()));
             response.put("statut", transaction.getStatut());
             response.put("dateTransaction", transaction.getDateTransaction());
+            // ✅ Reçu généré en arrière-plan : le client interroge /api/transactions/{id}/receipt-info
+            response.put("statutRecu", transaction.getStatutRecu());
 
             if (transaction.getReceipt() != null) {
                 Map<String, String> receiptInfo = new HashMap<>();
@@ -52,17 +72,36 @@ public class TransfertController {
             }
 
             response.put("details", Map.of(
-                    "montantTransfere", transaction.getMontant(),
-                    "fraisAppliques", transaction.getFrais(),
-                    "totalDebite", transaction.getMontant() + transaction.getFrais()
+                    "montantTransfere", Montant.versDecimal(transaction.getMontant()),
+                    "fraisAppliques", Montant.versDecimal(transaction.getFrais()),
+                    "totalDebite", Montant.versDecimal(transaction.getMontant() + transaction.getFrais())
             ));
 
             return ResponseEntity.ok(response);
 
+        } catch (IdempotencyService.CleReutiliseeException e) {
+            // ✅ Même clé, autre requête : rien n'est exécuté ni renvoyé
+            return ResponseEntity.unprocessableEntity().body(
+                    Map.of("error", "Échec du transfert", "message", e.getMessage())
+            );
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(
                     Map.of("error", "Échec du transfert", "message", e.getMessage())
             );
         }
     }
+
+    // ✅ PAIEMENT EN LOT : un rapport ligne par ligne est renvoyé, même en cas de rejet partiel
+    @PostMapping("/batch")
+    public ResponseEntity<?> effectuerTransfertsEnLot(@RequestBody BatchTransfertRequest request) {
+        try {
+            Compte compteSource = compteService.getCompteConnecte();
+            BatchTransfertResponse rapport = transfertService.effectuerTransfertsEnLot(compteSource, request.getLignes());
+            return ResponseEntity.ok(rapport);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(
+                    Map.of("error", "Échec du paiement en lot", "message", e.getMessage())
+            );
+        }
+    }
 }
\ No newline at end of file
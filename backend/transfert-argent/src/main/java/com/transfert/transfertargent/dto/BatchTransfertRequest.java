@@ -0,0 +1,10 @@
+package com.transfert.transfertargent.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchTransfertRequest {
+    private List<TransfertRequest> lignes; // une ligne = (telephoneDestinataire, montant)
+}
@@ -0,0 +1,31 @@
+package com.transfert.transfertargent.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransfertResponse {
+    private int nombreLignes;
+    private int nombreSucces;
+    private int nombreRejets;
+    private Double montantTotal;
+    private Double fraisTotal;
+    private List<LigneResultat> lignes;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LigneResultat {
+        private int index; // position de la ligne dans le fichier (à partir de 0)
+        private String telephoneDestinataire;
+        private Double montant;
+        private Double frais;
+        private String statut; // "SUCCES" ou "REJETE"
+        private String message;
+    }
+}
@@ -0,0 +1,15 @@
+package com.transfert.transfertargent.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageTransactionsDTO {
+    private List<TransactionDTO> items;
+    private String nextCursor; // null quand il n'y a plus de page suivante
+}
@@ -1,5 +1,6 @@
 package com.transfert.transfertargent.dto;
 
+import com.transfert.transfertargent.models.Montant;
 import com.transfert.transfertargent.models.Transaction;
 import lombok.Data;
 
@@ -19,15 +20,31 @@ public class TransactionDTO {
     // Constructeur depuis l'entité Transaction
     public TransactionDTO(Transaction transaction, String userTelephone) {
         this.id = transaction.getId();
-        this.montant = transaction.getMontant();
-        this.frais = transaction.getFrais();
+        this.montant = Montant.versDecimal(transaction.getMontant());
+        this.frais = Montant.versDecimal(transaction.getFrais());
         this.statut = transaction.getStatut();
         this.dateTransaction = transaction.getDateTransaction();
-        this.compteSourceNumero = transaction.getCompteSource().getNumeroTelephone();
-        this.compteDestinationNumero = transaction.getCompteDestination().getNumeroTelephone();
+        // Source nulle pour un dépôt, destination nulle pour un retrait
+        this.compteSourceNumero = transaction.getCompteSource() != null
+                ? transaction.getCompteSource().getNumeroTelephone() : null;
+        this.compteDestinationNumero = transaction.getCompteDestination() != null
+                ? transaction.getCompteDestination().getNumeroTelephone() : null;
 
         // Déterminer automatiquement le type
-        this.type = transaction.getCompteSource().getNumeroTelephone().equals(userTelephone)
+        this.type = userTelephone.equals(this.compteSourceNumero)
                 ? "ENVOI" : "RECEPTION";
     }
-}
\ No newline at end of file
+
+    // Constructeur depuis la projection d'historique (aucune entité chargée)
+    public TransactionDTO(TransactionLigne ligne, String userTelephone) {
+        this.id = ligne.id();
+        this.montant = Montant.versDecimal(ligne.montant());
+        this.frais = Montant.versDecimal(ligne.frais());
+        this.statut = ligne.statut();
+        this.dateTransaction = ligne.dateTransaction();
+        this.compteSourceNumero = ligne.compteSourceNumero();
+        this.compteDestinationNumero = ligne.compteDestinationNumero();
+        this.type = userTelephone.equals(this.compteSourceNumero)
+                ? "ENVOI" : "RECEPTION";
+    }
+}
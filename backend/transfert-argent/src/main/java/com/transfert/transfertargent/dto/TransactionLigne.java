@@ -0,0 +1,13 @@
+package com.transfert.transfertargent.dto;
+
+import java.time.LocalDateTime;
+
+// ✅ Projection d'historique : seules les colonnes utiles au TransactionDTO, sans entité Compte / User
+public record TransactionLigne(Long id,
+                               long montant,
+                               long frais,
+                               String statut,
+                               LocalDateTime dateTransaction,
+                               String compteSourceNumero,
+                               String compteDestinationNumero) {
+}
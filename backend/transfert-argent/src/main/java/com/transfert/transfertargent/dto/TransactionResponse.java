@@ -1,5 +1,6 @@
 package com.transfert.transfertargent.dto;
 
+import com.transfert.transfertargent.models.Montant;
 import com.transfert.transfertargent.models.Transaction;
 import lombok.Data;
 
@@ -18,8 +19,8 @@ public class TransactionResponse {
 
     public TransactionResponse(Transaction transaction, String numeroTelephoneConnecte) {
         this.id = transaction.getId();
-        this.montant = transaction.getMontant();
-        this.frais = transaction.getFrais();
+        this.montant = Montant.versDecimal(transaction.getMontant());
+        this.frais = Montant.versDecimal(transaction.getFrais());
         this.statut = transaction.getStatut();
         this.dateTransaction = transaction.getDateTransaction();
 
@@ -1,8 +1,14 @@
 package com.transfert.transfertargent.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.transfert.transfertargent.config.CacheNiveau2Config;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -14,19 +20,27 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+// ✅ Cache de second niveau ; les écritures directes du solde verrouillent l'entrée (CompteRepositoryCustomImpl)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheNiveau2Config.REGION_COMPTES)
+@NaturalIdCache(region = CacheNiveau2Config.REGION_COMPTES_NUMERO)
 public class Compte {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "comptes_seq")
+    @SequenceGenerator(name = "comptes_seq", sequenceName = "comptes_seq", allocationSize = 50)
     private Long id;
 
-    private Double solde;
+    // ✅ En centimes (voir Montant)
+    @Column(nullable = false)
+    @JsonSerialize(using = Montant.EnDecimal.class)
+    private long solde;
 
     @Column(name = "date_creation", nullable = false, updatable = false)
     private LocalDateTime dateCreation;
 
     private String typeCompte;
 
+    @NaturalId
     @Column(name = "numero_telephone", nullable = false, unique = true)
     private String numeroTelephone;
 
@@ -48,9 +62,6 @@ public class Compte {
     @PrePersist
     public void prePersist() {
         this.dateCreation = LocalDateTime.now();
-        if (this.solde == null) {
-            this.solde = 0.0;
-        }
     }
 
     public boolean isActive() {
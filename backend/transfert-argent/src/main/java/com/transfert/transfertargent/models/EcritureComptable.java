@@ -0,0 +1,73 @@
+package com.transfert.transfertargent.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+/**
+ * ✅ Ligne du grand livre, en ajout seul : chaque mouvement passe une écriture au débit et une au crédit.
+ * Solde d'un compte client = somme des crédits - somme des débits de ses lignes.
+ * Les contreparties hors comptes clients (argent entrant / sortant, frais) sont des comptes techniques.
+ */
+@Entity
+@Immutable
+@Table(name = "ecritures_comptables")
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EcritureComptable {
+
+    public enum Sens {
+        DEBIT,
+        CREDIT
+    }
+
+    public enum CompteTechnique {
+        CAISSE, // dépôts, retraits et soldes d'ouverture
+        FRAIS   // frais perçus sur les transferts
+    }
+
+    public enum Nature {
+        OUVERTURE,
+        TRANSFERT,
+        FRAIS,
+        DEPOT,
+        RETRAIT,
+        ANNULATION
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ecritures_comptables_seq")
+    @SequenceGenerator(name = "ecritures_comptables_seq", sequenceName = "ecritures_comptables_seq", allocationSize = 50)
+    private Long id;
+
+    // Mouvement d'origine (null pour les soldes d'ouverture)
+    @Column(name = "transaction_id")
+    private Long transactionId;
+
+    // Compte client, ou null si la ligne porte sur un compte technique
+    @Column(name = "compte_id")
+    private Long compteId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "compte_technique", length = 10)
+    private CompteTechnique compteTechnique;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Sens sens;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Nature nature;
+
+    // En centimes (voir Montant)
+    @Column(nullable = false)
+    private long montant;
+
+    @Column(name = "date_ecriture", nullable = false)
+    private LocalDateTime dateEcriture;
+}
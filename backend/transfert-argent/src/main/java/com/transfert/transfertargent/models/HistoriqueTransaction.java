@@ -15,7 +15,8 @@ import java.time.LocalDateTime;
 public class HistoriqueTransaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "historique_transaction_seq")
+    @SequenceGenerator(name = "historique_transaction_seq", sequenceName = "historique_transaction_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -26,8 +27,12 @@ public class HistoriqueTransaction {
     @JoinColumn(name = "compte_destination_id")
     private Compte compteDestination;
 
-    private Double montant;
-    private Double frais;
+    // En centimes (voir Montant)
+    @Column(nullable = false)
+    private long montant;
+
+    @Column(nullable = false)
+    private long frais;
     private String statut;
     private LocalDateTime dateTransaction;
 }
@@ -0,0 +1,41 @@
+package com.transfert.transfertargent.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// ✅ Clé Idempotency-Key déjà traitée -> transaction produite (dédoublonnage des rejeux clients)
+@Entity
+@Table(name = "idempotency_keys")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "idempotency_keys_seq")
+    @SequenceGenerator(name = "idempotency_keys_seq", sequenceName = "idempotency_keys_seq", allocationSize = 50)
+    private Long id;
+
+    // Clé préfixée par le téléphone de l'émetteur : deux clients peuvent réutiliser la même valeur
+    @Column(nullable = false, unique = true, length = 150)
+    private String cle;
+
+    @Column(name = "transaction_id", nullable = false)
+    private Long transactionId;
+
+    // ✅ SHA-256 (hex) de la requête d'origine : un rejeu avec une autre requête est refusé
+    @Column(name = "empreinte_requete", length = 64)
+    private String empreinteRequete;
+
+    @Column(name = "date_creation", nullable = false)
+    private LocalDateTime dateCreation;
+
+    @PrePersist
+    public void prePersist() {
+        this.dateCreation = LocalDateTime.now();
+    }
+}
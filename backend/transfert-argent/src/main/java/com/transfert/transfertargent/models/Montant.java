@@ -0,0 +1,70 @@
+package com.transfert.transfertargent.models;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * ✅ Montants en centimes (long) : soldes, montants et frais sont stockés en BIGINT et calculés
+ * en arithmétique entière, exacte et sans objet intermédiaire. La conversion en décimal n'a lieu
+ * qu'aux frontières (paramètres des requêtes, JSON, reçus PDF).
+ */
+public final class Montant {
+
+    public static final long CENTIMES_PAR_UNITE = 100;
+
+    private Montant() {
+    }
+
+    /**
+     * Montant saisi (au plus deux décimales) vers des centimes
+     *
+     * @throws RuntimeException si le montant est absent ou a plus de deux décimales
+     */
+    public static long versCentimes(Double decimal) {
+        if (decimal == null || decimal.isNaN() || decimal.isInfinite()) {
+            throw new RuntimeException("Montant invalide");
+        }
+        try {
+            return BigDecimal.valueOf(decimal).movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new RuntimeException("Montant invalide (deux décimales au plus): " + decimal);
+        }
+    }
+
+    public static double versDecimal(long centimes) {
+        return centimes / (double) CENTIMES_PAR_UNITE;
+    }
+
+    // Somme en centimes lue par une agrégation SQL (null si aucune ligne)
+    public static double versDecimal(Long centimes) {
+        return centimes == null ? 0.0 : versDecimal(centimes.longValue());
+    }
+
+    /**
+     * Part d'un montant en points de base (100 = 1 %), arrondie au centime le plus proche
+     * (moitié vers le haut)
+     */
+    public static long pourcentage(long centimes, long pointsDeBase) {
+        return Math.floorDiv(Math.multiplyExact(centimes, pointsDeBase) + 5_000, 10_000);
+    }
+
+    // "1 234,50 FCFA" (reçus, affichage)
+    public static String formater(long centimes) {
+        return String.format("%,.2f FCFA", versDecimal(centimes));
+    }
+
+    /**
+     * Sérialise un montant en centimes comme un nombre décimal : le JSON des entités garde
+     * le format attendu par le frontend
+     */
+    public static class EnDecimal extends JsonSerializer<Long> {
+        @Override
+        public void serialize(Long centimes, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeNumber(BigDecimal.valueOf(centimes, 2));
+        }
+    }
+}
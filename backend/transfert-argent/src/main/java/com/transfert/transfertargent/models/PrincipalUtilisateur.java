@@ -0,0 +1,39 @@
+package com.transfert.transfertargent.models;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Instantané immuable de l'utilisateur authentifié par JWT : juste ce qu'il faut
+ * pour les autorisations, sans entité JPA ni mot de passe
+ */
+public record PrincipalUtilisateur(Long id, String telephone, Role role, boolean enabled) implements UserDetails {
+
+    public static PrincipalUtilisateur depuis(User user) {
+        return new PrincipalUtilisateur(user.getId(), user.getTelephone(), user.getRole(), user.isEnabled());
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return telephone;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
@@ -15,13 +15,25 @@ import java.time.LocalDateTime;
 public class Receipt {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "receipts_seq")
+    @SequenceGenerator(name = "receipts_seq", sequenceName = "receipts_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false)
-    private String numero; // Numéro unique du reçu (ex: RC20240115104530)
+    private String numero; // Numéro unique du reçu (ex: RC01HQ3K5ZS0G02, voir ReceiptNumberGenerator)
 
-    private String urlFichier; // Chemin du fichier PDF
+    private String urlFichier; // Chemin du fichier PDF (stockage un fichier par reçu)
+
+    // ✅ Stockage en segments (SegmentReceiptStore) : PDF à positionSegment dans le segment, sur taille octets
+    private Long segment;
+
+    private Long positionSegment;
+
+    // ✅ SHA-256 (hex) du PDF, qui ne change plus une fois écrit : sert d'ETag fort
+    @Column(length = 64)
+    private String empreinte;
+
+    private Long taille; // Taille du PDF en octets
 
     private LocalDateTime dateGeneration;
 
@@ -0,0 +1,37 @@
+package com.transfert.transfertargent.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// ✅ File des reçus en échec définitif (dead-letter), à rejouer ou analyser
+@Entity
+@Table(name = "receipt_dead_letters")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReceiptEchec {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "receipt_dead_letters_seq")
+    @SequenceGenerator(name = "receipt_dead_letters_seq", sequenceName = "receipt_dead_letters_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "transaction_id", nullable = false)
+    private Long transactionId;
+
+    private int tentatives;
+
+    @Column(length = 1000)
+    private String derniereErreur;
+
+    private LocalDateTime dateEchec;
+
+    @PrePersist
+    public void prePersist() {
+        this.dateEchec = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,24 @@
+package com.transfert.transfertargent.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// ✅ Fin (exclue) de la dernière heure agrégée dans transaction_rollups
+@Entity
+@Table(name = "rollup_watermarks")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RollupWatermark {
+
+    @Id
+    @Column(length = 50)
+    private String nom;
+
+    @Column(nullable = false)
+    private LocalDateTime valeur;
+}
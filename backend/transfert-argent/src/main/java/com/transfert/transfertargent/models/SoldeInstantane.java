@@ -0,0 +1,33 @@
+package com.transfert.transfertargent.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// ✅ Solde d'un compte d'après le grand livre : toutes ses écritures antérieures à dateInstantane
+@Entity
+@Table(name = "soldes_instantanes", uniqueConstraints = @UniqueConstraint(
+        name = "uk_solde_instantane", columnNames = {"compte_id", "date_instantane"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SoldeInstantane {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "soldes_instantanes_seq")
+    @SequenceGenerator(name = "soldes_instantanes_seq", sequenceName = "soldes_instantanes_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "compte_id", nullable = false)
+    private Long compteId;
+
+    @Column(name = "date_instantane", nullable = false)
+    private LocalDateTime dateInstantane;
+
+    // En centimes (voir Montant)
+    @Column(nullable = false)
+    private long solde;
+}
@@ -0,0 +1,7 @@
+package com.transfert.transfertargent.models;
+
+public enum StatutRecu {
+    EN_ATTENTE, // transfert validé, reçu en file de génération
+    GENERE,
+    ECHEC       // tentatives épuisées, voir la table receipt_dead_letters
+}
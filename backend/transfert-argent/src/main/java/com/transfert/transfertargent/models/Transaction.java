@@ -1,11 +1,34 @@
 package com.transfert.transfertargent.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.transfert.transfertargent.dto.TransactionLigne;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = {
+        // ✅ Index des parcours par curseur (dateTransaction, id) de l'historique
+        @Index(name = "idx_transaction_source_date", columnList = "compte_source_id, date_transaction, id"),
+        @Index(name = "idx_transaction_destination_date", columnList = "compte_destination_id, date_transaction, id"),
+        // ✅ Parcours par plage de dates (agrégation des rollups, statistiques admin)
+        @Index(name = "idx_transaction_date", columnList = "date_transaction"),
+        // ✅ Reprise des reçus EN_ATTENTE
+        @Index(name = "idx_transaction_statut_recu", columnList = "statut_recu, id")
+})
+// ✅ Projection des requêtes natives d'historique (types explicites, indépendants du driver)
+@SqlResultSetMapping(name = "TransactionLigne", classes = @ConstructorResult(
+        targetClass = TransactionLigne.class,
+        columns = {
+                @ColumnResult(name = "id", type = Long.class),
+                @ColumnResult(name = "montant", type = Long.class),
+                @ColumnResult(name = "frais", type = Long.class),
+                @ColumnResult(name = "statut", type = String.class),
+                @ColumnResult(name = "date_transaction", type = LocalDateTime.class),
+                @ColumnResult(name = "source_numero", type = String.class),
+                @ColumnResult(name = "destination_numero", type = String.class)
+        }))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -14,11 +37,19 @@ import java.time.LocalDateTime;
 public class Transaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // ✅ Ids alloués par blocs de 50 (séquence émulée par une table sur MySQL) : autorise le batching JDBC
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_seq")
+    @SequenceGenerator(name = "transaction_seq", sequenceName = "transaction_seq", allocationSize = 50)
     private Long id;
 
-    private Double montant;
-    private Double frais;
+    // ✅ En centimes (voir Montant)
+    @Column(nullable = false)
+    @JsonSerialize(using = Montant.EnDecimal.class)
+    private long montant;
+
+    @Column(nullable = false)
+    @JsonSerialize(using = Montant.EnDecimal.class)
+    private long frais;
 
     // ✅ On ignore certaines propriétés pour éviter la récursion infinie
     @ManyToOne
@@ -34,6 +65,11 @@ public class Transaction {
     private String statut;
     private LocalDateTime dateTransaction;
 
+    // ✅ Statut de la génération asynchrone du reçu (interrogeable par le client)
+    @Enumerated(EnumType.STRING)
+    @Column(name = "statut_recu")
+    private StatutRecu statutRecu;
+
     // ✅ Évite la boucle Transaction ↔ Receipt
     @OneToOne(mappedBy = "transaction", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonIgnoreProperties("transaction")
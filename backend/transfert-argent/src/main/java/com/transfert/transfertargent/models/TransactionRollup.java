@@ -0,0 +1,47 @@
+package com.transfert.transfertargent.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// ✅ Agrégat des transactions par heure ou par jour, statut et type (TRANSFERT, DEPOT, RETRAIT)
+@Entity
+@Table(name = "transaction_rollups", uniqueConstraints = @UniqueConstraint(
+        name = "uk_rollup_periode", columnNames = {"granularite", "periode", "statut", "type"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionRollup {
+
+    public enum Granularite {
+        HEURE,
+        JOUR
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_rollups_seq")
+    @SequenceGenerator(name = "transaction_rollups_seq", sequenceName = "transaction_rollups_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Granularite granularite;
+
+    // Début de l'heure ou du jour agrégé
+    @Column(nullable = false)
+    private LocalDateTime periode;
+
+    @Column(nullable = false, length = 30)
+    private String statut;
+
+    @Column(nullable = false, length = 20)
+    private String type;
+
+    private long nombre;
+    // Sommes en centimes
+    private long montant;
+    private long frais;
+}
@@ -1,8 +1,13 @@
 package com.transfert.transfertargent.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.transfert.transfertargent.config.CacheNiveau2Config;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
@@ -16,15 +21,21 @@ import java.util.List;
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheNiveau2Config.REGION_USERS)
+@NaturalIdCache(region = CacheNiveau2Config.REGION_USERS_TELEPHONE)
 public class User implements UserDetails {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     private String nom;
     private String prenom;
     private String email;
+    // ✅ Identifiant naturel (modifiable depuis le profil) : findByTelephone passe par le cache
+    @NaturalId(mutable = true)
+    @Column(unique = true)
     private String telephone;
     private String password;
     private String pays;
@@ -1,25 +1,48 @@
 package com.transfert.transfertargent.repositories;
 
 import com.transfert.transfertargent.models.Compte;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CompteRepository extends JpaRepository<Compte, Long> {
+public interface CompteRepository extends JpaRepository<Compte, Long>, CompteRepositoryCustom {
 
-    Optional<Compte> findByNumeroTelephone(String numeroTelephone);
-    List<Compte> findByUser_Id(Long userId);
+    // ✅ Uniquement l'id : évite de charger le Compte et son User pour les lectures d'historique
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT c.id FROM Compte c WHERE c.numeroTelephone = :numeroTelephone")
+    Optional<Long> findIdByNumeroTelephone(@Param("numeroTelephone") String numeroTelephone);
+
+    // Solde tel qu'enregistré en base, indépendamment de l'entité éventuellement modifiée en mémoire
+    @Query("SELECT c.solde FROM Compte c WHERE c.id = :id")
+    Optional<Long> findSoldeById(@Param("id") Long id);
+
+    // ✅ Cache de requêtes : le résultat ne dépend pas du solde (écrit hors Hibernate sans invalider ces requêtes)
+    // Filtre sur la clé étrangère (index user_id) : la requête dérivée joignait users et parcourait comptes
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT c FROM Compte c WHERE c.user.id = :userId")
+    List<Compte> findByUser_Id(@Param("userId") Long userId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Compte> findByUser_Telephone(String telephone);
+
     Boolean existsByNumeroTelephone(String numeroTelephone);
 
+    // ✅ Résolution groupée des destinataires (id, numéro, actif) sans charger les User
+    @Query("SELECT c.id, c.numeroTelephone, c.active FROM Compte c WHERE c.numeroTelephone IN :numeros")
+    List<Object[]> findIdsByNumeroTelephoneIn(@Param("numeros") Collection<String> numeros);
+
     Page<Compte> findAll(Pageable pageable);
 
     List<Compte> findByNumeroTelephoneContainingOrTypeCompteContaining(String numeroTelephone, String typeCompte);
@@ -36,16 +59,17 @@ public interface CompteRepository extends JpaRepository<Compte, Long> {
     List<Compte> searchComptes(@Param("keyword") String keyword);
 
     @Query("SELECT c FROM Compte c WHERE c.solde < :seuil")
-    List<Compte> findBySoldeLessThan(@Param("seuil") Double seuil);
+    List<Compte> findBySoldeLessThan(@Param("seuil") long seuil);
 
+    // Soldes en centimes (moyenne comprise)
     @Query("SELECT SUM(c.solde) FROM Compte c")
-    Double getTotalSolde();
+    Long getTotalSolde();
 
     @Query("SELECT AVG(c.solde) FROM Compte c WHERE c.active = true")
     Double getAverageSolde();
 
     @Query("SELECT MAX(c.solde) FROM Compte c WHERE c.active = true")
-    Double getMaxSolde();
+    Long getMaxSolde();
 
     @Query("SELECT c FROM Compte c WHERE c.active = true ORDER BY c.solde DESC")
     List<Compte> findAllActiveOrderBySoldeDesc();
@@ -0,0 +1,31 @@
+package com.transfert.transfertargent.repositories;
+
+import com.transfert.transfertargent.models.Compte;
+
+import java.util.Optional;
+
+/**
+ * Lectures par numéro via l'identifiant naturel, et écritures directes du solde.
+ * Ces écritures ne passent pas par l'entité : elles verrouillent elles-mêmes l'entrée
+ * du compte dans le cache de second niveau jusqu'à la fin de la transaction.
+ */
+public interface CompteRepositoryCustom {
+
+    Optional<Compte> findByNumeroTelephone(String numeroTelephone);
+
+    /**
+     * ✅ Variation atomique et conditionnelle du solde, calculée par la base (pas de lecture/écriture côté Java) :
+     * aucune ligne modifiée si le compte est inactif ou si le solde deviendrait négatif
+     *
+     * @param variation en centimes
+     * @return nombre de lignes modifiées (0 ou 1)
+     */
+    int ajusterSolde(Long id, long variation);
+
+    /**
+     * ✅ Crédits groupés en batchs JDBC (compteIds[i] crédité de montants[i] centimes), mêmes conditions que ajusterSolde
+     *
+     * @return nombre de lignes modifiées par crédit, dans l'ordre des tableaux
+     */
+    int[] crediterEnLot(long[] compteIds, long[] montants, int tailleBatch);
+}
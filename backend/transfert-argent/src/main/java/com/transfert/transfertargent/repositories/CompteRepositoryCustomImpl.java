@@ -0,0 +1,88 @@
+package com.transfert.transfertargent.repositories;
+
+import com.transfert.transfertargent.models.Compte;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class CompteRepositoryCustomImpl implements CompteRepositoryCustom {
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Optional<Compte> findByNumeroTelephone(String numeroTelephone) {
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(Compte.class).loadOptional(numeroTelephone);
+    }
+
+    private static final String AJUSTER_SOLDE =
+            "UPDATE comptes SET solde = solde + ? WHERE id = ? AND solde + ? >= 0 AND active = true";
+
+    @Override
+    public int ajusterSolde(Long id, long variation) {
+        preparerEcriture(id);
+        return jdbcTemplate.update(AJUSTER_SOLDE, variation, id, variation);
+    }
+
+    @Override
+    public int[] crediterEnLot(long[] compteIds, long[] montants, int tailleBatch) {
+        if (compteIds.length == 0) {
+            return new int[0];
+        }
+        preparerEcriture(Arrays.stream(compteIds).boxed().toArray(Long[]::new));
+        int[] lignesModifiees = new int[compteIds.length];
+        for (int debut = 0; debut < compteIds.length; debut += tailleBatch) {
+            int decalage = debut;
+            int taille = Math.min(tailleBatch, compteIds.length - debut);
+            int[] batch = jdbcTemplate.batchUpdate(AJUSTER_SOLDE, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setLong(1, montants[decalage + i]);
+                    ps.setLong(2, compteIds[decalage + i]);
+                    ps.setLong(3, montants[decalage + i]);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return taille;
+                }
+            });
+            System.arraycopy(batch, 0, lignesModifiees, debut, taille);
+        }
+        return lignesModifiees;
+    }
+
+    /**
+     * Envoie les modifications en attente (comme le ferait un UPDATE JPQL), puis pose un
+     * verrou logiciel sur l'entrée de cache de chaque compte, libéré à la fin de la transaction.
+     * C'est le protocole d'Hibernate pour ses propres mises à jour (READ_WRITE) : aucune
+     * transaction concurrente ne peut remettre en cache l'ancien solde entre-temps.
+     * Contrairement à un UPDATE JPQL, la région n'est pas vidée en entier à chaque transfert.
+     */
+    private void preparerEcriture(Long... ids) {
+        entityManager.flush();
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(Compte.class);
+        if (!persister.canWriteToCache()) {
+            return;
+        }
+        EntityDataAccess acces = persister.getCacheAccessStrategy();
+        for (Long id : ids) {
+            Object cle = acces.generateCacheKey(id, persister, session.getFactory(), session.getTenantIdentifier());
+            SoftLock verrou = acces.lockItem(session, cle, null);
+            session.getActionQueue().registerProcess((succes, s) -> acces.unlockItem(s, cle, verrou));
+        }
+    }
+}
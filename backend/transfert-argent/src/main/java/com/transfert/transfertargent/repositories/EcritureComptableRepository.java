@@ -0,0 +1,28 @@
+package com.transfert.transfertargent.repositories;
+
+import com.transfert.transfertargent.models.EcritureComptable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EcritureComptableRepository extends JpaRepository<EcritureComptable, Long> {
+
+    String VARIATION = "SUM(CASE WHEN e.sens = com.transfert.transfertargent.models.EcritureComptable.Sens.CREDIT " +
+            "THEN e.montant ELSE -e.montant END)";
+
+    // Variation du solde de chaque compte client mouvementé sur [debut, fin) : (compteId, variation)
+    @Query("SELECT e.compteId, " + VARIATION + " FROM EcritureComptable e " +
+            "WHERE e.compteId IS NOT NULL AND e.dateEcriture >= :debut AND e.dateEcriture < :fin " +
+            "GROUP BY e.compteId")
+    List<Object[]> variationsParCompte(@Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin);
+
+    // Variation du solde d'un compte sur [debut, fin), en centimes
+    @Query("SELECT COALESCE(" + VARIATION + ", 0) FROM EcritureComptable e " +
+            "WHERE e.compteId = :compteId AND e.dateEcriture >= :debut AND e.dateEcriture < :fin")
+    long variationEntre(@Param("compteId") Long compteId,
+                          @Param("debut") LocalDateTime debut,
+                          @Param("fin") LocalDateTime fin);
+}
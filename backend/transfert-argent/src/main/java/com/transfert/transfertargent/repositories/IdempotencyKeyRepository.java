@@ -0,0 +1,19 @@
+package com.transfert.transfertargent.repositories;
+
+import com.transfert.transfertargent.models.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, Long> {
+
+    Optional<IdempotencyKey> findByCle(String cle);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.dateCreation < :limite")
+    int deleteByDateCreationBefore(@Param("limite") LocalDateTime limite);
+}
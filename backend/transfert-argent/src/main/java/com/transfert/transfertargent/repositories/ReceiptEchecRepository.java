@@ -0,0 +1,10 @@
+package com.transfert.transfertargent.repositories;
+
+import com.transfert.transfertargent.models.ReceiptEchec;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface ReceiptEchecRepository extends JpaRepository<ReceiptEchec, Long> {
+    List<ReceiptEchec> findByTransactionId(Long transactionId);
+}
@@ -2,10 +2,40 @@ package com.transfert.transfertargent.repositories;
 
 import com.transfert.transfertargent.models.Receipt;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ReceiptRepository extends JpaRepository<Receipt, Long> {
     Optional<Receipt> findByNumero(String numero);
-    Optional<Receipt> findByTransactionId(Long transactionId);
+
+    // Filtre sur la clé étrangère (index unique transaction_id) : la requête dérivée joignait transaction
+    @Query("SELECT r FROM Receipt r WHERE r.transaction.id = :transactionId")
+    Optional<Receipt> findByTransactionId(@Param("transactionId") Long transactionId);
+
     boolean existsByNumero(String numero);
+
+    // Complète empreinte et taille sans réécrire la ligne : l'emplacement a pu changer entre-temps
+    @Modifying
+    @Transactional
+    @Query("UPDATE Receipt r SET r.empreinte = :empreinte, r.taille = :taille WHERE r.id = :id AND r.empreinte IS NULL")
+    int completerEmpreinte(@Param("id") Long id, @Param("empreinte") String empreinte, @Param("taille") Long taille);
+
+    // ✅ Compactage des segments : octets encore référencés par segment [segment, somme des tailles]
+    @Query("SELECT r.segment, SUM(r.taille) FROM Receipt r WHERE r.segment IS NOT NULL GROUP BY r.segment")
+    List<Object[]> octetsVivantsParSegment();
+
+    // Parcours d'un segment par lots, dans l'ordre des positions (index segment, position_segment)
+    List<Receipt> findTop500BySegmentAndPositionSegmentGreaterThanOrderByPositionSegment(Long segment, Long position);
+
+    // Reçus encore en fichiers isolés, à ranger dans les segments
+    List<Receipt> findTop500BySegmentIsNullAndUrlFichierIsNotNullAndIdGreaterThanOrderById(Long id);
+
+    // Balayage des fichiers isolés : [numero, urlFichier] des reçus existants parmi ces numéros
+    @Query("SELECT r.numero, r.urlFichier FROM Receipt r WHERE r.numero IN :numeros")
+    List<Object[]> findUrlFichierByNumeroIn(@Param("numeros") Collection<String> numeros);
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.transfert.transfertargent.repositories;
+
+import com.transfert.transfertargent.models.RollupWatermark;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface RollupWatermarkRepository extends JpaRepository<RollupWatermark, String> {
+
+    // Verrou de ligne : sérialise le job d'agrégation et les corrections (annulations)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM RollupWatermark w WHERE w.nom = :nom")
+    Optional<RollupWatermark> verrouiller(@Param("nom") String nom);
+}
@@ -0,0 +1,22 @@
+package com.transfert.transfertargent.repositories;
+
+import com.transfert.transfertargent.models.SoldeInstantane;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface SoldeInstantaneRepository extends JpaRepository<SoldeInstantane, Long> {
+
+    Optional<SoldeInstantane> findFirstByCompteIdAndDateInstantaneLessThanEqualOrderByDateInstantaneDesc(
+            Long compteId, LocalDateTime date);
+
+    // Dernier instantané de chacun des comptes
+    @Query("SELECT s FROM SoldeInstantane s WHERE s.compteId IN :compteIds AND s.dateInstantane = " +
+            "(SELECT MAX(s2.dateInstantane) FROM SoldeInstantane s2 WHERE s2.compteId = s.compteId)")
+    List<SoldeInstantane> findDerniers(@Param("compteIds") Collection<Long> compteIds);
+}
@@ -1,19 +1,32 @@
 package com.transfert.transfertargent.repositories;
 
+import com.transfert.transfertargent.dto.TransactionLigne;
 import com.transfert.transfertargent.models.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.NativeQuery;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
+    // Lignes lues par aller-retour lors des exports en flux (curseur serveur côté MySQL : useCursorFetch)
+    String TAILLE_FETCH_EXPORT = "500";
+
+    // Type déduit des comptes renseignés : dépôt (pas de source), retrait (pas de destination)
+    String TYPE_TRANSACTION = "CASE WHEN t.compteSource IS NULL THEN 'DEPOT' " +
+            "WHEN t.compteDestination IS NULL THEN 'RETRAIT' ELSE 'TRANSFERT' END";
+
     @Query("SELECT t FROM Transaction t WHERE t.compteSource.numeroTelephone = :telephone OR t.compteDestination.numeroTelephone = :telephone")
     List<Transaction> findByCompteSourceNumeroTelephoneOrCompteDestinationNumeroTelephone(@Param("telephone") String telephone);
 
@@ -48,26 +61,38 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
             nativeQuery = true)
     List<Transaction> findTopNByOrderByDateTransactionDesc(@Param("limit") int limit);
 
-    @Query("SELECT COUNT(t) FROM Transaction t WHERE t.dateTransaction BETWEEN :start AND :end")
-    Long countByDateRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
-
-    @Query("SELECT SUM(t.montant) FROM Transaction t WHERE t.dateTransaction BETWEEN :start AND :end")
-    Double getTotalAmountByDateRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
-
-    @Query("SELECT SUM(t.frais) FROM Transaction t WHERE t.dateTransaction BETWEEN :start AND :end")
-    Double getTotalFeesByDateRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
-
     @Query("SELECT t FROM Transaction t WHERE t.compteSource IS NULL AND t.compteDestination IS NOT NULL")
     List<Transaction> findDepotTransactions();
 
     @Query("SELECT t FROM Transaction t WHERE t.compteSource IS NOT NULL AND t.compteDestination IS NULL")
     List<Transaction> findRetraitTransactions();
 
-    @Query("SELECT FUNCTION('DATE', t.dateTransaction), COUNT(t), SUM(t.montant) " +
-            "FROM Transaction t WHERE t.dateTransaction BETWEEN :start AND :end " +
-            "GROUP BY FUNCTION('DATE', t.dateTransaction) " +
-            "ORDER BY FUNCTION('DATE', t.dateTransaction) DESC")
-    List<Object[]> getDailyStats(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    // ✅ AGRÉGATS POUR LES ROLLUPS : lignes statut, type, nombre, montant, frais
+    @Query("SELECT t.statut, " + TYPE_TRANSACTION + ", COUNT(t), COALESCE(SUM(t.montant), 0), COALESCE(SUM(t.frais), 0) " +
+            "FROM Transaction t WHERE t.dateTransaction >= :debut AND t.dateTransaction < :fin " +
+            "GROUP BY t.statut, " + TYPE_TRANSACTION)
+    List<Object[]> agregerParStatutEtType(@Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin);
+
+    // Même agrégat, borne de fin incluse (sémantique BETWEEN des statistiques admin)
+    @Query("SELECT t.statut, " + TYPE_TRANSACTION + ", COUNT(t), COALESCE(SUM(t.montant), 0), COALESCE(SUM(t.frais), 0) " +
+            "FROM Transaction t WHERE t.dateTransaction >= :debut AND t.dateTransaction <= :fin " +
+            "GROUP BY t.statut, " + TYPE_TRANSACTION)
+    List<Object[]> agregerParStatutEtTypeJusquA(@Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin);
+
+    @Query("SELECT MIN(t.dateTransaction) FROM Transaction t WHERE t.dateTransaction >= :debut")
+    LocalDateTime findPremiereDateDepuis(@Param("debut") LocalDateTime debut);
+
+    // ✅ Statistiques par jour des bords de période non couverts par les rollups : lignes jour, nombre, montant
+    @Query("SELECT CAST(t.dateTransaction AS LocalDate), COUNT(t), COALESCE(SUM(t.montant), 0) " +
+            "FROM Transaction t WHERE t.dateTransaction >= :debut AND t.dateTransaction < :fin " +
+            "GROUP BY CAST(t.dateTransaction AS LocalDate)")
+    List<Object[]> agregerParJour(@Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin);
+
+    // Même agrégat, borne de fin incluse
+    @Query("SELECT CAST(t.dateTransaction AS LocalDate), COUNT(t), COALESCE(SUM(t.montant), 0) " +
+            "FROM Transaction t WHERE t.dateTransaction >= :debut AND t.dateTransaction <= :fin " +
+            "GROUP BY CAST(t.dateTransaction AS LocalDate)")
+    List<Object[]> agregerParJourJusquA(@Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin);
 
     // ✅ NOUVELLES MÉTHODES DE PAGINATION
     Page<Transaction> findAll(Pageable pageable);
@@ -83,4 +108,107 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
 
     @Query("SELECT t FROM Transaction t WHERE t.compteSource.id = :compteId OR t.compteDestination.id = :compteId")
     Page<Transaction> findByCompteIdWithPagination(@Param("compteId") Long compteId, Pageable pageable);
+
+    // ✅ PAGINATION PAR CURSEUR (dateTransaction, id) : coût constant quelle que soit la page.
+    // Première page : curseur = (date très lointaine, 0).
+    // L'historique complet est l'union de deux parcours d'index bornés (source / destination)
+    // plutôt qu'un OR qui obligerait à trier tout l'historique du compte ; les numéros des
+    // deux parties sont joints une seule fois, sur la page retenue.
+    @NativeQuery(value = """
+            SELECT h.id, h.montant, h.frais, h.statut, h.date_transaction,
+                   s.numero_telephone AS source_numero, d.numero_telephone AS destination_numero
+            FROM (
+              (SELECT t.id, t.montant, t.frais, t.statut, t.date_transaction, t.compte_source_id, t.compte_destination_id
+               FROM transaction t WHERE t.compte_source_id = :compteId
+               AND t.date_transaction >= :debut
+               AND (t.date_transaction < :date OR (t.date_transaction = :date AND t.id < :id))
+               ORDER BY t.date_transaction DESC, t.id DESC LIMIT :limite)
+              UNION ALL
+              (SELECT t.id, t.montant, t.frais, t.statut, t.date_transaction, t.compte_source_id, t.compte_destination_id
+               FROM transaction t WHERE t.compte_destination_id = :compteId
+               AND t.date_transaction >= :debut
+               AND (t.date_transaction < :date OR (t.date_transaction = :date AND t.id < :id))
+               ORDER BY t.date_transaction DESC, t.id DESC LIMIT :limite)
+            ) h
+            LEFT JOIN comptes s ON s.id = h.compte_source_id
+            LEFT JOIN comptes d ON d.id = h.compte_destination_id
+            ORDER BY h.date_transaction DESC, h.id DESC LIMIT :limite""",
+            sqlResultSetMapping = "TransactionLigne")
+    List<TransactionLigne> findHistoriqueLignes(@Param("compteId") Long compteId,
+                                                @Param("debut") LocalDateTime debut,
+                                                @Param("date") LocalDateTime date,
+                                                @Param("id") Long id,
+                                                @Param("limite") int limite);
+
+    @Query("SELECT new com.transfert.transfertargent.dto.TransactionLigne(t.id, t.montant, t.frais, t.statut, " +
+            "t.dateTransaction, s.numeroTelephone, d.numeroTelephone) " +
+            "FROM Transaction t LEFT JOIN t.compteSource s LEFT JOIN t.compteDestination d " +
+            "WHERE t.compteSource.id = :compteId " +
+            "AND (t.dateTransaction < :date OR (t.dateTransaction = :date AND t.id < :id)) " +
+            "ORDER BY t.dateTransaction DESC, t.id DESC")
+    List<TransactionLigne> findEnvoyeesLignes(@Param("compteId") Long compteId,
+                                              @Param("date") LocalDateTime date,
+                                              @Param("id") Long id,
+                                              Pageable limite);
+
+    @Query("SELECT new com.transfert.transfertargent.dto.TransactionLigne(t.id, t.montant, t.frais, t.statut, " +
+            "t.dateTransaction, s.numeroTelephone, d.numeroTelephone) " +
+            "FROM Transaction t LEFT JOIN t.compteSource s LEFT JOIN t.compteDestination d " +
+            "WHERE t.compteDestination.id = :compteId " +
+            "AND (t.dateTransaction < :date OR (t.dateTransaction = :date AND t.id < :id)) " +
+            "ORDER BY t.dateTransaction DESC, t.id DESC")
+    List<TransactionLigne> findRecuesLignes(@Param("compteId") Long compteId,
+                                            @Param("date") LocalDateTime date,
+                                            @Param("id") Long id,
+                                            Pageable limite);
+
+    // ✅ STATISTIQUES D'UN COMPTE en un seul aller-retour : une ligne par direction
+    // (chaque branche est un parcours de son propre index, sans OR)
+    @Query(value = """
+            SELECT 'ENVOI' AS direction, COUNT(*) AS nombre,
+                   COALESCE(SUM(t.montant), 0) AS montant, COALESCE(SUM(t.frais), 0) AS frais
+            FROM transaction t WHERE t.compte_source_id = :compteId
+            UNION ALL
+            SELECT 'RECEPTION', COUNT(*), COALESCE(SUM(t.montant), 0), COALESCE(SUM(t.frais), 0)
+            FROM transaction t WHERE t.compte_destination_id = :compteId""",
+            nativeQuery = true)
+    List<Object[]> getStatistiquesParDirection(@Param("compteId") Long compteId);
+
+    // ✅ RELEVÉ EN FLUX : deux parcours d'index (source / destination) en ordre chronologique,
+    // fusionnés par l'appelant. Lecture par blocs de TAILLE_FETCH_EXPORT lignes, entités en
+    // lecture seule ; à consommer dans une transaction et à fermer (try-with-resources).
+    // Les comptes et le reçu (OneToOne inverse, jamais paresseux) sont joints pour éviter le N+1.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = TAILLE_FETCH_EXPORT),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT t FROM Transaction t LEFT JOIN FETCH t.compteSource LEFT JOIN FETCH t.compteDestination " +
+            "LEFT JOIN FETCH t.receipt " +
+            "WHERE t.compteSource.id = :compteId AND t.dateTransaction >= :debut AND t.dateTransaction < :fin " +
+            "ORDER BY t.dateTransaction, t.id")
+    Stream<Transaction> streamEnvoyees(@Param("compteId") Long compteId,
+                                       @Param("debut") LocalDateTime debut,
+                                       @Param("fin") LocalDateTime fin);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = TAILLE_FETCH_EXPORT),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT t FROM Transaction t LEFT JOIN FETCH t.compteSource LEFT JOIN FETCH t.compteDestination " +
+            "LEFT JOIN FETCH t.receipt " +
+            "WHERE t.compteDestination.id = :compteId AND t.dateTransaction >= :debut AND t.dateTransaction < :fin " +
+            "ORDER BY t.dateTransaction, t.id")
+    Stream<Transaction> streamRecues(@Param("compteId") Long compteId,
+                                     @Param("debut") LocalDateTime debut,
+                                     @Param("fin") LocalDateTime fin);
+
+    // ✅ Reçus restés EN_ATTENTE (file en mémoire perdue au redémarrage ou pleine), parcourus par id
+    @Query("SELECT t.id FROM Transaction t " +
+            "WHERE t.statutRecu = com.transfert.transfertargent.models.StatutRecu.EN_ATTENTE " +
+            "AND t.id > :apresId AND t.dateTransaction < :avant ORDER BY t.id")
+    List<Long> findIdsRecusEnAttente(@Param("avant") LocalDateTime avant,
+                                     @Param("apresId") Long apresId,
+                                     Pageable limite);
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.transfert.transfertargent.repositories;
+
+import com.transfert.transfertargent.models.TransactionRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface TransactionRollupRepository extends JpaRepository<TransactionRollup, Long> {
+
+    Optional<TransactionRollup> findByGranulariteAndPeriodeAndStatutAndType(TransactionRollup.Granularite granularite,
+                                                                            LocalDateTime periode,
+                                                                            String statut,
+                                                                            String type);
+
+    // Lignes : statut, type, nombre, montant, frais
+    @Query("SELECT r.statut, r.type, SUM(r.nombre), SUM(r.montant), SUM(r.frais) FROM TransactionRollup r " +
+            "WHERE r.granularite = :granularite AND r.periode >= :debut AND r.periode < :fin " +
+            "GROUP BY r.statut, r.type")
+    List<Object[]> sommerEntre(@Param("granularite") TransactionRollup.Granularite granularite,
+                               @Param("debut") LocalDateTime debut,
+                               @Param("fin") LocalDateTime fin);
+
+    // Lignes : période, nombre, montant (tous statuts et types)
+    @Query("SELECT r.periode, SUM(r.nombre), SUM(r.montant) FROM TransactionRollup r " +
+            "WHERE r.granularite = :granularite AND r.periode >= :debut AND r.periode < :fin " +
+            "GROUP BY r.periode")
+    List<Object[]> sommerParPeriode(@Param("granularite") TransactionRollup.Granularite granularite,
+                                    @Param("debut") LocalDateTime debut,
+                                    @Param("fin") LocalDateTime fin);
+}
@@ -0,0 +1,11 @@
+package com.transfert.transfertargent.repositories;
+
+import com.transfert.transfertargent.models.User;
+
+import java.util.Optional;
+
+public interface UserRepositoryCustom {
+
+    // ✅ Recherche par identifiant naturel : servie par le cache de second niveau sans requête SQL
+    Optional<User> findByTelephone(String telephone);
+}
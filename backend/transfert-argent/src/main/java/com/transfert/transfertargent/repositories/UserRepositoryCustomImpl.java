@@ -0,0 +1,19 @@
+package com.transfert.transfertargent.repositories;
+
+import com.transfert.transfertargent.models.User;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public Optional<User> findByTelephone(String telephone) {
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(User.class).loadOptional(telephone);
+    }
+}
@@ -1,6 +1,7 @@
 package com.transfert.transfertargent.services;
 
 import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.Montant;
 import com.transfert.transfertargent.models.Transaction;
 import com.transfert.transfertargent.models.User;
 import com.transfert.transfertargent.models.Role;
@@ -19,13 +20,20 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+// ✅ Lectures en transaction readOnly (routées vers la réplique si elle est configurée) ;
+// les écritures gardent leur @Transactional
 @Service
 @RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class AdminService {
 
     private final UserRepository userRepository;
     private final CompteRepository compteRepository;
     private final TransactionRepository transactionRepository;
+    private final UserDetailsServiceImpl userDetailsService;
+    private final StatistiquesPlateforme statistiquesPlateforme;
+    private final TransactionRollupService transactionRollupService;
+    private final CompteService compteService;
 
     // ==================== GESTION UTILISATEURS ====================
     public Page<User> getAllUsers(Pageable pageable) {
@@ -43,7 +51,9 @@ public class AdminService {
     @Transactional
     public User updateUserRole(Long userId, Role newRole) {
         User user = getUserById(userId);
+        statistiquesPlateforme.roleModifie(user.getRole(), newRole);
         user.setRole(newRole);
+        userDetailsService.invaliderPrincipal(user.getTelephone());
         return userRepository.save(user);
     }
 
@@ -51,6 +61,8 @@ public class AdminService {
     public User toggleUserStatus(Long userId) {
         User user = getUserById(userId);
         user.setEnabled(!user.isEnabled());
+        statistiquesPlateforme.statutUtilisateurModifie(user.isEnabled());
+        userDetailsService.invaliderPrincipal(user.getTelephone());
         return userRepository.save(user);
     }
 
@@ -66,13 +78,9 @@ public class AdminService {
         return userRepository.findByEnabled(enabled);
     }
 
+    // ✅ Compteurs tenus à jour à chaque écriture (plus de COUNT par rôle)
     public Map<String, Long> getUsersCountByRole() {
-        Map<String, Long> countMap = new HashMap<>();
-        for (Role role : Role.values()) {
-            Long count = userRepository.countByRole(role);
-            countMap.put(role.name(), count != null ? count : 0L);
-        }
-        return countMap;
+        return statistiquesPlateforme.getUtilisateursParRole();
     }
 
     // ==================== GESTION COMPTES ====================
@@ -92,6 +100,7 @@ public class AdminService {
     public Compte toggleCompteStatus(Long compteId) {
         Compte compte = getCompteById(compteId);
         compte.setActive(!compte.isActive());
+        statistiquesPlateforme.statutCompteModifie(compte.isActive());
         return compteRepository.save(compte);
     }
 
@@ -104,7 +113,7 @@ public class AdminService {
     }
 
     public List<Compte> getComptesWithLowBalance(Double seuil) {
-        return compteRepository.findBySoldeLessThan(seuil);
+        return compteRepository.findBySoldeLessThan(Montant.versCentimes(seuil));
     }
 
     public List<Compte> getComptesByStatus(boolean active) {
@@ -129,48 +138,21 @@ public class AdminService {
         return transactionRepository.findAllOrderByDateDesc();
     }
 
+    // ✅ Mise à jour atomique du solde par CompteService (UPDATE conditionnel, plus de lecture/écriture en Java)
     @Transactional
     public Transaction effectuerDepotAdmin(Long compteId, Double montant, String motif) {
-        if (montant <= 0) throw new RuntimeException("Montant doit être positif");
-        Compte compte = getCompteById(compteId);
-        if (!compte.isActive()) throw new RuntimeException("Compte inactif");
-
-        Transaction transaction = Transaction.builder()
-                .montant(montant).frais(0.0).compteDestination(compte).compteSource(null)
-                .statut("SUCCES").dateTransaction(LocalDateTime.now()).build();
-
-        compte.setSolde(compte.getSolde() + montant);
-        compteRepository.save(compte);
-        return transactionRepository.save(transaction);
+        return compteService.deposer(compteId, montant);
     }
 
     @Transactional
     public Transaction effectuerRetraitAdmin(Long compteId, Double montant, String motif) {
-        if (montant <= 0) throw new RuntimeException("Montant doit être positif");
-        Compte compte = getCompteById(compteId);
-        if (!compte.isActive()) throw new RuntimeException("Compte inactif");
-        if (compte.getSolde() < montant) throw new RuntimeException("Solde insuffisant");
-
-        Transaction transaction = Transaction.builder()
-                .montant(montant).frais(0.0).compteSource(compte).compteDestination(null)
-                .statut("SUCCES").dateTransaction(LocalDateTime.now()).build();
-
-        compte.setSolde(compte.getSolde() - montant);
-        compteRepository.save(compte);
-        return transactionRepository.save(transaction);
+        return compteService.retirer(compteId, montant);
     }
 
     // ==================== STATISTIQUES ====================
+    // ✅ Lecture O(1) des compteurs maintenus par StatistiquesPlateforme (réconciliés périodiquement)
     public Map<String, Object> getPlatformStatistics() {
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("totalUsers", userRepository.count());
-        stats.put("totalComptes", compteRepository.count());
-        stats.put("totalTransactions", transactionRepository.count());
-        stats.put("totalSolde", compteRepository.getTotalSolde() != null ? compteRepository.getTotalSolde() : 0.0);
-        stats.put("activeUsers", userRepository.countByEnabled(true));
-        stats.put("activeComptes", compteRepository.countByActive(true));
-        stats.put("timestamp", LocalDateTime.now());
-        return stats;
+        return statistiquesPlateforme.getStatistiques();
     }
 
     public List<Transaction> getRecentTransactions(int limit) {
@@ -185,11 +167,9 @@ public class AdminService {
         return transactionRepository.findRetraitTransactions();
     }
 
+    // ✅ Rollups horaires / journaliers + scan des seuls bords de période et de l'heure en cours
     public Map<String, Object> getTransactionStats(LocalDateTime start, LocalDateTime end) {
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("count", transactionRepository.countByDateRange(start, end));
-        stats.put("totalAmount", transactionRepository.getTotalAmountByDateRange(start, end));
-        stats.put("totalFees", transactionRepository.getTotalFeesByDateRange(start, end));
+        Map<String, Object> stats = transactionRollupService.getStatistiques(start, end);
         stats.put("period", Map.of("start", start, "end", end));
         return stats;
     }
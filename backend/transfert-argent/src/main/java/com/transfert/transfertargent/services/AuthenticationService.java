@@ -26,6 +26,7 @@ public class AuthenticationService {
     private final CompteRepository compteRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
+    private final StatistiquesPlateforme statistiquesPlateforme;
 
     private final String uploadDir = "uploads";
 
@@ -64,11 +65,13 @@ public class AuthenticationService {
         // Création automatique d'un compte courant
         Compte compte = Compte.builder()
                 .user(user)
-                .solde(0.0)
+                .solde(0)
                 .typeCompte("Courant")
                 .numeroTelephone(user.getTelephone())
                 .build();
         compteRepository.save(compte);
+        statistiquesPlateforme.utilisateurCree(user.getRole(), user.isEnabled());
+        statistiquesPlateforme.compteCree(compte.getSolde(), compte.isActive());
 
         // Génération du JWT
         String token = jwtService.generateToken(user);
@@ -0,0 +1,279 @@
+package com.transfert.transfertargent.services;
+
+import com.transfert.transfertargent.models.Receipt;
+import com.transfert.transfertargent.repositories.ReceiptRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * ✅ Compactage en tâche de fond des segments de reçus : un segment scellé dont la part encore
+ * référencée passe sous recus.segments.compactage.seuil voit ses reçus recopiés (empreinte
+ * vérifiée) dans le segment actif, l'index mis à jour par lots, puis est supprimé. Le même
+ * passage range dans les segments les reçus encore en fichiers isolés.
+ * Les anciens emplacements ne disparaissent qu'après un délai de grâce : un téléchargement
+ * commencé juste avant le déplacement peut encore les lire. Ces suppressions programmées ne
+ * sont qu'en mémoire : au premier passage après le démarrage, les fichiers isolés qu'aucun
+ * reçu ne référence plus sont balayés.
+ * Chaque nœud ne compacte que ses propres segments, dont il est l'unique écrivain (voir SegmentReceiptStore).
+ */
+@Component
+@ConditionalOnProperty(name = "recus.stockage", havingValue = "segments", matchIfMissing = true)
+public class CompactageSegmentsRecus {
+
+    private static final Logger log = LoggerFactory.getLogger(CompactageSegmentsRecus.class);
+    private static final int TAILLE_LOT = 500;
+
+    private final SegmentReceiptStore store;
+    private final FichierReceiptStore fichiers;
+    private final ReceiptRepository receiptRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final double seuil;
+    private final Duration grace;
+
+    // Segments ou fichiers isolés à supprimer une fois l'échéance passée
+    private final Queue<Suppression> suppressions = new ConcurrentLinkedQueue<>();
+
+    private record Suppression(Instant echeance, Long segment, Path fichier) {
+    }
+
+    // Fichiers isolés balayés depuis le démarrage
+    private boolean fichiersBalayes;
+
+    public CompactageSegmentsRecus(SegmentReceiptStore store,
+                                   FichierReceiptStore fichiers,
+                                   ReceiptRepository receiptRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${recus.segments.compactage.seuil:0.5}") double seuil,
+                                   @Value("${recus.segments.compactage.grace:PT10M}") Duration grace) {
+        this.store = store;
+        this.fichiers = fichiers;
+        this.receiptRepository = receiptRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.seuil = seuil;
+        this.grace = grace;
+    }
+
+    @Scheduled(fixedDelayString = "${recus.segments.compactage.intervalle:PT1H}",
+            initialDelayString = "${recus.segments.compactage.delai-initial:PT10M}")
+    public void compacter() {
+        try {
+            supprimerEchus();
+            if (!fichiersBalayes) {
+                balayerFichiersIsoles();
+                fichiersBalayes = true;
+            }
+
+            Map<Long, Long> vivants = new HashMap<>();
+            for (Object[] ligne : receiptRepository.octetsVivantsParSegment()) {
+                vivants.put((Long) ligne[0], ((Number) ligne[1]).longValue());
+            }
+            Set<Long> enAttente = new HashSet<>();
+            suppressions.forEach(s -> enAttente.add(s.segment()));
+
+            for (Long segment : store.segmentsScelles()) {
+                if (enAttente.contains(segment)) {
+                    continue;
+                }
+                long taille = store.taille(segment);
+                long vivant = vivants.getOrDefault(segment, 0L);
+                if (vivant < taille * seuil) {
+                    deplacer(segment, taille - vivant);
+                }
+            }
+
+            rapatrier();
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Compactage des segments de reçus interrompu", e);
+        }
+    }
+
+    // Reçus du segment recopiés par lots ; segment supprimé seulement si tous ont été déplacés
+    private void deplacer(long segment, long perdus) {
+        long position = -1;
+        boolean complet = true;
+        int deplaces = 0;
+        while (true) {
+            long depuis = position;
+            Lot lot = transactionTemplate.execute(status -> {
+                List<Receipt> recus = receiptRepository
+                        .findTop500BySegmentAndPositionSegmentGreaterThanOrderByPositionSegment(segment, depuis);
+                Lot resultat = new Lot(recus.size());
+                for (Receipt receipt : recus) {
+                    resultat.position = receipt.getPositionSegment();
+                    if (recopier(receipt)) {
+                        resultat.deplaces++;
+                    } else {
+                        resultat.complet = false;
+                    }
+                }
+                return resultat;
+            });
+            deplaces += lot.deplaces;
+            complet &= lot.complet;
+            if (lot.taille == 0) {
+                break;
+            }
+            position = lot.position;
+        }
+        if (complet) {
+            suppressions.add(new Suppression(Instant.now().plus(grace), segment, null));
+            log.info("Segment de reçus {} compacté : {} reçus déplacés, {} octets libérés", segment, deplaces, perdus);
+        } else {
+            log.error("Segment de reçus {} conservé : reçus d'empreinte invalide", segment);
+        }
+    }
+
+    // Fichiers isolés (stockage antérieur) rangés dans le segment actif, fichier supprimé après la grâce
+    private void rapatrier() {
+        long id = 0;
+        while (true) {
+            long depuis = id;
+            List<Receipt> recus = transactionTemplate.execute(status -> {
+                List<Receipt> lot = receiptRepository
+                        .findTop500BySegmentIsNullAndUrlFichierIsNotNullAndIdGreaterThanOrderById(depuis);
+                for (Receipt receipt : lot) {
+                    Path fichier = Paths.get(receipt.getUrlFichier());
+                    if (Files.isReadable(fichier) && recopier(receipt)) {
+                        suppressions.add(new Suppression(Instant.now().plus(grace), null, fichier));
+                    }
+                }
+                return lot;
+            });
+            if (recus.isEmpty()) {
+                break;
+            }
+            id = recus.get(recus.size() - 1).getId();
+        }
+    }
+
+    // Fichiers isolés laissés par un arrêt avant l'échéance de leur suppression : reçu rangé depuis
+    // dans un segment, ou fichier sans reçu (seulement s'il date d'avant la grâce : rendu en cours).
+    // Premier passage après delai-initial : les déplacements d'avant l'arrêt ont dépassé la grâce
+    private void balayerFichiersIsoles() throws IOException {
+        Path dossier = fichiers.dossier();
+        if (!Files.isDirectory(dossier)) {
+            return;
+        }
+        Instant limite = Instant.now().minus(grace);
+        List<Path> lot = new ArrayList<>();
+        int supprimes = 0;
+        try (DirectoryStream<Path> pdfs = Files.newDirectoryStream(dossier, "*.pdf")) {
+            for (Path pdf : pdfs) {
+                lot.add(pdf);
+                if (lot.size() == TAILLE_LOT) {
+                    supprimes += supprimerNonReferences(lot, limite);
+                    lot.clear();
+                }
+            }
+        }
+        supprimes += supprimerNonReferences(lot, limite);
+        if (supprimes > 0) {
+            log.info("{} fichiers de reçus isolés non référencés supprimés", supprimes);
+        }
+    }
+
+    private int supprimerNonReferences(List<Path> pdfs, Instant limite) throws IOException {
+        if (pdfs.isEmpty()) {
+            return 0;
+        }
+        Map<String, Path> parNumero = new HashMap<>();
+        for (Path pdf : pdfs) {
+            String nom = pdf.getFileName().toString();
+            parNumero.put(nom.substring(0, nom.length() - ".pdf".length()), pdf);
+        }
+        Set<String> existants = new HashSet<>();
+        for (Object[] ligne : receiptRepository.findUrlFichierByNumeroIn(parNumero.keySet())) {
+            existants.add((String) ligne[0]);
+            if (ligne[1] != null) {
+                parNumero.remove((String) ligne[0]);
+            }
+        }
+        int supprimes = 0;
+        for (Map.Entry<String, Path> pdf : parNumero.entrySet()) {
+            if (!existants.contains(pdf.getKey())
+                    && Files.getLastModifiedTime(pdf.getValue()).toInstant().isAfter(limite)) {
+                continue;
+            }
+            if (Files.deleteIfExists(pdf.getValue())) {
+                supprimes++;
+            }
+        }
+        return supprimes;
+    }
+
+    // Dans la transaction du lot : le nouvel emplacement est enregistré au commit
+    private boolean recopier(Receipt receipt) {
+        try {
+            byte[] pdf = store.lire(receipt);
+            String empreinte = HexFormat.of().formatHex(sha256().digest(pdf));
+            if (receipt.getEmpreinte() != null && !receipt.getEmpreinte().equals(empreinte)) {
+                log.error("Empreinte invalide pour le reçu {}, non déplacé", receipt.getNumero());
+                return false;
+            }
+            receipt.setEmpreinte(empreinte);
+            store.enregistrer(receipt, pdf);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void supprimerEchus() throws IOException {
+        Instant maintenant = Instant.now();
+        for (Suppression suppression : suppressions) {
+            if (suppression.echeance().isAfter(maintenant)) {
+                continue;
+            }
+            if (suppression.segment() != null) {
+                store.supprimerSegment(suppression.segment());
+            } else {
+                Files.deleteIfExists(suppression.fichier());
+            }
+            suppressions.remove(suppression);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Lot {
+        private final int taille;
+        private long position;
+        private int deplaces;
+        private boolean complet = true;
+
+        private Lot(int taille) {
+            this.taille = taille;
+        }
+    }
+}
@@ -1,13 +1,19 @@
 package com.transfert.transfertargent.services;
 
 import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.Montant;
+import com.transfert.transfertargent.models.Transaction;
 import com.transfert.transfertargent.models.User;
 import com.transfert.transfertargent.repositories.CompteRepository;
+import com.transfert.transfertargent.repositories.TransactionRepository;
 import com.transfert.transfertargent.repositories.UserRepository;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +23,12 @@ public class CompteService {
 
     private final CompteRepository compteRepository;
     private final UserRepository userRepository;
+    private final StatistiquesPlateforme statistiquesPlateforme;
+    private final TransactionRepository transactionRepository;
+    private final HistoriqueCache historiqueCache;
+    private final EntityManager entityManager;
+    private final GrandLivreService grandLivre;
+    private final TransactionRollupService transactionRollupService;
 
     // ✅ CORRECTION: Récupérer le compte connecté
     public Compte getCompteConnecte() {
@@ -49,23 +61,57 @@ public class CompteService {
         return compteOpt.orElseThrow(() -> new RuntimeException("Compte introuvable"));
     }
 
-    // Créer un compte avec numéro de téléphone
+    // Créer un compte avec numéro de téléphone (le solde initial est passé au grand livre)
+    @Transactional
     public Compte creerCompte(User utilisateur, Double soldeInitial, String typeCompte, String numeroTelephone) {
         Compte compte = Compte.builder()
                 .user(utilisateur)
-                .solde(soldeInitial)
+                .solde(soldeInitial == null ? 0 : Montant.versCentimes(soldeInitial))
                 .typeCompte(typeCompte)
                 .numeroTelephone(numeroTelephone)
                 .build();
-        return compteRepository.save(compte);
+        Compte compteCree = compteRepository.save(compte);
+        grandLivre.ouverture(compteCree);
+        statistiquesPlateforme.compteCree(compteCree.getSolde(), compteCree.isActive());
+        return compteCree;
     }
 
-    // Mettre à jour le solde
-    public Compte mettreAJourSolde(Long compteId, Double nouveauSolde) {
-        Compte compte = compteRepository.findById(compteId)
-                .orElseThrow(() -> new RuntimeException("Compte introuvable"));
-        compte.setSolde(nouveauSolde);
-        return compteRepository.save(compte);
+    // ✅ Dépôt : solde modifié par un UPDATE conditionnel (pas de mise à jour perdue) + ligne Transaction
+    @Transactional
+    public Transaction deposer(Long compteId, Double montant) {
+        return enregistrerMouvement(compteId, montant, true);
+    }
+
+    // ✅ Retrait : le contrôle du solde est fait par la base dans le même UPDATE
+    @Transactional
+    public Transaction retirer(Long compteId, Double montant) {
+        return enregistrerMouvement(compteId, montant, false);
+    }
+
+    private Transaction enregistrerMouvement(Long compteId, Double montant, boolean depot) {
+        if (montant == null || montant <= 0) {
+            throw new RuntimeException("Le montant doit être positif");
+        }
+        long centimes = Montant.versCentimes(montant);
+        Compte compte = getCompteById(compteId);
+        long variation = depot ? centimes : -centimes;
+        if (compteRepository.ajusterSolde(compteId, variation) == 0) {
+            throw new RuntimeException(compte.isActive() ? "Solde insuffisant pour le retrait" : "Compte inactif");
+        }
+
+        Transaction transaction = transactionRepository.save(Transaction.builder()
+                .montant(centimes).frais(0)
+                .compteSource(depot ? null : compte)
+                .compteDestination(depot ? compte : null)
+                .statut("SUCCES").dateTransaction(LocalDateTime.now()).build());
+        transactionRollupService.enregistree(transaction);
+        grandLivre.enregistrer(transaction);
+        statistiquesPlateforme.transactionsEnregistrees(1, variation);
+        historiqueCache.invalider(compte.getNumeroTelephone());
+
+        // Le solde a été calculé par la base : on relit le compte pour le renvoyer à jour
+        entityManager.refresh(compte);
+        return transaction;
     }
 
     // Récupérer tous les comptes d'un utilisateur
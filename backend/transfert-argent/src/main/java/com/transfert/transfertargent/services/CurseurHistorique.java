@@ -0,0 +1,34 @@
+package com.transfert.transfertargent.services;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position dans l'historique (dateTransaction, id), tri décroissant.
+ * Encodée en Base64 URL pour rester opaque côté client.
+ */
+public record CurseurHistorique(LocalDateTime date, Long id) {
+
+    public String encoder() {
+        String brut = date + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(brut.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return null pour la première page
+     */
+    public static CurseurHistorique decoder(String curseur) {
+        if (curseur == null || curseur.isBlank()) {
+            return null;
+        }
+        try {
+            String brut = new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.UTF_8);
+            int separateur = brut.lastIndexOf('|');
+            return new CurseurHistorique(LocalDateTime.parse(brut.substring(0, separateur)),
+                    Long.parseLong(brut.substring(separateur + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Curseur de pagination invalide");
+        }
+    }
+}
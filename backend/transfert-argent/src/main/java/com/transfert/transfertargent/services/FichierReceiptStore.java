@@ -0,0 +1,111 @@
+package com.transfert.transfertargent.services;
+
+import com.transfert.transfertargent.models.Receipt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Un fichier receipts/{numero}.pdf par reçu, chemin dans urlFichier. Stockage historique,
+ * retenu avec recus.stockage=fichiers ; sert aussi à relire les reçus antérieurs aux segments.
+ */
+@Component
+public class FichierReceiptStore implements ReceiptStore {
+
+    private static final Logger log = LoggerFactory.getLogger(FichierReceiptStore.class);
+
+    private final Path dossier;
+
+    public FichierReceiptStore() {
+        this("receipts");
+    }
+
+    @Autowired
+    public FichierReceiptStore(@Value("${recus.fichiers.dossier:receipts}") String dossier) {
+        this.dossier = Paths.get(dossier);
+    }
+
+    @Override
+    public void enregistrer(Receipt receipt, byte[] pdf) throws IOException {
+        createReceiptsDirectory();
+        Path fichier = dossier.resolve(receipt.getNumero() + ".pdf");
+        Files.write(fichier, pdf, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        receipt.setUrlFichier(fichier.toString());
+    }
+
+    @Override
+    public Optional<Zone> localiser(Receipt receipt) {
+        if (receipt.getUrlFichier() == null) {
+            return Optional.empty();
+        }
+        Path fichier = Paths.get(receipt.getUrlFichier());
+        if (!Files.isReadable(fichier)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new Zone(fichier, 0, receipt.getTaille() != null ? receipt.getTaille() : Files.size(fichier)));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void copier(Receipt receipt, long debut, long longueur, WritableByteChannel sortie) throws IOException {
+        try (FileChannel canal = FileChannel.open(Paths.get(receipt.getUrlFichier()), StandardOpenOption.READ)) {
+            long position = debut;
+            long reste = longueur;
+            while (reste > 0) {
+                long envoyes = canal.transferTo(position, reste, sortie);
+                if (envoyes <= 0) {
+                    break;
+                }
+                position += envoyes;
+                reste -= envoyes;
+            }
+        }
+    }
+
+    @Override
+    public void supprimer(Receipt receipt) {
+        try {
+            if (receipt.getUrlFichier() != null) {
+                Files.deleteIfExists(Paths.get(receipt.getUrlFichier()));
+            }
+        } catch (IOException e) {
+            // Appelé après un conflit d'enregistrement : l'échec n'en masque pas la cause, le fichier reste à effacer
+            log.warn("Suppression du PDF orphelin {} impossible", receipt.getUrlFichier(), e);
+        }
+    }
+
+    /**
+     * Dossier des fichiers isolés (balayage de CompactageSegmentsRecus)
+     */
+    Path dossier() {
+        return dossier;
+    }
+
+    /**
+     * Crée le répertoire de stockage des reçus
+     */
+    private void createReceiptsDirectory() throws IOException {
+        if (!Files.exists(dossier)) {
+            Files.createDirectories(dossier);
+        }
+
+        // ✅ Vérification des permissions d'écriture
+        if (!Files.isWritable(dossier)) {
+            throw new IOException("Permissions insuffisantes pour écrire dans le dossier " + dossier);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.transfert.transfertargent.services;
+
+import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.EcritureComptable;
+import com.transfert.transfertargent.models.EcritureComptable.CompteTechnique;
+import com.transfert.transfertargent.models.EcritureComptable.Nature;
+import com.transfert.transfertargent.models.EcritureComptable.Sens;
+import com.transfert.transfertargent.models.RollupWatermark;
+import com.transfert.transfertargent.models.SoldeInstantane;
+import com.transfert.transfertargent.models.Transaction;
+import com.transfert.transfertargent.repositories.EcritureComptableRepository;
+import com.transfert.transfertargent.repositories.RollupWatermarkRepository;
+import com.transfert.transfertargent.repositories.SoldeInstantaneRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grand livre en partie double : chaque mouvement de solde ajoute une écriture au débit et une
+ * au crédit, dans la transaction qui modifie Compte.solde (insertions regroupées par le batching JDBC).
+ * Un job enregistre périodiquement le solde des comptes mouvementés derrière un watermark :
+ * le solde à une date est le dernier instantané plus les écritures suivantes, jamais un rejeu complet.
+ * Un passage ne prend que les écritures datées d'avant maintenant - delai-securite : une écriture
+ * datée plus tôt mais validée après lui serait perdue : les écritures sont redatées au commit
+ * des transactions longues (voir RedatageAuCommit).
+ */
+@Service
+public class GrandLivreService {
+
+    static final String WATERMARK = "instantanes";
+    private static final int TAILLE_TRANCHE = 1_000;
+
+    private final EntityManager entityManager;
+    private final EcritureComptableRepository ecritureRepository;
+    private final SoldeInstantaneRepository instantaneRepository;
+    private final RollupWatermarkRepository watermarkRepository;
+    private final TransactionTemplate transactionTemplate;
+    // Un instantané n'est pris qu'une fois ce délai écoulé, pour les transactions validées en retard
+    private final Duration delaiSecurite;
+    private final RedatageAuCommit redatage;
+
+    public GrandLivreService(EntityManager entityManager,
+                             EcritureComptableRepository ecritureRepository,
+                             SoldeInstantaneRepository instantaneRepository,
+                             RollupWatermarkRepository watermarkRepository,
+                             TransactionTemplate transactionTemplate,
+                             JdbcTemplate jdbcTemplate,
+                             @Value("${grand-livre.instantanes.delai-securite:PT2M}") Duration delaiSecurite) {
+        this.entityManager = entityManager;
+        this.ecritureRepository = ecritureRepository;
+        this.instantaneRepository = instantaneRepository;
+        this.watermarkRepository = watermarkRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.delaiSecurite = delaiSecurite;
+        this.redatage = new RedatageAuCommit(entityManager, jdbcTemplate, "ecritures_comptables", "date_ecriture",
+                delaiSecurite);
+    }
+
+    // ==================== ÉCRITURES ====================
+
+    /**
+     * Écritures d'un transfert (plus ses frais), d'un dépôt ou d'un retrait ; à appeler dans la
+     * transaction qui modifie les soldes
+     *
+     * @return les écritures persistées (pour les détacher lors des traitements en lot)
+     */
+    public List<EcritureComptable> enregistrer(Transaction transaction) {
+        List<EcritureComptable> ecritures = new ArrayList<>(4);
+        Long source = idDe(transaction.getCompteSource());
+        Long destination = idDe(transaction.getCompteDestination());
+        long montant = transaction.getMontant();
+        if (source != null && destination != null) {
+            mouvement(ecritures, transaction.getId(), Nature.TRANSFERT, source, null, destination, null, montant);
+            long frais = transaction.getFrais();
+            if (frais > 0) {
+                mouvement(ecritures, transaction.getId(), Nature.FRAIS, source, null, null, CompteTechnique.FRAIS, frais);
+            }
+        } else if (destination != null) {
+            mouvement(ecritures, transaction.getId(), Nature.DEPOT, null, CompteTechnique.CAISSE, destination, null, montant);
+        } else {
+            mouvement(ecritures, transaction.getId(), Nature.RETRAIT, source, null, null, CompteTechnique.CAISSE, montant);
+        }
+        return ecritures;
+    }
+
+    /**
+     * Contre-passation d'une transaction annulée : écritures inverses du montant
+     * (les frais restent acquis, comme le remboursement fait sur Compte.solde)
+     */
+    public void contrepasser(Transaction transaction) {
+        Long source = idDe(transaction.getCompteSource());
+        Long destination = idDe(transaction.getCompteDestination());
+        mouvement(new ArrayList<>(2), transaction.getId(), Nature.ANNULATION,
+                destination, destination == null ? CompteTechnique.CAISSE : null,
+                source, source == null ? CompteTechnique.CAISSE : null,
+                transaction.getMontant());
+    }
+
+    // Solde initial d'un compte créé avec un solde non nul
+    public void ouverture(Compte compte) {
+        if (compte.getSolde() > 0) {
+            mouvement(new ArrayList<>(2), null, Nature.OUVERTURE,
+                    null, CompteTechnique.CAISSE, compte.getId(), null, compte.getSolde());
+        }
+    }
+
+    private void mouvement(List<EcritureComptable> ecritures, Long transactionId, Nature nature,
+                           Long compteDebite, CompteTechnique techniqueDebite,
+                           Long compteCredite, CompteTechnique techniqueCredite, long montant) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        ecritures.add(persister(transactionId, nature, Sens.DEBIT, compteDebite, techniqueDebite, montant, maintenant));
+        ecritures.add(persister(transactionId, nature, Sens.CREDIT, compteCredite, techniqueCredite, montant, maintenant));
+    }
+
+    private EcritureComptable persister(Long transactionId, Nature nature, Sens sens, Long compteId,
+                                        CompteTechnique technique, long montant, LocalDateTime date) {
+        EcritureComptable ecriture = EcritureComptable.builder()
+                .transactionId(transactionId)
+                .nature(nature)
+                .sens(sens)
+                .compteId(compteId)
+                .compteTechnique(technique)
+                .montant(montant)
+                .dateEcriture(date)
+                .build();
+        entityManager.persist(ecriture);
+        redatage.suivre(ecriture.getId(), date);
+        return ecriture;
+    }
+
+    // ==================== SOLDES ====================
+
+    /**
+     * Solde d'un compte d'après le grand livre, écritures antérieures à date :
+     * dernier instantané avant la date + écritures entre les deux (en centimes)
+     */
+    @Transactional(readOnly = true)
+    public long soldeA(Long compteId, LocalDateTime date) {
+        SoldeInstantane instantane = instantaneRepository
+                .findFirstByCompteIdAndDateInstantaneLessThanEqualOrderByDateInstantaneDesc(compteId, date)
+                .orElse(null);
+        LocalDateTime depuis = instantane == null ? LocalDateTime.of(1970, 1, 1, 0, 0) : instantane.getDateInstantane();
+        long base = instantane == null ? 0 : instantane.getSolde();
+        return base + ecritureRepository.variationEntre(compteId, depuis, date);
+    }
+
+    // ==================== INSTANTANÉS ====================
+    @Scheduled(fixedDelayString = "${grand-livre.instantanes.intervalle:PT1H}",
+            initialDelayString = "${grand-livre.instantanes.delai-initial:PT1M}")
+    public void instantaner() {
+        LocalDateTime limite = LocalDateTime.now().minus(delaiSecurite);
+        initialiserWatermark(limite);
+        transactionTemplate.executeWithoutResult(status -> passe(limite));
+    }
+
+    private void passe(LocalDateTime limite) {
+        RollupWatermark watermark = watermarkRepository.verrouiller(WATERMARK).orElse(null);
+        if (watermark == null || !watermark.getValeur().isBefore(limite)) {
+            return;
+        }
+        // Comptes mouvementés depuis le dernier passage : nouveau solde = dernier instantané + variation
+        Map<Long, Long> variations = new HashMap<>();
+        for (Object[] ligne : ecritureRepository.variationsParCompte(watermark.getValeur(), limite)) {
+            variations.put((Long) ligne[0], ((Number) ligne[1]).longValue());
+        }
+        List<Long> compteIds = new ArrayList<>(variations.keySet());
+        for (int debut = 0; debut < compteIds.size(); debut += TAILLE_TRANCHE) {
+            List<Long> tranche = compteIds.subList(debut, Math.min(debut + TAILLE_TRANCHE, compteIds.size()));
+            Map<Long, Long> precedents = new HashMap<>(tranche.size() * 2);
+            instantaneRepository.findDerniers(tranche).forEach(s -> precedents.put(s.getCompteId(), s.getSolde()));
+            for (Long compteId : tranche) {
+                entityManager.persist(SoldeInstantane.builder()
+                        .compteId(compteId)
+                        .dateInstantane(limite)
+                        .solde(precedents.getOrDefault(compteId, 0L) + variations.get(compteId))
+                        .build());
+            }
+            entityManager.flush();
+            entityManager.clear();
+        }
+        // Relu après clear() : l'entité verrouillée a été détachée
+        watermarkRepository.findById(WATERMARK).ifPresent(w -> w.setValeur(limite));
+    }
+
+    // Premier passage (base sans migration de reprise) : aucun instantané, départ au plus tôt
+    private void initialiserWatermark(LocalDateTime limite) {
+        if (watermarkRepository.existsById(WATERMARK)) {
+            return;
+        }
+        try {
+            watermarkRepository.saveAndFlush(RollupWatermark.builder()
+                    .nom(WATERMARK).valeur(LocalDateTime.of(1970, 1, 1, 0, 0)).build());
+        } catch (DataIntegrityViolationException e) {
+            // Un autre nœud l'a créé en même temps
+        }
+    }
+
+    private static Long idDe(Compte compte) {
+        return compte == null ? null : compte.getId();
+    }
+}
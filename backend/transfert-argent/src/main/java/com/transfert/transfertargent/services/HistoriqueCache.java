@@ -0,0 +1,128 @@
+package com.transfert.transfertargent.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.transfert.transfertargent.config.LectureApresEcriture;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache des lectures d'historique et de statistiques, regroupées par compte (numéro de téléphone).
+ * Borné en nombre de comptes et en durée de vie ; chaque écriture sur un compte invalide
+ * toutes ses entrées d'un coup, au moment de l'écriture puis après le commit.
+ * Métriques : cache.gets (hit / miss), cache.evictions, cache.size et
+ * historique.cache.invalidations, avec le tag cache=historique.
+ * Une invalidation ouvre aussi la fenêtre de lecture sur la base principale
+ * (LectureApresEcriture), pour ne pas remettre en cache une page lue sur une réplique en retard.
+ */
+@Component
+public class HistoriqueCache {
+
+    private static final String NOM = "historique";
+    // Pages / filtres distincts gardés par compte ; au-delà, la lecture n'est plus mise en cache
+    private static final int MAX_ENTREES_PAR_COMPTE = 64;
+
+    private final Cache<String, EntreesCompte> parCompte;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter invalidations;
+    private final LectureApresEcriture lectureApresEcriture;
+
+    public HistoriqueCache(MeterRegistry registry,
+                           LectureApresEcriture lectureApresEcriture,
+                           @Value("${historique.cache.comptes-max:10000}") long comptesMax,
+                           @Value("${historique.cache.ttl-secondes:30}") long ttlSecondes) {
+        this.lectureApresEcriture = lectureApresEcriture;
+        this.hits = Counter.builder("cache.gets").tag("cache", NOM).tag("result", "hit")
+                .description("Lectures d'historique servies par le cache").register(registry);
+        this.misses = Counter.builder("cache.gets").tag("cache", NOM).tag("result", "miss")
+                .description("Lectures d'historique envoyées à la base").register(registry);
+        this.evictions = Counter.builder("cache.evictions").tag("cache", NOM)
+                .description("Comptes évincés par taille ou expiration").register(registry);
+        this.invalidations = Counter.builder("historique.cache.invalidations")
+                .description("Invalidations d'un compte suite à une écriture").register(registry);
+        this.parCompte = Caffeine.newBuilder()
+                .maximumSize(comptesMax)
+                .expireAfterWrite(Duration.ofSeconds(ttlSecondes))
+                .removalListener((String tel, EntreesCompte e, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        evictions.increment();
+                    }
+                })
+                .build();
+        Gauge.builder("cache.size", parCompte, Cache::estimatedSize).tag("cache", NOM)
+                .description("Comptes présents dans le cache d'historique").register(registry);
+    }
+
+    /**
+     * Renvoie la lecture en cache pour (compte, requête), ou l'exécute et la mémorise.
+     * L'entrée du compte est capturée avant la lecture : si une écriture l'invalide
+     * pendant ce temps, le résultat (peut-être périmé) part avec l'ancienne entrée.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T lire(String telephone, String requete, Supplier<T> chargement) {
+        EntreesCompte entrees = parCompte.get(telephone, t -> new EntreesCompte());
+        Object valeur = entrees.resultats.get(requete);
+        if (valeur != null) {
+            hits.increment();
+            return (T) valeur;
+        }
+        misses.increment();
+        T resultat = chargement.get();
+        if (resultat != null && entrees.resultats.size() < MAX_ENTREES_PAR_COMPTE) {
+            entrees.resultats.put(requete, resultat);
+        }
+        return resultat;
+    }
+
+    /**
+     * Invalide les comptes tout de suite et, dans une transaction, une seconde fois
+     * après le commit pour écarter les lectures concurrentes faites avant celui-ci
+     */
+    public void invalider(String... telephones) {
+        invalider(Arrays.asList(telephones));
+    }
+
+    public void invalider(Collection<String> telephones) {
+        lectureApresEcriture.marquer(telephones);
+        invaliderMaintenant(telephones);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<String> copie = new ArrayList<>(telephones);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invaliderMaintenant(copie);
+                }
+            });
+        }
+    }
+
+    private void invaliderMaintenant(Collection<String> telephones) {
+        for (String telephone : telephones) {
+            if (telephone != null) {
+                parCompte.invalidate(telephone);
+                invalidations.increment();
+            }
+        }
+    }
+
+    private static final class EntreesCompte {
+        private final Map<String, Object> resultats = new ConcurrentHashMap<>();
+    }
+}
@@ -19,11 +19,11 @@ public class HistoriqueTransactionService {
      *
      * @param compteSource      Le compte source
      * @param compteDestination Le compte destination
-     * @param montant           Le montant transféré
-     * @param frais             Les frais appliqués
+     * @param montant           Le montant transféré, en centimes
+     * @param frais             Les frais appliqués, en centimes
      * @param statut            Statut de la transaction ("SUCCES", "ECHOUEE", etc.)
      */
-    public void enregistrer(Compte compteSource, Compte compteDestination, Double montant, Double frais, String statut) {
+    public void enregistrer(Compte compteSource, Compte compteDestination, long montant, long frais, String statut) {
         HistoriqueTransaction historique = HistoriqueTransaction.builder()
                 .compteSource(compteSource)
                 .compteDestination(compteDestination)
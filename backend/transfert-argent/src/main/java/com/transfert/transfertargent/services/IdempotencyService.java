@@ -0,0 +1,236 @@
+package com.transfert.transfertargent.services;
+
+import com.transfert.transfertargent.models.IdempotencyKey;
+import com.transfert.transfertargent.models.Transaction;
+import com.transfert.transfertargent.repositories.IdempotencyKeyRepository;
+import com.transfert.transfertargent.repositories.TransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Dédoublonnage des transferts rejoués par les clients (en-tête Idempotency-Key).
+ * Niveau 1 : cache mémoire borné avec expiration + futures des exécutions en cours.
+ * Niveau 2 : table idempotency_keys à clé unique, écrite dans la transaction du transfert.
+ * Chaque clé garde l'empreinte de la requête qui l'a utilisée : un rejeu avec la même clé mais une
+ * autre requête (destinataire, montant) est refusé au lieu de renvoyer le transfert d'origine.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final int LONGUEUR_MAX_CLE = 100;
+    private static final long ATTENTE_MAX_SECONDES = 30;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionRepository transactionRepository;
+    private final Duration retention;
+    private final int tailleMaxCache;
+
+    // Exécutions en cours : les doublons concurrents attendent la première au lieu de la concurrencer
+    private final Map<String, Execution> enCours = new ConcurrentHashMap<>();
+
+    // Clés terminées (clé -> id transaction), en ordre d'accès pour l'éviction LRU
+    private final LinkedHashMap<String, EntreeCache> terminees;
+
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository,
+                              TransactionRepository transactionRepository,
+                              @Value("${idempotence.retention-heures:24}") long retentionHeures,
+                              @Value("${idempotence.cache.taille-max:10000}") int tailleMaxCache) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionRepository = transactionRepository;
+        this.retention = Duration.ofHours(retentionHeures);
+        this.tailleMaxCache = tailleMaxCache;
+        this.terminees = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, EntreeCache> eldest) {
+                return size() > IdempotencyService.this.tailleMaxCache;
+            }
+        };
+    }
+
+    /**
+     * Exécute le transfert une seule fois par (téléphone, clé). Un rejeu renvoie la
+     * transaction d'origine sans repasser par les comptes.
+     *
+     * @param empreinte empreinte de la requête (voir {@link #empreinte(Object...)})
+     * @param transfert reçoit la clé complète, à enregistrer dans la transaction du transfert
+     * @throws CleReutiliseeException si la clé a déjà servi à une autre requête
+     */
+    public Transaction executerUneFois(String telephone, String cle, String empreinte,
+                                       Function<String, Transaction> transfert) {
+        if (cle.isBlank() || cle.length() > LONGUEUR_MAX_CLE) {
+            throw new RuntimeException("Idempotency-Key invalide (1 à " + LONGUEUR_MAX_CLE + " caractères)");
+        }
+        String cleComplete = telephone + ":" + cle;
+
+        // 1. Cache mémoire
+        EntreeCache entree = depuisCache(cleComplete);
+        if (entree != null) {
+            verifierEmpreinte(entree.empreinte(), empreinte);
+            return chargerTransaction(entree.transactionId());
+        }
+
+        // 2. Une exécution identique est en cours : on attend son résultat
+        Execution execution = new Execution(new CompletableFuture<>(), empreinte);
+        Execution existante = enCours.putIfAbsent(cleComplete, execution);
+        if (existante != null) {
+            verifierEmpreinte(existante.empreinte(), empreinte);
+            return chargerTransaction(attendre(existante.resultat()));
+        }
+
+        try {
+            // 3. Table : clé déjà traitée par un autre nœud ou avant un redémarrage
+            IdempotencyKey enregistree = idempotencyKeyRepository.findByCle(cleComplete).orElse(null);
+            Transaction transaction;
+            if (enregistree != null) {
+                verifierEmpreinte(enregistree.getEmpreinteRequete(), empreinte);
+                transaction = chargerTransaction(enregistree.getTransactionId());
+            } else {
+                transaction = executerOuRelire(cleComplete, empreinte, transfert);
+            }
+            mettreEnCache(cleComplete, transaction.getId(), empreinte);
+            execution.resultat().complete(transaction.getId());
+            return transaction;
+        } catch (RuntimeException e) {
+            // Pas de mémorisation de l'échec : le client pourra rejouer avec la même clé
+            execution.resultat().completeExceptionally(e);
+            throw e;
+        } finally {
+            enCours.remove(cleComplete, execution);
+        }
+    }
+
+    /**
+     * Enregistre la clé et l'empreinte de la requête en cours d'exécution ; appelé dans la
+     * transaction du transfert pour que les deux soient validés ou annulés ensemble
+     */
+    public void enregistrer(String cleComplete, Long transactionId) {
+        Execution execution = enCours.get(cleComplete);
+        idempotencyKeyRepository.save(IdempotencyKey.builder()
+                .cle(cleComplete)
+                .transactionId(transactionId)
+                .empreinteRequete(execution == null ? null : execution.empreinte())
+                .build());
+    }
+
+    /**
+     * Empreinte SHA-256 (hex) des champs d'une requête, dans l'ordre donné
+     */
+    public static String empreinte(Object... champs) {
+        MessageDigest digest = sha256();
+        for (Object champ : champs) {
+            digest.update(Objects.toString(champ).getBytes(StandardCharsets.UTF_8));
+            // Séparateur : ("ab", "c") et ("a", "bc") n'ont pas la même empreinte
+            digest.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Purge horaire des clés plus anciennes que la rétention
+    @Scheduled(fixedDelayString = "PT1H")
+    @Transactional
+    public void purgerClesExpirees() {
+        idempotencyKeyRepository.deleteByDateCreationBefore(LocalDateTime.now().minus(retention));
+    }
+
+    private Transaction executerOuRelire(String cleComplete, String empreinte, Function<String, Transaction> transfert) {
+        try {
+            return transfert.apply(cleComplete);
+        } catch (DataIntegrityViolationException e) {
+            // Un autre nœud a inséré la même clé en parallèle : son transfert fait foi
+            IdempotencyKey enregistree = idempotencyKeyRepository.findByCle(cleComplete).orElseThrow(() -> e);
+            verifierEmpreinte(enregistree.getEmpreinteRequete(), empreinte);
+            return chargerTransaction(enregistree.getTransactionId());
+        }
+    }
+
+    // Clés enregistrées avant l'ajout de l'empreinte (null) : acceptées comme avant
+    private static void verifierEmpreinte(String attendue, String recue) {
+        if (attendue != null && !attendue.equals(recue)) {
+            throw new CleReutiliseeException();
+        }
+    }
+
+    private Long attendre(CompletableFuture<Long> existante) {
+        try {
+            return existante.get(ATTENTE_MAX_SECONDES, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Un transfert avec la même Idempotency-Key est toujours en cours");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Attente du transfert interrompue");
+        }
+    }
+
+    private Transaction chargerTransaction(Long transactionId) {
+        return transactionRepository.findById(transactionId)
+                .orElseThrow(() -> new RuntimeException("Transaction non trouvée avec l'ID: " + transactionId));
+    }
+
+    private EntreeCache depuisCache(String cleComplete) {
+        synchronized (terminees) {
+            EntreeCache entree = terminees.get(cleComplete);
+            if (entree == null) {
+                return null;
+            }
+            if (entree.expireA() < System.currentTimeMillis()) {
+                terminees.remove(cleComplete);
+                return null;
+            }
+            return entree;
+        }
+    }
+
+    private void mettreEnCache(String cleComplete, Long transactionId, String empreinte) {
+        synchronized (terminees) {
+            terminees.put(cleComplete,
+                    new EntreeCache(transactionId, empreinte, System.currentTimeMillis() + retention.toMillis()));
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record EntreeCache(Long transactionId, String empreinte, long expireA) {
+    }
+
+    private record Execution(CompletableFuture<Long> resultat, String empreinte) {
+    }
+
+    /**
+     * Idempotency-Key déjà utilisée pour une requête différente (réponse 422)
+     */
+    public static class CleReutiliseeException extends RuntimeException {
+        public CleReutiliseeException() {
+            super("Idempotency-Key déjà utilisée pour un autre transfert");
+        }
+    }
+}
@@ -1,18 +1,63 @@
 package com.transfert.transfertargent.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import com.transfert.transfertargent.models.User;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class JwtService {
 
     private static final String SECRET_KEY = "12345678901234567890123456789012"; // 32+ chars
 
+    // ✅ Clé et parseur construits une seule fois (thread-safe)
+    private final Key signInKey = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+    private final JwtParser parser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+
+    // ✅ Claims déjà vérifiés, par empreinte SHA-256 du token, jusqu'à leur "exp" :
+    // une seule vérification de signature par token et par durée de vie
+    private final Cache<String, Claims> claimsVerifies;
+
+    public JwtService(@Value("${jwt.cache.taille-max:10000}") long tailleMaxCache) {
+        this.claimsVerifies = Caffeine.newBuilder()
+                .maximumSize(tailleMaxCache)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String cle, Claims claims, long maintenantNanos) {
+                        Date expiration = claims.getExpiration();
+                        if (expiration == null) {
+                            return Long.MAX_VALUE;
+                        }
+                        return TimeUnit.MILLISECONDS.toNanos(
+                                Math.max(0, expiration.getTime() - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String cle, Claims claims, long maintenantNanos, long dureeRestante) {
+                        return dureeRestante;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String cle, Claims claims, long maintenantNanos, long dureeRestante) {
+                        return dureeRestante;
+                    }
+                })
+                .build();
+    }
+
     // Extraire le téléphone (ou clé unique) depuis le token
     public String extractTelephone(String token) {
         return extractClaims(token).getSubject();
@@ -45,29 +90,42 @@ public class JwtService {
         return claims.get("id", Long.class);
     }
 
-    // Vérifier si le token est valide
-    public boolean isTokenValid(String token, User user) {
-        final String username = extractTelephone(token);
-        return (username.equals(user.getTelephone()) && !isTokenExpired(token));
+    // Vérifier si le token est valide (un seul accès aux claims)
+    public boolean isTokenValid(String token, UserDetails user) {
+        Claims claims = extractClaims(token);
+        return claims.getSubject().equals(user.getUsername()) && !isExpired(claims);
     }
 
-    // Vérifier si le token est expiré
-    private boolean isTokenExpired(String token) {
-        return extractClaims(token).getExpiration().before(new Date());
+    private boolean isExpired(Claims claims) {
+        return claims.getExpiration() != null && claims.getExpiration().before(new Date());
     }
 
-    // Extraire les claims depuis le token
+    // Extraire les claims depuis le token : cache, sinon vérification de la signature
     private Claims extractClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        String cle = empreinte(token);
+        Claims claims = claimsVerifies.getIfPresent(cle);
+        if (claims != null && !isExpired(claims)) {
+            return claims;
+        }
+        // Token inconnu ou expiré : le parseur vérifie la signature et lève ExpiredJwtException si besoin
+        claims = parser.parseClaimsJws(token).getBody();
+        claimsVerifies.put(cle, claims);
+        return claims;
+    }
+
+    // Empreinte du token : la clé du cache ne contient pas le token lui-même
+    private static String empreinte(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     // Obtenir la clé de signature
     private Key getSignInKey() {
-        return Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+        return signInKey;
     }
 
     // ✅ NOUVELLE MÉTHODE: Vérifier si l'utilisateur est admin
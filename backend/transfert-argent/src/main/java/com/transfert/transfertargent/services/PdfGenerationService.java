@@ -1,18 +1,31 @@
 package com.transfert.transfertargent.services;
 
 import com.transfert.transfertargent.models.Transaction;
-import org.springframework.stereotype.Service;
 
-@Service
-public class PdfGenerationService {
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 
-    public byte[] generateReceiptPdf(Transaction transaction) {
+/**
+ * Rendu PDF d'un reçu de transaction. Implémentation par défaut : TemplatePdfGenerationService
+ * (mise en page statique préparée une fois) ; un autre rendu se branche en déclarant un bean
+ * {@code @Primary} de ce type.
+ */
+public interface PdfGenerationService {
 
+    /**
+     * Écrit le PDF du reçu sur la sortie, sans la fermer
+     */
+    void writeReceiptPdf(Transaction transaction, OutputStream sortie) throws IOException;
+
+    default byte[] generateReceiptPdf(Transaction transaction) {
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream();
         try {
-            // Utilisez une bibliothèque comme iText, Apache PDFBox, etc.
-            return "Simulation PDF content".getBytes();
-        } catch (Exception e) {
-            throw new RuntimeException("Erreur lors de la génération du PDF", e);
+            writeReceiptPdf(transaction, sortie);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erreur lors de la génération du PDF", e);
         }
+        return sortie.toByteArray();
     }
-}
\ No newline at end of file
+}
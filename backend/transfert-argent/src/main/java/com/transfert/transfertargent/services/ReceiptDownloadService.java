@@ -0,0 +1,126 @@
+package com.transfert.transfertargent.services;
+
+import com.transfert.transfertargent.models.Receipt;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.List;
+
+/**
+ * ✅ Téléchargement des reçus PDF sans copie en mémoire : un reçu ne change plus une fois écrit,
+ * d'où un ETag fort (SHA-256 du fichier), la revalidation en 304, les requêtes Range et un
+ * cache client immuable. Le corps part par sendfile (zone du fichier ou du segment) quand le
+ * connecteur Tomcat le permet, sinon par le ReceiptStore (transferTo ou projection mémoire).
+ */
+@Service
+@RequiredArgsConstructor
+public class ReceiptDownloadService {
+
+    // Attributs de requête du connecteur Tomcat (org.apache.coyote.Constants / org.apache.catalina.Globals)
+    private static final String SENDFILE_SUPPORTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FICHIER = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_DEBUT = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
+    // Privé : le reçu appartient à l'utilisateur authentifié, aucun cache partagé ne doit le garder
+    private static final String CACHE_IMMUABLE = "private, max-age=31536000, immutable";
+
+    private final ReceiptService receiptService;
+    private final ReceiptStore receiptStore;
+
+    /**
+     * Écrit le reçu dans la réponse : 200, 206 (Range), 304 (If-None-Match), 404 ou 416
+     */
+    public void envoyer(Receipt receipt, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ReceiptStore.Zone zone = receiptStore.localiser(receipt).orElse(null);
+        if (zone == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        receipt = receiptService.assurerEmpreinte(receipt);
+        String etag = "\"" + receipt.getEmpreinte() + "\"";
+        long taille = receipt.getTaille();
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_IMMUABLE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (correspond(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long debut = 0;
+        long fin = taille - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        // If-Range périmé (autre contenu) : on renvoie le fichier entier
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> plages;
+            try {
+                plages = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                plages = List.of();
+            }
+            // Une seule plage prise en charge ; plusieurs plages (multipart) : fichier entier
+            if (plages.size() == 1) {
+                HttpRange plage = plages.get(0);
+                try {
+                    debut = plage.getRangeStart(taille);
+                    fin = plage.getRangeEnd(taille);
+                } catch (IllegalArgumentException e) {
+                    debut = taille;
+                }
+                if (debut >= taille || debut > fin) {
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + taille);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + debut + "-" + fin + "/" + taille);
+            }
+        }
+
+        long longueur = fin - debut + 1;
+        response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(receipt.getNumero() + ".pdf")
+                .build()
+                .toString());
+        response.setContentLengthLong(longueur);
+        if ("HEAD".equals(request.getMethod()) || longueur == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTE))) {
+            // Tomcat envoie la plage du fichier après le retour du contrôleur, sans passer par la JVM
+            request.setAttribute(SENDFILE_FICHIER, zone.fichier().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_DEBUT, zone.position() + debut);
+            request.setAttribute(SENDFILE_FIN, zone.position() + fin + 1);
+            return;
+        }
+        receiptStore.copier(receipt, debut, longueur, Channels.newChannel(response.getOutputStream()));
+    }
+
+    // If-None-Match : liste d'ETags ou "*" ; comparaison faible (RFC 9110 §13.1.2)
+    private static boolean correspond(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidat : ifNoneMatch.split(",")) {
+            String valeur = candidat.trim();
+            if (valeur.equals("*") || valeur.equals(etag) || valeur.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
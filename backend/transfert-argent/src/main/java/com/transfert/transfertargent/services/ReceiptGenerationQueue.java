@@ -0,0 +1,227 @@
+package com.transfert.transfertargent.services;
+
+import com.transfert.transfertargent.models.ReceiptEchec;
+import com.transfert.transfertargent.models.StatutRecu;
+import com.transfert.transfertargent.models.Transaction;
+import com.transfert.transfertargent.repositories.ReceiptEchecRepository;
+import com.transfert.transfertargent.repositories.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * File bornée de génération des reçus, alimentée après le commit des transferts
+ * et consommée par un pool de threads virtuels. Le rendu PDF ne fait donc plus
+ * partie de la transaction (ni de la latence) du transfert.
+ * La file ne vit qu'en mémoire : au démarrage puis périodiquement, les transactions dont le reçu
+ * est resté EN_ATTENTE depuis plus de recus.reprise.age-min (redémarrage, file pleine) y sont remises.
+ * Plusieurs nœuds peuvent reprendre la même transaction : la génération d'un reçu existant ne fait rien.
+ */
+@Component
+public class ReceiptGenerationQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptGenerationQueue.class);
+    private static final int TAILLE_TRANCHE_REPRISE = 500;
+
+    private final ReceiptService receiptService;
+    private final TransactionRepository transactionRepository;
+    private final ReceiptEchecRepository receiptEchecRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int capacite;
+    private final int nombreWorkers;
+    private final int tentativesMax;
+    private final long backoffInitialMs;
+    private final Duration ageMinReprise;
+
+    // DelayQueue pour que les nouvelles tentatives attendent leur backoff sans bloquer un worker
+    private final DelayQueue<TacheRecu> file = new DelayQueue<>();
+    private final AtomicInteger taille = new AtomicInteger();
+    // Transactions en file (ou en attente d'une nouvelle tentative) : la reprise ne les ajoute pas deux fois
+    private final Set<Long> enFile = ConcurrentHashMap.newKeySet();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean actif = true;
+
+    public ReceiptGenerationQueue(ReceiptService receiptService,
+                                  TransactionRepository transactionRepository,
+                                  ReceiptEchecRepository receiptEchecRepository,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${recus.file.capacite:10000}") int capacite,
+                                  @Value("${recus.file.workers:4}") int nombreWorkers,
+                                  @Value("${recus.file.tentatives-max:5}") int tentativesMax,
+                                  @Value("${recus.file.backoff-initial-ms:200}") long backoffInitialMs,
+                                  @Value("${recus.reprise.age-min:PT5M}") Duration ageMinReprise) {
+        this.receiptService = receiptService;
+        this.transactionRepository = transactionRepository;
+        this.receiptEchecRepository = receiptEchecRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.capacite = capacite;
+        this.nombreWorkers = nombreWorkers;
+        this.tentativesMax = tentativesMax;
+        this.backoffInitialMs = backoffInitialMs;
+        this.ageMinReprise = ageMinReprise;
+    }
+
+    @PostConstruct
+    void demarrer() {
+        Thread.Builder builder = Thread.ofVirtual().name("recu-worker-", 0);
+        for (int i = 0; i < nombreWorkers; i++) {
+            workers.add(builder.start(this::boucleWorker));
+        }
+    }
+
+    @PreDestroy
+    void arreter() {
+        actif = false;
+        workers.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Appelé uniquement si la transaction du transfert a été validée
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTransfertEffectue(TransfertEffectueEvent event) {
+        soumettre(event.transactionId());
+    }
+
+    /**
+     * @return false si la file est pleine ; le reçu reste EN_ATTENTE et sera généré
+     * à la demande lors du premier téléchargement ou par la prochaine reprise
+     */
+    public boolean soumettre(Long transactionId) {
+        if (!enFile.add(transactionId)) {
+            return true;
+        }
+        if (taille.incrementAndGet() > capacite) {
+            taille.decrementAndGet();
+            enFile.remove(transactionId);
+            log.warn("File des reçus pleine ({}), reçu de la transaction {} généré à la demande", capacite, transactionId);
+            return false;
+        }
+        file.put(new TacheRecu(transactionId, 1, System.nanoTime()));
+        return true;
+    }
+
+    public int taille() {
+        return taille.get();
+    }
+
+    /**
+     * Remet en file les reçus restés EN_ATTENTE ; s'arrête à la première file pleine
+     */
+    @Scheduled(fixedDelayString = "${recus.reprise.intervalle:PT5M}",
+            initialDelayString = "${recus.reprise.delai-initial:PT10S}")
+    public void reprendre() {
+        LocalDateTime avant = LocalDateTime.now().minus(ageMinReprise);
+        long apresId = 0;
+        int reprises = 0;
+        List<Long> ids;
+        do {
+            ids = transactionRepository.findIdsRecusEnAttente(avant, apresId, PageRequest.of(0, TAILLE_TRANCHE_REPRISE));
+            for (Long id : ids) {
+                if (enFile.contains(id)) {
+                    continue;
+                }
+                if (!soumettre(id)) {
+                    log.warn("Reprise des reçus interrompue, file pleine après {} reçus remis en file", reprises);
+                    return;
+                }
+                reprises++;
+            }
+            if (!ids.isEmpty()) {
+                apresId = ids.get(ids.size() - 1);
+            }
+        } while (ids.size() == TAILLE_TRANCHE_REPRISE);
+        if (reprises > 0) {
+            log.info("{} reçus EN_ATTENTE remis en file", reprises);
+        }
+    }
+
+    private void boucleWorker() {
+        while (actif) {
+            TacheRecu tache;
+            try {
+                tache = file.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            traiter(tache);
+        }
+    }
+
+    private void traiter(TacheRecu tache) {
+        try {
+            // Chargée sur la base principale (transfert tout juste validé), rendu hors transaction
+            Transaction transaction = transactionTemplate.execute(status -> transactionRepository.findById(tache.transactionId())
+                    .orElseThrow(() -> new IllegalStateException("Transaction " + tache.transactionId() + " introuvable")));
+            receiptService.getOrGenerateReceipt(transaction);
+            taille.decrementAndGet();
+            enFile.remove(tache.transactionId());
+        } catch (RuntimeException e) {
+            if (tache.tentative() >= tentativesMax) {
+                taille.decrementAndGet();
+                enregistrerEchec(tache, e);
+                enFile.remove(tache.transactionId());
+                return;
+            }
+            long delaiMs = backoffInitialMs << (tache.tentative() - 1);
+            log.debug("Reçu transaction {} : tentative {} échouée, nouvel essai dans {} ms",
+                    tache.transactionId(), tache.tentative(), delaiMs);
+            file.put(new TacheRecu(tache.transactionId(), tache.tentative() + 1,
+                    System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delaiMs)));
+        }
+    }
+
+    private void enregistrerEchec(TacheRecu tache, RuntimeException e) {
+        log.error("Reçu transaction {} abandonné après {} tentatives", tache.transactionId(), tache.tentative(), e);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                String message = String.valueOf(e.getMessage());
+                receiptEchecRepository.save(ReceiptEchec.builder()
+                        .transactionId(tache.transactionId())
+                        .tentatives(tache.tentative())
+                        .derniereErreur(message.length() > 1000 ? message.substring(0, 1000) : message)
+                        .build());
+                transactionRepository.findById(tache.transactionId())
+                        .ifPresent(t -> t.setStatutRecu(StatutRecu.ECHEC));
+            });
+        } catch (RuntimeException ex) {
+            log.error("Impossible d'enregistrer l'échec du reçu de la transaction {}", tache.transactionId(), ex);
+        }
+    }
+
+    public record TransfertEffectueEvent(Long transactionId) {
+    }
+
+    private record TacheRecu(Long transactionId, int tentative, long executionNanos) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(executionNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed autre) {
+            return Long.compare(executionNanos, ((TacheRecu) autre).executionNanos);
+        }
+    }
+}
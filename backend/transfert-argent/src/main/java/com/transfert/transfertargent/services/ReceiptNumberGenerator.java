@@ -0,0 +1,106 @@
+package com.transfert.transfertargent.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * ✅ Numéros de reçu uniques sans aller-retour en base : "RC" + 13 caractères Crockford base32
+ * d'un identifiant 63 bits = millisecondes depuis 2024 (41 bits) | nœud (10 bits) | séquence (12 bits).
+ * Sans verrou (CAS sur le dernier horodatage + séquence) et strictement croissant par nœud :
+ * si l'horloge recule, on continue depuis le dernier horodatage émis ; si la séquence déborde,
+ * on avance d'une milliseconde au lieu d'attendre. L'unicité entre nœuds suppose des
+ * recus.numero.noeud distincts ; la contrainte unique sur receipts.numero reste le garde-fou.
+ */
+@Component
+public class ReceiptNumberGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptNumberGenerator.class);
+
+    static final String PREFIXE = "RC";
+    static final int BITS_NOEUD = 10;
+    static final int BITS_SEQUENCE = 12;
+    static final int NOEUD_MAX = (1 << BITS_NOEUD) - 1;
+
+    private static final long EPOQUE = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final long MASQUE_SEQUENCE = (1L << BITS_SEQUENCE) - 1;
+    private static final int LONGUEUR = 13; // 63 bits / 5 bits par caractère, arrondi au-dessus
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private final int noeud;
+    private final LongSupplier horloge;
+
+    // (millisecondes depuis l'époque << BITS_SEQUENCE) | séquence du dernier identifiant émis
+    private final AtomicLong dernier = new AtomicLong();
+
+    @Autowired
+    public ReceiptNumberGenerator(@Value("${recus.numero.noeud:-1}") int noeud) {
+        this(noeud >= 0 ? noeud : noeudParDefaut(), System::currentTimeMillis);
+    }
+
+    ReceiptNumberGenerator(int noeud, LongSupplier horloge) {
+        if (noeud < 0 || noeud > NOEUD_MAX) {
+            throw new IllegalArgumentException("recus.numero.noeud doit être compris entre 0 et " + NOEUD_MAX);
+        }
+        this.noeud = noeud;
+        this.horloge = horloge;
+    }
+
+    /**
+     * Identifiant de ce nœud, qui nomme aussi ses segments de reçus (SegmentReceiptStore)
+     */
+    public int noeud() {
+        return noeud;
+    }
+
+    public String prochain() {
+        return encoder(prochainIdentifiant());
+    }
+
+    long prochainIdentifiant() {
+        long maintenant = (horloge.getAsLong() - EPOQUE) << BITS_SEQUENCE;
+        long precedent;
+        long suivant;
+        do {
+            precedent = dernier.get();
+            // Horloge en avance : séquence remise à zéro ; sinon (même milliseconde, recul ou
+            // débordement de séquence) on incrémente, ce qui reporte sur l'horodatage au besoin
+            suivant = maintenant > precedent ? maintenant : precedent + 1;
+        } while (!dernier.compareAndSet(precedent, suivant));
+
+        long millis = suivant >>> BITS_SEQUENCE;
+        return (millis << (BITS_NOEUD + BITS_SEQUENCE)) | ((long) noeud << BITS_SEQUENCE) | (suivant & MASQUE_SEQUENCE);
+    }
+
+    // Largeur fixe : l'ordre alphabétique des numéros suit l'ordre de génération
+    static String encoder(long identifiant) {
+        char[] caracteres = new char[PREFIXE.length() + LONGUEUR];
+        PREFIXE.getChars(0, PREFIXE.length(), caracteres, 0);
+        for (int i = caracteres.length - 1; i >= PREFIXE.length(); i--) {
+            caracteres[i] = CROCKFORD[(int) (identifiant & 31)];
+            identifiant >>>= 5;
+        }
+        return new String(caracteres);
+    }
+
+    // Sans configuration : dérivé de l'hôte et du processus, unicité entre nœuds non garantie
+    private static int noeudParDefaut() {
+        String hote;
+        try {
+            hote = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            hote = "inconnu";
+        }
+        int noeud = Math.floorMod((hote + "/" + ProcessHandle.current().pid()).hashCode(), NOEUD_MAX + 1);
+        log.warn("recus.numero.noeud non configuré, nœud {} dérivé de l'hôte ; à fixer par instance en production", noeud);
+        return noeud;
+    }
+}
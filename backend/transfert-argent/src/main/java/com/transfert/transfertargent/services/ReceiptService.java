@@ -1,30 +1,68 @@
 package com.transfert.transfertargent.services;
 
-import com.itextpdf.text.*;
-import com.itextpdf.text.pdf.PdfPCell;
-import com.itextpdf.text.pdf.PdfPTable;
-import com.itextpdf.text.pdf.PdfWriter;
+import com.transfert.transfertargent.models.Compte;
 import com.transfert.transfertargent.models.Receipt;
+import com.transfert.transfertargent.models.StatutRecu;
 import com.transfert.transfertargent.models.Transaction;
 import com.transfert.transfertargent.repositories.ReceiptRepository;
-import lombok.RequiredArgsConstructor;
+import com.transfert.transfertargent.repositories.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-
-import java.io.FileOutputStream;
-import java.nio.file.Files;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
-@RequiredArgsConstructor
 public class ReceiptService {
 
+    private static final Logger log = LoggerFactory.getLogger(ReceiptService.class);
+
     private final ReceiptRepository receiptRepository;
-    private static final String RECEIPTS_DIR = "receipts/";
+    private final TransactionRepository transactionRepository;
+    private final PdfGenerationService pdfGenerationService;
+    private final ReceiptNumberGenerator receiptNumberGenerator;
+    private final ReceiptStore receiptStore;
+    private final TransactionTemplate ecriture;
+    private static final long ATTENTE_MAX_SECONDES = 30;
+
+    // Rendus en cours par transaction : les demandes concurrentes attendent le premier
+    private final Map<Long, CompletableFuture<Receipt>> enCours = new ConcurrentHashMap<>();
+
+    public ReceiptService(ReceiptRepository receiptRepository,
+                          TransactionRepository transactionRepository,
+                          PdfGenerationService pdfGenerationService,
+                          ReceiptNumberGenerator receiptNumberGenerator,
+                          ReceiptStore receiptStore,
+                          PlatformTransactionManager transactionManager) {
+        this.receiptRepository = receiptRepository;
+        this.transactionRepository = transactionRepository;
+        this.pdfGenerationService = pdfGenerationService;
+        this.receiptNumberGenerator = receiptNumberGenerator;
+        this.receiptStore = receiptStore;
+        // Insertion et relecture en courtes transactions sur la base principale : la relecture voit
+        // le reçu que l'autre nœud vient de valider
+        this.ecriture = new TransactionTemplate(transactionManager);
+    }
 
     /**
      * Génère un reçu PDF pour une transaction
@@ -32,6 +70,7 @@ public class ReceiptService {
      * @return Le reçu généré
      */
     public Receipt generateReceipt(Transaction transaction) {
+        Receipt receipt = null;
         try {
             // ✅ VÉRIFICATION SI UN REÇU EXISTE DÉJÀ (NOUVEAU)
             Optional<Receipt> existingReceipt = receiptRepository.findByTransactionId(transaction.getId());
@@ -43,34 +82,37 @@ public class ReceiptService {
             // ✅ Validation de la transaction
             validateTransaction(transaction);
 
-            // ✅ Création du répertoire si inexistant
-            createReceiptsDirectory();
-
-            // ✅ Génération numéro unique
-            String numero = generateNumeroUnique();
+            // ✅ Génération numéro unique (sans requête : voir ReceiptNumberGenerator)
+            String numero = receiptNumberGenerator.prochain();
 
-            // ✅ Création du PDF
-            String filename = numero + ".pdf";
-            String filePath = RECEIPTS_DIR + filename;
+            // ✅ Création du PDF, rangé par le stockage configuré (segments ou fichier isolé)
+            receipt = createPdfReceipt(transaction, numero);
 
-            createPdfReceipt(transaction, filePath);
-
-            // ✅ Enregistrement du reçu en base
-            Receipt receipt = saveReceiptToDatabase(transaction, numero, filePath);
+            // ✅ Enregistrement du reçu en base, validé dès le retour
+            receipt = saveReceiptToDatabase(transaction.getId(), receipt);
 
             System.out.println("✅ Nouveau reçu généré avec succès: " + numero);
             return receipt;
 
+        } catch (DataIntegrityViolationException e) {
+            if (receipt != null) {
+                receiptStore.supprimer(receipt);
+            }
+            // ✅ Un autre nœud a enregistré le reçu de cette transaction en parallèle : le sien fait foi.
+            // Sans reçu pour la transaction, le conflit est ailleurs (numéro déjà pris) : c'est une erreur
+            Optional<Receipt> gagnant = ecriture.execute(status ->
+                    receiptRepository.findByTransactionId(transaction.getId()));
+            if (gagnant == null || gagnant.isEmpty()) {
+                log.error("Enregistrement du reçu de la transaction {} refusé", transaction.getId(), e);
+                throw new RuntimeException("Erreur génération reçu: " + e.getMessage());
+            }
+            return gagnant.get();
+
         } catch (IllegalArgumentException e) {
             // ✅ Erreur de validation métier
             System.err.println("❌ Erreur validation reçu: " + e.getMessage());
             throw new RuntimeException("Erreur validation: " + e.getMessage());
 
-        } catch (DocumentException e) {
-            // ✅ Erreur de génération PDF
-            System.err.println("❌ Erreur génération PDF: " + e.getMessage());
-            throw new RuntimeException("Erreur création PDF: " + e.getMessage());
-
         } catch (Exception e) {
             // ✅ Erreur générale
             System.err.println("❌ Erreur génération reçu: " + e.getMessage());
@@ -79,9 +121,17 @@ public class ReceiptService {
     }
 
     /**
-     * Récupère ou génère un reçu PDF pour une transaction
+     * Récupère ou génère un reçu PDF pour une transaction. Les demandes simultanées pour une même
+     * transaction (double clic, application et web) attendent le rendu en cours et reçoivent le
+     * même reçu : un seul PDF par transaction.
+     * À appeler hors transaction, avec une transaction déjà chargée : ni l'attente ni le rendu ne
+     * retiennent de connexion du pool, seul l'enregistrement en prend une, brièvement.
      */
     public Receipt getOrGenerateReceipt(Transaction transaction) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Reçu à générer hors transaction (connexion retenue pendant le rendu)");
+        }
+
         // ✅ Vérifie si un reçu existe déjà
         Optional<Receipt> existingReceipt = receiptRepository.findByTransactionId(transaction.getId());
         if (existingReceipt.isPresent()) {
@@ -89,9 +139,52 @@ public class ReceiptService {
             return existingReceipt.get();
         }
 
+        // ✅ Un rendu est déjà en cours pour cette transaction : on attend son résultat
+        CompletableFuture<Receipt> future = new CompletableFuture<>();
+        CompletableFuture<Receipt> existante = enCours.putIfAbsent(transaction.getId(), future);
+        if (existante != null) {
+            return attendre(existante);
+        }
+
         // ✅ Génère un nouveau reçu si aucun n'existe
         System.out.println("🆕 Aucun reçu existant, génération d'un nouveau");
-        return generateReceipt(transaction);
+        try {
+            Receipt receipt = generateReceipt(transaction);
+            terminer(transaction.getId(), future, receipt, null);
+            return receipt;
+        } catch (RuntimeException e) {
+            terminer(transaction.getId(), future, null, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Libère les demandes en attente : le reçu est déjà validé dans sa propre transaction,
+     * visible des autres quelle que soit l'issue de celle de l'appelant.
+     */
+    private void terminer(Long transactionId, CompletableFuture<Receipt> future, Receipt receipt, RuntimeException erreur) {
+        if (erreur == null) {
+            future.complete(receipt);
+        } else {
+            future.completeExceptionally(erreur);
+        }
+        enCours.remove(transactionId, future);
+    }
+
+    private Receipt attendre(CompletableFuture<Receipt> existante) {
+        try {
+            return existante.get(ATTENTE_MAX_SECONDES, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Le reçu de cette transaction est toujours en cours de génération");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Attente du reçu interrompue");
+        }
     }
 
     /**
@@ -110,237 +203,113 @@ public class ReceiptService {
             throw new IllegalArgumentException("Transaction doit avoir un expéditeur et un destinataire");
         }
 
-        if (transaction.getMontant() == null || transaction.getMontant() <= 0) {
+        if (transaction.getMontant() <= 0) {
             throw new IllegalArgumentException("Montant de transaction invalide");
         }
     }
 
     /**
-     * Crée le répertoire de stockage des reçus
-     */
-    private void createReceiptsDirectory() throws Exception {
-        Path dirPath = Paths.get(RECEIPTS_DIR);
-        if (!Files.exists(dirPath)) {
-            Files.createDirectories(dirPath);
-        }
-
-        // ✅ Vérification des permissions d'écriture
-        if (!Files.isWritable(dirPath)) {
-            throw new Exception("Permissions insuffisantes pour écrire dans le dossier receipts/");
-        }
-    }
-
-    /**
-     * Génère un numéro de reçu unique
-     */
-    private String generateNumeroUnique() {
-        String numero;
-        int attempts = 0;
-        final int MAX_ATTEMPTS = 10;
-
-        do {
-            if (attempts++ >= MAX_ATTEMPTS) {
-                throw new RuntimeException("Impossible de générer un numéro de reçu unique");
-            }
-
-            numero = "RC" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"))
-                    + UUID.randomUUID().toString().substring(0, 6).toUpperCase();
-
-        } while (receiptRepository.existsByNumero(numero));
-
-        return numero;
-    }
-
-    /**
-     * Crée le PDF du reçu
-     */
-    private void createPdfReceipt(Transaction transaction, String filePath) throws Exception {
-        Document document = new Document();
-        FileOutputStream fos = null;
-
-        try {
-            fos = new FileOutputStream(filePath);
-            PdfWriter.getInstance(document, fos);
-            document.open();
-
-            // ✅ Titre du document
-            addTitle(document);
-
-            // ✅ Informations de la transaction
-            addTransactionDetails(document, transaction);
-
-            // ✅ Informations des parties
-            addPartiesInfo(document, transaction);
-
-            // ✅ Footer
-            addFooter(document);
-
-        } finally {
-            // ✅ Fermeture sécurisée des ressources
-            if (document.isOpen()) {
-                document.close();
-            }
-            if (fos != null) {
-                fos.close();
-            }
-        }
-    }
-
-    /**
-     * Ajoute le titre au PDF
+     * Crée le PDF du reçu (rendu délégué à PdfGenerationService) et le confie au stockage
+     *
+     * @return le reçu, avec son emplacement et l'empreinte SHA-256 du PDF
      */
-    private void addTitle(Document document) throws DocumentException {
-        Font titleFont = new Font(Font.FontFamily.HELVETICA, 18, Font.BOLD, BaseColor.BLUE);
-        Paragraph title = new Paragraph("REÇU DE TRANSFERT D'ARGENT", titleFont);
-        title.setAlignment(Element.ALIGN_CENTER);
-        title.setSpacingAfter(20);
-        document.add(title);
-    }
-
-    /**
-     * Ajoute les détails de la transaction au PDF
-     */
-    private void addTransactionDetails(Document document, Transaction transaction) throws DocumentException {
-        Font boldFont = new Font(Font.FontFamily.HELVETICA, 12, Font.BOLD);
-        Font normalFont = new Font(Font.FontFamily.HELVETICA, 12);
-
-        PdfPTable table = new PdfPTable(2);
-        table.setWidthPercentage(100);
-        table.setSpacingBefore(10);
-        table.setSpacingAfter(20);
-
-        addTableRow(table, "Numéro Transaction:", transaction.getId().toString(), boldFont, normalFont);
-        addTableRow(table, "Date Transaction:",
-                transaction.getDateTransaction().format(DateTimeFormatter.ofPattern("dd/MM/yyyy à HH:mm")),
-                boldFont, normalFont);
-        addTableRow(table, "Montant Transféré:", String.format("%,.2f FCFA", transaction.getMontant()), boldFont, normalFont);
-        addTableRow(table, "Frais (1%):", String.format("%,.2f FCFA", transaction.getFrais()), boldFont, normalFont);
-        addTableRow(table, "Total Débité:", String.format("%,.2f FCFA", transaction.getMontant() + transaction.getFrais()), boldFont, normalFont);
-        addTableRow(table, "Statut:", transaction.getStatut(), boldFont, normalFont);
-
-        document.add(table);
-    }
-
-    /**
-     * Ajoute les informations des parties au PDF
-     */
-    private void addPartiesInfo(Document document, Transaction transaction) throws DocumentException {
-        Font headerFont = new Font(Font.FontFamily.HELVETICA, 14, Font.BOLD, BaseColor.DARK_GRAY);
-        Font normalFont = new Font(Font.FontFamily.HELVETICA, 12);
-
-        // ✅ Section Expéditeur
-        Paragraph expediteurHeader = new Paragraph("EXPÉDITEUR", headerFont);
-        expediteurHeader.setSpacingAfter(10);
-        document.add(expediteurHeader);
-
-        PdfPTable expediteurTable = new PdfPTable(2);
-        expediteurTable.setWidthPercentage(100);
-        expediteurTable.setSpacingAfter(20);
-
-        addTableRow(expediteurTable, "Nom:",
-                transaction.getCompteSource().getUser().getPrenom() + " " +
-                        transaction.getCompteSource().getUser().getNom(),
-                normalFont, normalFont);
-        addTableRow(expediteurTable, "Téléphone:",
-                transaction.getCompteSource().getNumeroTelephone(),
-                normalFont, normalFont);
-
-        document.add(expediteurTable);
-
-        // ✅ Section Destinataire
-        Paragraph destinataireHeader = new Paragraph("DESTINATAIRE", headerFont);
-        destinataireHeader.setSpacingAfter(10);
-        document.add(destinataireHeader);
-
-        PdfPTable destinataireTable = new PdfPTable(2);
-        destinataireTable.setWidthPercentage(100);
-
-        addTableRow(destinataireTable, "Nom:",
-                transaction.getCompteDestination().getUser().getPrenom() + " " +
-                        transaction.getCompteDestination().getUser().getNom(),
-                normalFont, normalFont);
-        addTableRow(destinataireTable, "Téléphone:",
-                transaction.getCompteDestination().getNumeroTelephone(),
-                normalFont, normalFont);
-
-        document.add(destinataireTable);
-    }
-
-    /**
-     * Ajoute le footer au PDF
-     */
-    private void addFooter(Document document) throws DocumentException {
-        Font footerFont = new Font(Font.FontFamily.HELVETICA, 10, Font.ITALIC);
-        Font smallFont = new Font(Font.FontFamily.HELVETICA, 8);
-
-        Paragraph footer = new Paragraph("\n\n", footerFont);
-        footer.add(new Chunk("Ce reçu est une preuve légale de votre transaction. ", footerFont));
-        footer.add(new Chunk("Conservez-le pour vos archives.", footerFont));
-        footer.setAlignment(Element.ALIGN_CENTER);
-        document.add(footer);
-
-        Paragraph generatedInfo = new Paragraph(
-                "Généré le " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy à HH:mm")),
-                smallFont
-        );
-        generatedInfo.setAlignment(Element.ALIGN_CENTER);
-        document.add(generatedInfo);
-    }
-
-    /**
-     * Ajoute une ligne au tableau PDF
-     */
-    private void addTableRow(PdfPTable table, String label, String value, Font labelFont, Font valueFont) {
-        PdfPCell labelCell = new PdfPCell(new Phrase(label, labelFont));
-        labelCell.setBorder(PdfPCell.NO_BORDER);
-        labelCell.setPadding(5);
-
-        PdfPCell valueCell = new PdfPCell(new Phrase(value, valueFont));
-        valueCell.setBorder(PdfPCell.NO_BORDER);
-        valueCell.setPadding(5);
-
-        table.addCell(labelCell);
-        table.addCell(valueCell);
-    }
-
-    /**
-     * Sauvegarde le reçu en base de données
-     */
-    private Receipt saveReceiptToDatabase(Transaction transaction, String numero, String filePath) {
+    private Receipt createPdfReceipt(Transaction transaction, String numero) throws IOException {
+        byte[] pdf = pdfGenerationService.generateReceiptPdf(transaction);
         Receipt receipt = Receipt.builder()
                 .numero(numero)
-                .urlFichier(filePath)
+                .empreinte(HexFormat.of().formatHex(sha256().digest(pdf)))
+                .taille((long) pdf.length)
                 .transaction(transaction)
                 .build();
+        receiptStore.enregistrer(receipt, pdf);
+        return receipt;
+    }
 
-        Receipt receiptSauvegarde = receiptRepository.save(receipt);
-
-        // ✅ Mise à jour de la transaction avec le reçu
-        transaction.setReceipt(receiptSauvegarde);
-
-        return receiptSauvegarde;
+    /**
+     * Sauvegarde le reçu en base de données, dans une courte transaction validée au retour
+     */
+    private Receipt saveReceiptToDatabase(Long transactionId, Receipt receipt) {
+        return ecriture.execute(status -> {
+            // Flush immédiat : un doublon (transaction_id ou numero unique) est détecté ici et non au commit
+            Receipt receiptSauvegarde = receiptRepository.saveAndFlush(receipt);
+
+            // ✅ Mise à jour de la transaction avec le reçu
+            transactionRepository.findById(transactionId).ifPresent(t -> {
+                t.setReceipt(receiptSauvegarde);
+                t.setStatutRecu(StatutRecu.GENERE);
+            });
+
+            return receiptSauvegarde;
+        });
     }
 
     /**
      * Récupère un reçu par son numéro
      */
-    public Receipt getReceiptByNumero(String numero) {
+    public Receipt getReceiptByNumero(String numero, String telephone) {
         return receiptRepository.findByNumero(numero)
+                .filter(receipt -> estPartie(receipt.getTransaction(), telephone))
                 .orElseThrow(() -> new RuntimeException("Reçu non trouvé avec le numéro: " + numero));
     }
 
     /**
      * Récupère un reçu par l'ID de transaction
      */
-    public Receipt getReceiptByTransactionId(Long transactionId) {
+    public Receipt getReceiptByTransactionId(Long transactionId, String telephone) {
         return receiptRepository.findByTransactionId(transactionId)
+                .filter(receipt -> estPartie(receipt.getTransaction(), telephone))
                 .orElseThrow(() -> new RuntimeException("Aucun reçu trouvé pour la transaction ID: " + transactionId));
     }
 
+    // ✅ Seuls l'émetteur et le destinataire accèdent au reçu (numéros devinables) ; sinon « non trouvé »
+    private static boolean estPartie(Transaction transaction, String telephone) {
+        return transaction != null
+                && (telephone.equals(numeroDe(transaction.getCompteSource()))
+                || telephone.equals(numeroDe(transaction.getCompteDestination())));
+    }
+
+    private static String numeroDe(Compte compte) {
+        return compte == null ? null : compte.getNumeroTelephone();
+    }
+
     /**
      * Vérifie si un reçu existe pour une transaction
      */
     public boolean receiptExistsForTransaction(Long transactionId) {
         return receiptRepository.findByTransactionId(transactionId).isPresent();
     }
+
+    /**
+     * Complète l'empreinte et la taille d'un reçu généré avant leur introduction (lecture unique du
+     * fichier isolé : les reçus rangés en segments les ont toujours)
+     */
+    public Receipt assurerEmpreinte(Receipt receipt) {
+        if (receipt.getEmpreinte() != null && receipt.getTaille() != null) {
+            return receipt;
+        }
+        Path filePath = Paths.get(receipt.getUrlFichier());
+        try (FileChannel canal = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            MessageDigest digest = sha256();
+            ByteBuffer tampon = ByteBuffer.allocateDirect(64 * 1024);
+            while (canal.read(tampon) >= 0) {
+                tampon.flip();
+                digest.update(tampon);
+                tampon.clear();
+            }
+            receipt.setEmpreinte(HexFormat.of().formatHex(digest.digest()));
+            receipt.setTaille(canal.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lecture du reçu impossible: " + receipt.getNumero(), e);
+        }
+        receiptRepository.completerEmpreinte(receipt.getId(), receipt.getEmpreinte(), receipt.getTaille());
+        return receipt;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.transfert.transfertargent.services;
+
+import com.transfert.transfertargent.models.Receipt;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Stockage des PDF de reçus. Implémentations : SegmentReceiptStore (par défaut, PDF ajoutés
+ * bout à bout dans des segments) et FichierReceiptStore (un fichier par reçu,
+ * recus.stockage=fichiers). L'emplacement est porté par le reçu lui-même.
+ */
+public interface ReceiptStore {
+
+    /**
+     * Écrit le PDF et renseigne son emplacement sur le reçu (pas encore enregistré en base)
+     */
+    void enregistrer(Receipt receipt, byte[] pdf) throws IOException;
+
+    /**
+     * Zone de fichier contenant le PDF du reçu (envoi par sendfile), vide si introuvable
+     */
+    Optional<Zone> localiser(Receipt receipt);
+
+    /**
+     * Copie les octets [debut, debut + longueur[ du PDF sur la sortie
+     */
+    void copier(Receipt receipt, long debut, long longueur, WritableByteChannel sortie) throws IOException;
+
+    /**
+     * Libère le PDF d'un reçu qui ne sera pas enregistré (doublon)
+     */
+    void supprimer(Receipt receipt);
+
+    record Zone(Path fichier, long position, long taille) {
+    }
+}
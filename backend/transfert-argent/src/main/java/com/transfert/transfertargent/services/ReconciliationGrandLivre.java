@@ -0,0 +1,155 @@
+package com.transfert.transfertargent.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Rapprochement Compte.solde / grand livre : pour chaque compte, le solde doit être égal à son
+ * dernier instantané plus les écritures suivantes. Les comptes sont découpés en plages d'ids
+ * vérifiées en parallèle (threads virtuels), chacune dans une transaction en lecture seule.
+ */
+@Component
+public class ReconciliationGrandLivre {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconciliationGrandLivre.class);
+
+    private static final int ECARTS_MAX = 20;
+
+    // Solde et solde d'après le grand livre de chaque compte de la plage
+    private static final String SQL_PLAGE = """
+            SELECT c.id, COALESCE(c.solde, 0),
+                   COALESCE(s.solde, 0) + COALESCE((
+                       SELECT SUM(CASE WHEN e.sens = 'CREDIT' THEN e.montant ELSE -e.montant END)
+                       FROM ecritures_comptables e
+                       WHERE e.compte_id = c.id
+                         AND e.date_ecriture >= COALESCE(s.date_instantane, TIMESTAMP '1970-01-01 00:00:00')), 0)
+            FROM comptes c
+            LEFT JOIN soldes_instantanes s ON s.compte_id = c.id AND s.date_instantane = (
+                SELECT MAX(s2.date_instantane) FROM soldes_instantanes s2 WHERE s2.compte_id = c.id)
+            WHERE c.id BETWEEN ? AND ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate lecture;
+    private final int partitions;
+
+    public ReconciliationGrandLivre(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${grand-livre.reconciliation.partitions:8}") int partitions) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.lecture = new TransactionTemplate(transactionManager);
+        // Chaque plage est lue sur un instantané cohérent : solde et écritures d'un même transfert ensemble
+        this.lecture.setReadOnly(true);
+        this.lecture.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.partitions = Math.max(1, partitions);
+    }
+
+    public Resultat reconcilier() {
+        long debut = System.nanoTime();
+        Long[] bornes = jdbcTemplate.queryForObject("SELECT MIN(id), MAX(id) FROM comptes",
+                (rs, i) -> new Long[]{rs.getObject(1, Long.class), rs.getObject(2, Long.class)});
+        if (bornes == null || bornes[0] == null) {
+            return new Resultat(0, 0, 0, 0, List.of(), 0);
+        }
+
+        long min = bornes[0];
+        long pas = Math.max(1, (bornes[1] - min) / partitions + 1);
+        List<Future<Resultat>> futures = new ArrayList<>(partitions);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long borne = min; borne <= bornes[1]; borne += pas) {
+                long de = borne;
+                long a = Math.min(bornes[1], borne + pas - 1);
+                futures.add(executor.submit(() -> lecture.execute(status -> plage(de, a))));
+            }
+        }
+
+        int comptes = 0;
+        int nombreEcarts = 0;
+        long totalSoldes = 0;
+        long totalGrandLivre = 0;
+        List<Ecart> ecarts = new ArrayList<>();
+        for (Future<Resultat> future : futures) {
+            Resultat r = resultat(future);
+            comptes += r.comptes();
+            nombreEcarts += r.nombreEcarts();
+            totalSoldes += r.totalSoldes();
+            totalGrandLivre += r.totalGrandLivre();
+            ecarts.addAll(r.ecarts());
+        }
+        ecarts.sort(Comparator.comparingLong((Ecart e) -> Math.abs(e.solde() - e.grandLivre())).reversed());
+        return new Resultat(comptes, totalSoldes, totalGrandLivre, nombreEcarts,
+                List.copyOf(ecarts.subList(0, Math.min(ECARTS_MAX, ecarts.size()))),
+                (System.nanoTime() - debut) / 1_000_000);
+    }
+
+    // Contrôle quotidien : les écarts sont signalés dans les logs
+    @Scheduled(cron = "${grand-livre.reconciliation.cron:0 30 3 * * *}")
+    public void controler() {
+        Resultat resultat = reconcilier();
+        if (resultat.nombreEcarts() > 0) {
+            log.error("Grand livre : {} compte(s) en écart sur {} (ex. {})",
+                    resultat.nombreEcarts(), resultat.comptes(), resultat.ecarts());
+        } else {
+            log.info("Grand livre rapproché : {} comptes, total {} en {} ms",
+                    resultat.comptes(), resultat.totalSoldes(), resultat.dureeMs());
+        }
+    }
+
+    private Resultat plage(long de, long a) {
+        List<Ecart> ecarts = new ArrayList<>();
+        int[] nombres = new int[2];
+        long[] totaux = new long[2];
+        jdbcTemplate.query(SQL_PLAGE, rs -> {
+            long compteId = rs.getLong(1);
+            long solde = rs.getLong(2);
+            long grandLivre = rs.getLong(3);
+            nombres[0]++;
+            totaux[0] += solde;
+            totaux[1] += grandLivre;
+            if (solde != grandLivre) {
+                nombres[1]++;
+                if (ecarts.size() < ECARTS_MAX) {
+                    ecarts.add(new Ecart(compteId, solde, grandLivre));
+                }
+            }
+        }, de, a);
+        return new Resultat(nombres[0], totaux[0], totaux[1], nombres[1], ecarts, 0);
+    }
+
+    private static Resultat resultat(Future<Resultat> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Rapprochement du grand livre interrompu");
+        }
+    }
+
+    // Soldes en centimes : l'égalité est exacte
+    public record Resultat(int comptes, long totalSoldes, long totalGrandLivre,
+                           int nombreEcarts, List<Ecart> ecarts, long dureeMs) {
+    }
+
+    public record Ecart(long compteId, long solde, long grandLivre) {
+    }
+}
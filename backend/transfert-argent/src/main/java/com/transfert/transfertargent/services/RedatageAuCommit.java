@@ -0,0 +1,98 @@
+package com.transfert.transfertargent.services;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Redatage au commit des lignes insérées par une transaction longue (traitement en lot, verrou attendu).
+ * Un agrégat tenu derrière un watermark (instantanés du grand livre, rollups) ne prend que les lignes
+ * datées d'avant maintenant - délai de sécurité : une ligne datée à l'insertion mais validée après son
+ * passage ne serait jamais comptée. Si la première ligne suivie a plus de la moitié de ce délai juste
+ * avant le commit, toutes prennent la date de ce moment.
+ * UPDATE en JDBC, comme CompteRepositoryCustomImpl : une requête native d'Hibernate viderait tout le
+ * cache de second niveau.
+ */
+final class RedatageAuCommit {
+
+    private static final int TAILLE_TRANCHE = 1_000;
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+    private final String colonneDate;
+    private final Duration ageMaximal;
+
+    RedatageAuCommit(EntityManager entityManager, JdbcTemplate jdbcTemplate,
+                     String table, String colonneDate, Duration delaiSecurite) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+        this.colonneDate = colonneDate;
+        this.ageMaximal = delaiSecurite.dividedBy(2);
+    }
+
+    /**
+     * Ligne insérée (identifiant déjà attribué par la séquence) dans la transaction en cours ;
+     * sans transaction, rien à redater
+     */
+    void suivre(Long id, LocalDateTime date) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        // Synchronisations suspendues avec leur transaction : une REQUIRES_NEW suit ses propres lignes
+        for (TransactionSynchronization synchronisation : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronisation instanceof Lignes lignes && lignes.redatage() == this) {
+                lignes.ids.add(id);
+                return;
+            }
+        }
+        Lignes lignes = new Lignes(date);
+        lignes.ids.add(id);
+        TransactionSynchronizationManager.registerSynchronization(lignes);
+    }
+
+    private void redater(Lignes lignes) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        if (Duration.between(lignes.premiere, maintenant).compareTo(ageMaximal) < 0) {
+            return;
+        }
+        // Insertions encore en attente envoyées avant l'UPDATE
+        entityManager.flush();
+        for (int debut = 0; debut < lignes.ids.size(); debut += TAILLE_TRANCHE) {
+            List<Long> tranche = lignes.ids.subList(debut, Math.min(debut + TAILLE_TRANCHE, lignes.ids.size()));
+            Object[] parametres = new Object[tranche.size() + 1];
+            parametres[0] = maintenant;
+            for (int i = 0; i < tranche.size(); i++) {
+                parametres[i + 1] = tranche.get(i);
+            }
+            jdbcTemplate.update("UPDATE " + table + " SET " + colonneDate + " = ? WHERE id IN ("
+                    + String.join(", ", Collections.nCopies(tranche.size(), "?")) + ")", parametres);
+        }
+    }
+
+    private final class Lignes implements TransactionSynchronization {
+        private final LocalDateTime premiere;
+        private final List<Long> ids = new ArrayList<>();
+
+        private Lignes(LocalDateTime premiere) {
+            this.premiere = premiere;
+        }
+
+        private RedatageAuCommit redatage() {
+            return RedatageAuCommit.this;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            redater(this);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.transfert.transfertargent.services;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.Transaction;
+import com.transfert.transfertargent.repositories.CompteRepository;
+import com.transfert.transfertargent.repositories.TransactionRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * ✅ Relevé de compte exporté en flux (CSV ou NDJSON) : les transactions sont lues par blocs
+ * sur un curseur, écrites puis détachées une à une. La mémoire reste constante quelle que
+ * soit la taille de l'historique.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReleveService {
+
+    // Entités libérées de la session (comptes des correspondants compris) toutes les N lignes
+    private static final int LIGNES_PAR_BLOC = Integer.parseInt(TransactionRepository.TAILLE_FETCH_EXPORT);
+    private static final int TAILLE_TAMPON = 64 * 1024;
+
+    private final TransactionRepository transactionRepository;
+    private final CompteRepository compteRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String typeContenu;
+        private final String extension;
+
+        Format(String typeContenu, String extension) {
+            this.typeContenu = typeContenu;
+            this.extension = extension;
+        }
+
+        public String getTypeContenu() {
+            return typeContenu;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * @throws IllegalArgumentException si le format n'est ni csv ni ndjson
+         */
+        public static Format depuis(String valeur) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(valeur)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Format d'export inconnu: " + valeur);
+        }
+    }
+
+    /**
+     * Écrit sur la sortie les transactions du compte de [debut, fin[, en ordre chronologique.
+     * La sortie est vidée mais pas fermée.
+     *
+     * @return nombre de transactions écrites
+     */
+    @Transactional(readOnly = true)
+    public long exporter(String telephone, Format format, LocalDateTime debut, LocalDateTime fin,
+                         OutputStream sortie) throws IOException {
+        Long compteId = compteRepository.findIdByNumeroTelephone(telephone).orElse(null);
+        Ecrivain ecrivain = format == Format.CSV ? new EcrivainCsv(sortie) : new EcrivainNdjson(sortie);
+        long lignes = 0;
+        if (compteId != null) {
+            // Fusion des deux flux déjà triés : chaque parcours reste sur son index, sans OR ni tri global
+            try (Stream<Transaction> envoyees = transactionRepository.streamEnvoyees(compteId, debut, fin);
+                 Stream<Transaction> recues = transactionRepository.streamRecues(compteId, debut, fin)) {
+                Iterator<Transaction> itEnvoyees = envoyees.iterator();
+                Iterator<Transaction> itRecues = recues.iterator();
+                Transaction envoyee = suivante(itEnvoyees);
+                Transaction recue = suivante(itRecues);
+                while (envoyee != null || recue != null) {
+                    Transaction transaction;
+                    if (recue == null || (envoyee != null && avant(envoyee, recue))) {
+                        transaction = envoyee;
+                        envoyee = suivante(itEnvoyees);
+                    } else {
+                        transaction = recue;
+                        recue = suivante(itRecues);
+                    }
+                    ecrivain.ecrire(transaction, telephone);
+                    entityManager.detach(transaction);
+                    if (++lignes % LIGNES_PAR_BLOC == 0) {
+                        // Les têtes de flux déjà lues ont leurs comptes joints : elles restent utilisables
+                        entityManager.clear();
+                        ecrivain.vider();
+                    }
+                }
+            }
+        }
+        ecrivain.terminer();
+        return lignes;
+    }
+
+    private static Transaction suivante(Iterator<Transaction> iterateur) {
+        return iterateur.hasNext() ? iterateur.next() : null;
+    }
+
+    private static boolean avant(Transaction a, Transaction b) {
+        int comparaison = a.getDateTransaction().compareTo(b.getDateTransaction());
+        return comparaison < 0 || (comparaison == 0 && a.getId() < b.getId());
+    }
+
+    private static String numero(Compte compte) {
+        return compte != null ? compte.getNumeroTelephone() : null;
+    }
+
+    private static String type(Transaction transaction, String telephone) {
+        return telephone.equals(numero(transaction.getCompteSource())) ? "ENVOI" : "RECEPTION";
+    }
+
+    private static BigDecimal decimal(long centimes) {
+        return BigDecimal.valueOf(centimes, 2);
+    }
+
+    private interface Ecrivain {
+        void ecrire(Transaction transaction, String telephone) throws IOException;
+
+        void vider() throws IOException;
+
+        void terminer() throws IOException;
+    }
+
+    private static final class EcrivainCsv implements Ecrivain {
+
+        private final Writer writer;
+
+        EcrivainCsv(OutputStream sortie) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(sortie, StandardCharsets.UTF_8), TAILLE_TAMPON);
+            writer.write("id,date,type,montant,frais,statut,source,destination,recu\n");
+        }
+
+        @Override
+        public void ecrire(Transaction t, String telephone) throws IOException {
+            writer.write(String.valueOf(t.getId()));
+            writer.write(',');
+            writer.write(String.valueOf(t.getDateTransaction()));
+            writer.write(',');
+            writer.write(type(t, telephone));
+            writer.write(',');
+            writer.write(decimal(t.getMontant()).toPlainString());
+            writer.write(',');
+            writer.write(decimal(t.getFrais()).toPlainString());
+            writer.write(',');
+            champ(t.getStatut());
+            writer.write(',');
+            champ(numero(t.getCompteSource()));
+            writer.write(',');
+            champ(numero(t.getCompteDestination()));
+            writer.write(',');
+            champ(t.getReceipt() != null ? t.getReceipt().getNumero() : null);
+            writer.write('\n');
+        }
+
+        // Guillemets seulement si nécessaire (RFC 4180)
+        private void champ(String valeur) throws IOException {
+            if (valeur == null) {
+                return;
+            }
+            if (valeur.indexOf(',') < 0 && valeur.indexOf('"') < 0 && valeur.indexOf('\n') < 0 && valeur.indexOf('\r') < 0) {
+                writer.write(valeur);
+                return;
+            }
+            writer.write('"');
+            writer.write(valeur.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void vider() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void terminer() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private final class EcrivainNdjson implements Ecrivain {
+
+        private final JsonGenerator generateur;
+
+        EcrivainNdjson(OutputStream sortie) throws IOException {
+            this.generateur = objectMapper.getFactory().createGenerator(sortie, JsonEncoding.UTF8);
+            generateur.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generateur.setRootValueSeparator(new SerializedString("\n"));
+        }
+
+        @Override
+        public void ecrire(Transaction t, String telephone) throws IOException {
+            generateur.writeStartObject();
+            generateur.writeNumberField("id", t.getId());
+            generateur.writeStringField("date", String.valueOf(t.getDateTransaction()));
+            generateur.writeStringField("type", type(t, telephone));
+            generateur.writeNumberField("montant", decimal(t.getMontant()));
+            generateur.writeNumberField("frais", decimal(t.getFrais()));
+            generateur.writeStringField("statut", t.getStatut());
+            generateur.writeStringField("source", numero(t.getCompteSource()));
+            generateur.writeStringField("destination", numero(t.getCompteDestination()));
+            generateur.writeStringField("recu", t.getReceipt() != null ? t.getReceipt().getNumero() : null);
+            generateur.writeEndObject();
+        }
+
+        @Override
+        public void vider() throws IOException {
+            generateur.flush();
+        }
+
+        @Override
+        public void terminer() throws IOException {
+            // Chaque objet est terminé par un saut de ligne, le dernier compris
+            if (generateur.getOutputContext().getEntryCount() > 0) {
+                generateur.writeRaw('\n');
+            }
+            generateur.flush();
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.transfert.transfertargent.services;
+
+import com.transfert.transfertargent.models.Receipt;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * ✅ PDF des reçus ajoutés bout à bout dans des segments d'au plus recus.segments.taille-max :
+ * quelques fichiers au lieu d'un par reçu. L'index est sur le reçu (segment, positionSegment,
+ * taille, empreinte SHA-256) ; les octets ne sont jamais réécrits en place. Un seul segment
+ * actif reçoit les ajouts (sous verrou) ; les lectures se font par position dans une projection
+ * mémoire (mmap) du segment, ou par sendfile sur la zone.
+ * Les reçus sans segment (antérieurs) sont lus comme fichiers isolés.
+ * La place perdue (doublons, reçus déplacés) est récupérée par CompactageSegmentsRecus.
+ *
+ * Un seul écrivain par segment : chaque nœud (recus.numero.noeud, voir ReceiptNumberGenerator)
+ * n'écrit, ne compacte et ne supprime que les siens, segment-{noeud}-{numero}.dat, le numéro
+ * de segment enregistré sur le reçu valant noeud * SEGMENTS_PAR_NOEUD + numero. Tous les nœuds
+ * peuvent lire tous les segments d'un dossier partagé. Le segment actif est verrouillé
+ * (FileChannel.tryLock) : deux processus configurés avec le même nœud échouent au lieu
+ * d'écrire au même endroit. Le nœud doit donc être fixé par instance et stable d'un démarrage
+ * à l'autre, sans quoi les segments d'avant le redémarrage ne sont plus compactés.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "recus.stockage", havingValue = "segments", matchIfMissing = true)
+public class SegmentReceiptStore implements ReceiptStore {
+
+    static final long SEGMENTS_PAR_NOEUD = 1_000_000L;
+
+    private static final Pattern NOM_SEGMENT = Pattern.compile("segment-(\\d{4})-(\\d{6})\\.dat");
+
+    private final Path dossier;
+    private final long tailleMax;
+    private final int noeud;
+    private final FichierReceiptStore fichiers;
+
+    // Segment actif et son canal d'écriture (verrouillé), sous verrou (-1 : pas encore déterminé)
+    private final ReentrantLock ecriture = new ReentrantLock();
+    private long actif = -1;
+    private FileChannel canalActif;
+
+    // Projections en lecture seule, refaites quand le segment actif a grandi au-delà
+    private final Map<Long, MappedByteBuffer> projections = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SegmentReceiptStore(@Value("${recus.segments.dossier:receipts/segments}") String dossier,
+                               @Value("${recus.segments.taille-max:64MB}") DataSize tailleMax,
+                               ReceiptNumberGenerator receiptNumberGenerator,
+                               FichierReceiptStore fichiers) {
+        this(dossier, tailleMax, receiptNumberGenerator.noeud(), fichiers);
+    }
+
+    SegmentReceiptStore(String dossier, DataSize tailleMax, int noeud, FichierReceiptStore fichiers) {
+        this.dossier = Paths.get(dossier);
+        // Positions des projections en int : un segment tient sous 2 Go
+        this.tailleMax = Math.min(tailleMax.toBytes(), Integer.MAX_VALUE);
+        this.noeud = noeud;
+        this.fichiers = fichiers;
+    }
+
+    @PreDestroy
+    void fermer() throws IOException {
+        ecriture.lock();
+        try {
+            if (canalActif != null) {
+                // Fermer le canal libère aussi le verrou du fichier
+                canalActif.close();
+                canalActif = null;
+            }
+        } finally {
+            ecriture.unlock();
+        }
+    }
+
+    @Override
+    public void enregistrer(Receipt receipt, byte[] pdf) throws IOException {
+        if (pdf.length > tailleMax) {
+            throw new IOException("Reçu plus grand qu'un segment: " + pdf.length + " octets");
+        }
+        ecriture.lock();
+        try {
+            FileChannel canal = canalActif();
+            long position = canal.size();
+            if (position > 0 && position + pdf.length > tailleMax) {
+                canal = rouler();
+                position = 0;
+            }
+            ByteBuffer tampon = ByteBuffer.wrap(pdf);
+            while (tampon.hasRemaining()) {
+                canal.write(tampon, position + tampon.position());
+            }
+            // Sur disque avant que le reçu ne soit enregistré en base
+            canal.force(false);
+            receipt.setSegment(actif);
+            receipt.setPositionSegment(position);
+            receipt.setTaille((long) pdf.length);
+            receipt.setUrlFichier(null);
+        } finally {
+            ecriture.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Zone> localiser(Receipt receipt) {
+        if (receipt.getSegment() == null) {
+            return fichiers.localiser(receipt);
+        }
+        Path fichier = chemin(receipt.getSegment());
+        if (!Files.isReadable(fichier)) {
+            return Optional.empty();
+        }
+        return Optional.of(new Zone(fichier, receipt.getPositionSegment(), receipt.getTaille()));
+    }
+
+    @Override
+    public void copier(Receipt receipt, long debut, long longueur, WritableByteChannel sortie) throws IOException {
+        if (receipt.getSegment() == null) {
+            fichiers.copier(receipt, debut, longueur, sortie);
+            return;
+        }
+        ByteBuffer tranche = tranche(receipt, debut, longueur);
+        while (tranche.hasRemaining()) {
+            sortie.write(tranche);
+        }
+    }
+
+    // Rien à effacer dans un segment : les octets du doublon partent au prochain compactage
+    @Override
+    public void supprimer(Receipt receipt) {
+        if (receipt.getSegment() == null) {
+            fichiers.supprimer(receipt);
+        }
+    }
+
+    /**
+     * PDF complet du reçu (compactage)
+     */
+    byte[] lire(Receipt receipt) throws IOException {
+        if (receipt.getSegment() == null) {
+            return Files.readAllBytes(Paths.get(receipt.getUrlFichier()));
+        }
+        ByteBuffer tranche = tranche(receipt, 0, receipt.getTaille());
+        byte[] pdf = new byte[tranche.remaining()];
+        tranche.get(pdf);
+        return pdf;
+    }
+
+    /**
+     * Segments de ce nœud qui ne reçoivent plus d'ajouts, par numéro croissant
+     */
+    List<Long> segmentsScelles() throws IOException {
+        ecriture.lock();
+        try {
+            List<Long> segments = segments();
+            if (actif < 0) {
+                actif = segments.isEmpty() ? premierSegment() : segments.get(segments.size() - 1);
+            }
+            segments.remove(Long.valueOf(actif));
+            return segments;
+        } finally {
+            ecriture.unlock();
+        }
+    }
+
+    long taille(long segment) throws IOException {
+        return Files.size(chemin(segment));
+    }
+
+    void supprimerSegment(long segment) throws IOException {
+        ecriture.lock();
+        try {
+            if (segment == actif || segment / SEGMENTS_PAR_NOEUD != noeud) {
+                throw new IllegalStateException("Segment actif ou d'un autre nœud: " + segment);
+            }
+            projections.remove(segment);
+            Files.deleteIfExists(chemin(segment));
+        } finally {
+            ecriture.unlock();
+        }
+    }
+
+    private ByteBuffer tranche(Receipt receipt, long debut, long longueur) throws IOException {
+        long position = receipt.getPositionSegment() + debut;
+        MappedByteBuffer projection = projection(receipt.getSegment(), position + longueur);
+        return projection.slice((int) position, (int) longueur);
+    }
+
+    private MappedByteBuffer projection(long segment, long fin) throws IOException {
+        MappedByteBuffer projection = projections.get(segment);
+        if (projection != null && projection.capacity() >= fin) {
+            return projection;
+        }
+        try {
+            projection = projections.compute(segment, (numero, ancienne) ->
+                    ancienne != null && ancienne.capacity() >= fin ? ancienne : projeter(numero));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (projection.capacity() < fin) {
+            throw new IOException("Reçu hors du segment " + segment);
+        }
+        return projection;
+    }
+
+    // La projection reste valide une fois le canal fermé
+    private MappedByteBuffer projeter(long segment) {
+        try (FileChannel canal = FileChannel.open(chemin(segment), StandardOpenOption.READ)) {
+            return canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Au premier ajout : reprise du dernier segment existant de ce nœud
+    private FileChannel canalActif() throws IOException {
+        if (canalActif == null) {
+            Files.createDirectories(dossier);
+            if (actif < 0) {
+                List<Long> segments = segments();
+                actif = segments.isEmpty() ? premierSegment() : segments.get(segments.size() - 1);
+            }
+            FileChannel canal = FileChannel.open(chemin(actif), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            verrouiller(canal);
+            canalActif = canal;
+        }
+        return canalActif;
+    }
+
+    // Verrou libéré à la fermeture du canal
+    private void verrouiller(FileChannel canal) throws IOException {
+        FileLock verrou;
+        try {
+            verrou = canal.tryLock();
+        } catch (OverlappingFileLockException e) {
+            verrou = null;
+        }
+        if (verrou == null) {
+            canal.close();
+            throw new IOException("Segment " + chemin(actif).getFileName()
+                    + " déjà en écriture ailleurs : recus.numero.noeud doit être distinct par instance");
+        }
+    }
+
+    private FileChannel rouler() throws IOException {
+        if ((actif + 1) % SEGMENTS_PAR_NOEUD == 0) {
+            throw new IOException("Plus de numéro de segment libre pour le nœud " + noeud);
+        }
+        canalActif.close();
+        canalActif = null;
+        actif++;
+        return canalActif();
+    }
+
+    // Segments de ce nœud seulement
+    private List<Long> segments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        if (!Files.isDirectory(dossier)) {
+            return segments;
+        }
+        try (Stream<Path> fichiersSegments = Files.list(dossier)) {
+            fichiersSegments.forEach(fichier -> {
+                Matcher nom = NOM_SEGMENT.matcher(fichier.getFileName().toString());
+                if (nom.matches() && Integer.parseInt(nom.group(1)) == noeud) {
+                    segments.add(noeud * SEGMENTS_PAR_NOEUD + Long.parseLong(nom.group(2)));
+                }
+            });
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private long premierSegment() {
+        return noeud * SEGMENTS_PAR_NOEUD + 1;
+    }
+
+    private Path chemin(long segment) {
+        return dossier.resolve(String.format("segment-%04d-%06d.dat",
+                segment / SEGMENTS_PAR_NOEUD, segment % SEGMENTS_PAR_NOEUD));
+    }
+}
@@ -0,0 +1,278 @@
+package com.transfert.transfertargent.services;
+
+import com.transfert.transfertargent.models.Montant;
+import com.transfert.transfertargent.models.Role;
+import com.transfert.transfertargent.repositories.CompteRepository;
+import com.transfert.transfertargent.repositories.TransactionRepository;
+import com.transfert.transfertargent.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Compteurs de la plateforme (utilisateurs, comptes, transactions, solde total) tenus à jour
+ * par les services à chaque écriture, pour que le tableau de bord admin se lise en O(1).
+ * Les variations ne sont appliquées qu'après le commit ; une réconciliation périodique
+ * recalcule tout depuis les tables et corrige une éventuelle dérive.
+ * Les compteurs sont propres à chaque nœud : les écritures faites sur les autres n'y entrent
+ * qu'à la réconciliation suivante. Entre deux réconciliations, les chiffres sont donc approchés.
+ */
+@Component
+public class StatistiquesPlateforme {
+
+    private static final Logger log = LoggerFactory.getLogger(StatistiquesPlateforme.class);
+
+    private final UserRepository userRepository;
+    private final CompteRepository compteRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate lecture;
+
+    private final Compteurs compteurs = new Compteurs();
+    // Variations arrivées après l'instantané d'une réconciliation, rejouées sur son résultat
+    private Compteurs pendantReconciliation;
+    private boolean reconciliationEnCours;
+    private boolean initialise;
+    private LocalDateTime derniereReconciliation;
+
+    public StatistiquesPlateforme(UserRepository userRepository,
+                                  CompteRepository compteRepository,
+                                  TransactionRepository transactionRepository,
+                                  PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.compteRepository = compteRepository;
+        this.transactionRepository = transactionRepository;
+        // Tous les comptages sur un même instantané, sur la base principale (là où les variations sont validées)
+        this.lecture = new TransactionTemplate(transactionManager);
+        this.lecture.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    // ==================== ÉCRITURES ====================
+    public void utilisateurCree(Role role, boolean enabled) {
+        appliquer(c -> {
+            c.utilisateurs++;
+            c.utilisateursParRole.merge(role, 1L, Long::sum);
+            if (enabled) c.utilisateursActifs++;
+        });
+    }
+
+    public void roleModifie(Role ancien, Role nouveau) {
+        if (ancien == nouveau) return;
+        appliquer(c -> {
+            if (ancien != null) c.utilisateursParRole.merge(ancien, -1L, Long::sum);
+            c.utilisateursParRole.merge(nouveau, 1L, Long::sum);
+        });
+    }
+
+    public void statutUtilisateurModifie(boolean actif) {
+        appliquer(c -> c.utilisateursActifs += actif ? 1 : -1);
+    }
+
+    // Soldes et variations en centimes
+    public void compteCree(long solde, boolean actif) {
+        appliquer(c -> {
+            c.comptes++;
+            c.soldeTotal += solde;
+            if (actif) c.comptesActifs++;
+        });
+    }
+
+    public void statutCompteModifie(boolean actif) {
+        appliquer(c -> c.comptesActifs += actif ? 1 : -1);
+    }
+
+    /**
+     * @param variationSolde variation de la somme des soldes : +montant pour un dépôt,
+     *                       -montant pour un retrait, -frais pour un transfert
+     */
+    public void transactionsEnregistrees(long nombre, long variationSolde) {
+        appliquer(c -> {
+            c.transactions += nombre;
+            c.soldeTotal += variationSolde;
+        });
+    }
+
+    public void soldeModifie(long variation) {
+        appliquer(c -> c.soldeTotal += variation);
+    }
+
+    // ==================== LECTURES ====================
+    public Map<String, Object> getStatistiques() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (this) {
+            initialiserSiBesoin();
+            stats.put("totalUsers", compteurs.utilisateurs);
+            stats.put("totalComptes", compteurs.comptes);
+            stats.put("totalTransactions", compteurs.transactions);
+            stats.put("totalSolde", Montant.versDecimal(compteurs.soldeTotal));
+            stats.put("activeUsers", compteurs.utilisateursActifs);
+            stats.put("activeComptes", compteurs.comptesActifs);
+            stats.put("derniereReconciliation", derniereReconciliation);
+        }
+        stats.put("timestamp", LocalDateTime.now());
+        return stats;
+    }
+
+    public Map<String, Long> getUtilisateursParRole() {
+        Map<String, Long> countMap = new HashMap<>();
+        synchronized (this) {
+            initialiserSiBesoin();
+            for (Role role : Role.values()) {
+                countMap.put(role.name(), compteurs.utilisateursParRole.getOrDefault(role, 0L));
+            }
+        }
+        return countMap;
+    }
+
+    // ==================== RÉCONCILIATION ====================
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiserAuDemarrage() {
+        reconcilier();
+    }
+
+    /**
+     * Recalcule les compteurs depuis les tables, hors verrou : les écritures validées après
+     * l'instantané de lecture sont mises de côté puis rejouées sur le résultat. La collecte ne
+     * commence qu'une fois l'instantané pris (première lecture), sans quoi une écriture validée
+     * entre-temps serait comptée deux fois. Reste l'écart entre le commit d'une écriture et son
+     * afterCommit, corrigé à la réconciliation suivante.
+     */
+    @Scheduled(fixedDelayString = "${statistiques.reconciliation.intervalle:PT15M}",
+            initialDelayString = "${statistiques.reconciliation.intervalle:PT15M}")
+    public void reconcilier() {
+        synchronized (this) {
+            if (reconciliationEnCours) {
+                return;
+            }
+            reconciliationEnCours = true;
+        }
+        Compteurs recalcule = null;
+        try {
+            recalcule = lecture.execute(status -> depuisLaBase(this::collecterVariations));
+        } finally {
+            synchronized (this) {
+                if (recalcule != null && pendantReconciliation != null) {
+                    recalcule.ajouter(pendantReconciliation);
+                    if (initialise && !compteurs.egal(recalcule)) {
+                        log.info("Statistiques plateforme corrigées par la réconciliation");
+                    }
+                    compteurs.remplacerPar(recalcule);
+                    initialise = true;
+                    derniereReconciliation = LocalDateTime.now();
+                }
+                pendantReconciliation = null;
+                reconciliationEnCours = false;
+            }
+        }
+    }
+
+    private synchronized void collecterVariations() {
+        pendantReconciliation = new Compteurs();
+    }
+
+    /**
+     * @param apresInstantane appelé après la première lecture, qui fixe l'instantané de la transaction
+     */
+    private Compteurs depuisLaBase(Runnable apresInstantane) {
+        Compteurs c = new Compteurs();
+        c.utilisateurs = userRepository.count();
+        apresInstantane.run();
+        c.utilisateursActifs = valeur(userRepository.countByEnabled(true));
+        for (Role role : Role.values()) {
+            c.utilisateursParRole.put(role, valeur(userRepository.countByRole(role)));
+        }
+        c.comptes = compteRepository.count();
+        c.comptesActifs = valeur(compteRepository.countByActive(true));
+        c.soldeTotal = valeur(compteRepository.getTotalSolde());
+        c.transactions = transactionRepository.count();
+        return c;
+    }
+
+    // Premier appel avant la fin du démarrage : calcul synchrone
+    private void initialiserSiBesoin() {
+        if (!initialise) {
+            compteurs.remplacerPar(lecture.execute(status -> depuisLaBase(() -> {
+            })));
+            initialise = true;
+            derniereReconciliation = LocalDateTime.now();
+        }
+    }
+
+    private void appliquer(Consumer<Compteurs> variation) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    appliquerMaintenant(variation);
+                }
+            });
+        } else {
+            appliquerMaintenant(variation);
+        }
+    }
+
+    private synchronized void appliquerMaintenant(Consumer<Compteurs> variation) {
+        variation.accept(compteurs);
+        if (pendantReconciliation != null) {
+            variation.accept(pendantReconciliation);
+        }
+    }
+
+    private static long valeur(Long count) {
+        return count != null ? count : 0L;
+    }
+
+    private static final class Compteurs {
+        private long utilisateurs;
+        private long utilisateursActifs;
+        private final Map<Role, Long> utilisateursParRole = new EnumMap<>(Role.class);
+        private long comptes;
+        private long comptesActifs;
+        private long transactions;
+        private long soldeTotal;
+
+        private void ajouter(Compteurs autre) {
+            utilisateurs += autre.utilisateurs;
+            utilisateursActifs += autre.utilisateursActifs;
+            autre.utilisateursParRole.forEach((role, n) -> utilisateursParRole.merge(role, n, Long::sum));
+            comptes += autre.comptes;
+            comptesActifs += autre.comptesActifs;
+            transactions += autre.transactions;
+            soldeTotal += autre.soldeTotal;
+        }
+
+        private void remplacerPar(Compteurs autre) {
+            utilisateurs = autre.utilisateurs;
+            utilisateursActifs = autre.utilisateursActifs;
+            utilisateursParRole.clear();
+            utilisateursParRole.putAll(autre.utilisateursParRole);
+            comptes = autre.comptes;
+            comptesActifs = autre.comptesActifs;
+            transactions = autre.transactions;
+            soldeTotal = autre.soldeTotal;
+        }
+
+        private boolean egal(Compteurs autre) {
+            return utilisateurs == autre.utilisateurs
+                    && utilisateursActifs == autre.utilisateursActifs
+                    && utilisateursParRole.equals(autre.utilisateursParRole)
+                    && comptes == autre.comptes
+                    && comptesActifs == autre.comptesActifs
+                    && transactions == autre.transactions
+                    && soldeTotal == autre.soldeTotal;
+        }
+    }
+}
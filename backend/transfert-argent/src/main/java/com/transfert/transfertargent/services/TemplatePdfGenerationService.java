@@ -0,0 +1,192 @@
+package com.transfert.transfertargent.services;
+
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Element;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.BaseFont;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfWriter;
+import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.Montant;
+import com.transfert.transfertargent.models.Transaction;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ✅ Reçus PDF rendus sur un gabarit : polices, positions et textes fixes (titre, libellés, pied
+ * de page) sont calculés une seule fois au démarrage ; chaque reçu n'écrit plus que ses champs
+ * variables en positionnement absolu, sans moteur de mise en page (Paragraph / PdfPTable).
+ * Le PDF est produit dans un tampon propre au thread, réutilisé d'un reçu à l'autre, puis
+ * recopié sur la sortie en une écriture.
+ */
+@Service
+public class TemplatePdfGenerationService implements PdfGenerationService {
+
+    private static final DateTimeFormatter FORMAT_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy à HH:mm");
+
+    private static final Rectangle PAGE = PageSize.A4;
+    private static final float MARGE = 36;
+    private static final float MARGE_CELLULE = 5;
+    private static final float HAUTEUR_LIGNE = 22;
+
+    // Au-delà, le tampon n'est pas gardé pour le thread (reçu anormalement gros)
+    private static final int TAILLE_TAMPON_MAX = 256 * 1024;
+
+    private final List<Texte> textesFixes = new ArrayList<>();
+    private final Position[] champs = new Position[Champ.values().length];
+
+    private final ThreadLocal<ByteArrayOutputStream> tampons =
+            ThreadLocal.withInitial(() -> new ByteArrayOutputStream(8 * 1024));
+
+    private enum Champ {
+        NUMERO, DATE, MONTANT, FRAIS, TOTAL, STATUT,
+        EXPEDITEUR_NOM, EXPEDITEUR_TELEPHONE, DESTINATAIRE_NOM, DESTINATAIRE_TELEPHONE,
+        GENERE_LE
+    }
+
+    private record Position(BaseFont police, float taille, BaseColor couleur, int alignement, float x, float y) {
+    }
+
+    private record Texte(Position position, String valeur) {
+    }
+
+    public TemplatePdfGenerationService() throws DocumentException, IOException {
+        BaseFont normale = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED);
+        BaseFont grasse = BaseFont.createFont(BaseFont.HELVETICA_BOLD, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED);
+        BaseFont italique = BaseFont.createFont(BaseFont.HELVETICA_OBLIQUE, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED);
+
+        float centre = PAGE.getWidth() / 2;
+        float colonneLibelle = MARGE + MARGE_CELLULE;
+        float colonneValeur = centre + MARGE_CELLULE;
+        float y = PAGE.getHeight() - MARGE - 18;
+
+        // Titre
+        fixe(grasse, 18, BaseColor.BLUE, Element.ALIGN_CENTER, centre, y, "REÇU DE TRANSFERT D'ARGENT");
+        y -= 18 + 20 + HAUTEUR_LIGNE;
+
+        // Détails de la transaction
+        String[] libelles = {"Numéro Transaction:", "Date Transaction:", "Montant Transféré:",
+                "Frais (1%):", "Total Débité:", "Statut:"};
+        Champ[] details = {Champ.NUMERO, Champ.DATE, Champ.MONTANT, Champ.FRAIS, Champ.TOTAL, Champ.STATUT};
+        for (int i = 0; i < libelles.length; i++) {
+            fixe(grasse, 12, BaseColor.BLACK, Element.ALIGN_LEFT, colonneLibelle, y, libelles[i]);
+            champ(details[i], normale, 12, Element.ALIGN_LEFT, colonneValeur, y);
+            y -= HAUTEUR_LIGNE;
+        }
+
+        // Parties
+        y -= 20;
+        for (Champ[] partie : new Champ[][]{
+                {Champ.EXPEDITEUR_NOM, Champ.EXPEDITEUR_TELEPHONE},
+                {Champ.DESTINATAIRE_NOM, Champ.DESTINATAIRE_TELEPHONE}}) {
+            String entete = partie[0] == Champ.EXPEDITEUR_NOM ? "EXPÉDITEUR" : "DESTINATAIRE";
+            fixe(grasse, 14, BaseColor.DARK_GRAY, Element.ALIGN_LEFT, MARGE, y, entete);
+            y -= 10 + HAUTEUR_LIGNE;
+            fixe(normale, 12, BaseColor.BLACK, Element.ALIGN_LEFT, colonneLibelle, y, "Nom:");
+            champ(partie[0], normale, 12, Element.ALIGN_LEFT, colonneValeur, y);
+            y -= HAUTEUR_LIGNE;
+            fixe(normale, 12, BaseColor.BLACK, Element.ALIGN_LEFT, colonneLibelle, y, "Téléphone:");
+            champ(partie[1], normale, 12, Element.ALIGN_LEFT, colonneValeur, y);
+            y -= HAUTEUR_LIGNE + 20;
+        }
+
+        // Pied de page
+        y -= 20;
+        fixe(italique, 10, BaseColor.BLACK, Element.ALIGN_CENTER, centre, y,
+                "Ce reçu est une preuve légale de votre transaction. Conservez-le pour vos archives.");
+        y -= 14;
+        champ(Champ.GENERE_LE, normale, 8, Element.ALIGN_CENTER, centre, y);
+    }
+
+    @Override
+    public void writeReceiptPdf(Transaction transaction, OutputStream sortie) throws IOException {
+        ByteArrayOutputStream tampon = rendre(transaction);
+        tampon.writeTo(sortie);
+        liberer(tampon);
+    }
+
+    @Override
+    public byte[] generateReceiptPdf(Transaction transaction) {
+        try {
+            ByteArrayOutputStream tampon = rendre(transaction);
+            byte[] pdf = tampon.toByteArray();
+            liberer(tampon);
+            return pdf;
+        } catch (IOException e) {
+            throw new RuntimeException("Erreur lors de la génération du PDF", e);
+        }
+    }
+
+    private ByteArrayOutputStream rendre(Transaction transaction) throws IOException {
+        String[] valeurs = new String[champs.length];
+        valeurs[Champ.NUMERO.ordinal()] = String.valueOf(transaction.getId());
+        valeurs[Champ.DATE.ordinal()] = transaction.getDateTransaction().format(FORMAT_DATE);
+        valeurs[Champ.MONTANT.ordinal()] = Montant.formater(transaction.getMontant());
+        valeurs[Champ.FRAIS.ordinal()] = Montant.formater(transaction.getFrais());
+        valeurs[Champ.TOTAL.ordinal()] = Montant.formater(transaction.getMontant() + transaction.getFrais());
+        valeurs[Champ.STATUT.ordinal()] = transaction.getStatut();
+        valeurs[Champ.EXPEDITEUR_NOM.ordinal()] = nom(transaction.getCompteSource());
+        valeurs[Champ.EXPEDITEUR_TELEPHONE.ordinal()] = transaction.getCompteSource().getNumeroTelephone();
+        valeurs[Champ.DESTINATAIRE_NOM.ordinal()] = nom(transaction.getCompteDestination());
+        valeurs[Champ.DESTINATAIRE_TELEPHONE.ordinal()] = transaction.getCompteDestination().getNumeroTelephone();
+        valeurs[Champ.GENERE_LE.ordinal()] = "Généré le " + LocalDateTime.now().format(FORMAT_DATE);
+
+        ByteArrayOutputStream tampon = tampons.get();
+        tampon.reset();
+        Document document = new Document(PAGE);
+        try {
+            PdfWriter writer = PdfWriter.getInstance(document, tampon);
+            document.open();
+            PdfContentByte contenu = writer.getDirectContent();
+            contenu.beginText();
+            for (Texte texte : textesFixes) {
+                ecrire(contenu, texte.position(), texte.valeur());
+            }
+            for (int i = 0; i < champs.length; i++) {
+                ecrire(contenu, champs[i], valeurs[i]);
+            }
+            contenu.endText();
+        } catch (DocumentException e) {
+            throw new IOException("Erreur création PDF: " + e.getMessage(), e);
+        } finally {
+            if (document.isOpen()) {
+                document.close();
+            }
+        }
+        return tampon;
+    }
+
+    private void liberer(ByteArrayOutputStream tampon) {
+        if (tampon.size() > TAILLE_TAMPON_MAX) {
+            tampons.remove();
+        }
+    }
+
+    private static void ecrire(PdfContentByte contenu, Position position, String valeur) {
+        contenu.setFontAndSize(position.police(), position.taille());
+        contenu.setColorFill(position.couleur());
+        contenu.showTextAligned(position.alignement(), valeur != null ? valeur : "", position.x(), position.y(), 0);
+    }
+
+    private static String nom(Compte compte) {
+        return compte.getUser().getPrenom() + " " + compte.getUser().getNom();
+    }
+
+    private void fixe(BaseFont police, float taille, BaseColor couleur, int alignement, float x, float y, String valeur) {
+        textesFixes.add(new Texte(new Position(police, taille, couleur, alignement, x, y), valeur));
+    }
+
+    private void champ(Champ champ, BaseFont police, float taille, int alignement, float x, float y) {
+        champs[champ.ordinal()] = new Position(police, taille, BaseColor.BLACK, alignement, x, y);
+    }
+}
@@ -0,0 +1,283 @@
+package com.transfert.transfertargent.services;
+
+import com.transfert.transfertargent.models.Montant;
+import com.transfert.transfertargent.models.RollupWatermark;
+import com.transfert.transfertargent.models.Transaction;
+import com.transfert.transfertargent.models.TransactionRollup;
+import com.transfert.transfertargent.models.TransactionRollup.Granularite;
+import com.transfert.transfertargent.repositories.RollupWatermarkRepository;
+import com.transfert.transfertargent.repositories.TransactionRepository;
+import com.transfert.transfertargent.repositories.TransactionRollupRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rollups horaires et journaliers des transactions (nombre, montant, frais par statut et type).
+ * Un job les alimente heure par heure derrière un watermark ; les statistiques admin lisent
+ * les jours et heures complets dans les rollups et ne scannent la table transaction que
+ * pour les bords de la période et ce qui est postérieur au watermark (l'heure en cours).
+ * Une transaction datée à l'insertion mais validée après le passage du job sur son heure n'y
+ * serait jamais comptée : les transactions longues sont redatées à leur commit (voir RedatageAuCommit).
+ */
+@Service
+public class TransactionRollupService {
+
+    static final String WATERMARK = "transactions";
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionRollupRepository rollupRepository;
+    private final RollupWatermarkRepository watermarkRepository;
+    private final TransactionTemplate transactionTemplate;
+    // Une heure n'est agrégée qu'une fois ce délai écoulé, pour les transactions validées en retard
+    private final Duration delaiSecurite;
+    private final int heuresParPassage;
+    private final RedatageAuCommit redatage;
+
+    public TransactionRollupService(TransactionRepository transactionRepository,
+                                    TransactionRollupRepository rollupRepository,
+                                    RollupWatermarkRepository watermarkRepository,
+                                    TransactionTemplate transactionTemplate,
+                                    EntityManager entityManager,
+                                    JdbcTemplate jdbcTemplate,
+                                    @Value("${rollups.delai-securite:PT2M}") Duration delaiSecurite,
+                                    @Value("${rollups.heures-par-passage:168}") int heuresParPassage) {
+        this.transactionRepository = transactionRepository;
+        this.rollupRepository = rollupRepository;
+        this.watermarkRepository = watermarkRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.delaiSecurite = delaiSecurite;
+        this.heuresParPassage = heuresParPassage;
+        this.redatage = new RedatageAuCommit(entityManager, jdbcTemplate, "transaction", "date_transaction", delaiSecurite);
+    }
+
+    // ==================== ALIMENTATION ====================
+    @Scheduled(fixedDelayString = "${rollups.intervalle:PT1M}", initialDelayString = "${rollups.delai-initial:PT30S}")
+    public void agreger() {
+        LocalDateTime limite = LocalDateTime.now().minus(delaiSecurite).truncatedTo(ChronoUnit.HOURS);
+        initialiserWatermark(limite);
+        // Une transaction courte par passage ; on enchaîne jusqu'à rattraper la limite
+        while (Boolean.TRUE.equals(transactionTemplate.execute(status -> passe(limite)))) {
+            // passage suivant
+        }
+    }
+
+    private Boolean passe(LocalDateTime limite) {
+        RollupWatermark watermark = watermarkRepository.verrouiller(WATERMARK).orElse(null);
+        if (watermark == null) {
+            return false;
+        }
+        LocalDateTime heure = watermark.getValeur();
+        for (int i = 0; i < heuresParPassage && heure.isBefore(limite); i++) {
+            LocalDateTime heureSuivante = heure.plusHours(1);
+            List<Object[]> lignes = transactionRepository.agregerParStatutEtType(heure, heureSuivante);
+            if (lignes.isEmpty()) {
+                // Heures vides : saut direct à l'heure de la prochaine transaction
+                LocalDateTime prochaine = transactionRepository.findPremiereDateDepuis(heureSuivante);
+                heure = prochaine == null ? limite : min(limite, prochaine.truncatedTo(ChronoUnit.HOURS));
+                continue;
+            }
+            for (Object[] ligne : lignes) {
+                String statut = (String) ligne[0];
+                String type = (String) ligne[1];
+                long nombre = ((Number) ligne[2]).longValue();
+                long montant = ((Number) ligne[3]).longValue();
+                long frais = ((Number) ligne[4]).longValue();
+                ajouter(Granularite.HEURE, heure, statut, type, nombre, montant, frais);
+                ajouter(Granularite.JOUR, heure.truncatedTo(ChronoUnit.DAYS), statut, type, nombre, montant, frais);
+            }
+            heure = heureSuivante;
+        }
+        watermark.setValeur(heure);
+        return heure.isBefore(limite);
+    }
+
+    /**
+     * Transaction tout juste persistée (date fixée par @PrePersist) ; à appeler dans la transaction
+     * qui l'insère, pour qu'elle soit redatée au commit si celle-ci a trop duré
+     */
+    public void enregistree(Transaction transaction) {
+        redatage.suivre(transaction.getId(), transaction.getDateTransaction());
+    }
+
+    // Premier passage : départ à l'heure de la plus ancienne transaction
+    private void initialiserWatermark(LocalDateTime limite) {
+        if (watermarkRepository.existsById(WATERMARK)) {
+            return;
+        }
+        LocalDateTime premiere = transactionRepository.findPremiereDateDepuis(LocalDateTime.of(1970, 1, 1, 0, 0));
+        LocalDateTime depart = premiere == null ? limite : min(limite, premiere.truncatedTo(ChronoUnit.HOURS));
+        try {
+            watermarkRepository.saveAndFlush(RollupWatermark.builder().nom(WATERMARK).valeur(depart).build());
+        } catch (DataIntegrityViolationException e) {
+            // Un autre nœud l'a créé en même temps
+        }
+    }
+
+    /**
+     * Reporte un changement de statut (annulation) dans les rollups si la transaction est
+     * déjà agrégée ; à appeler dans la transaction qui modifie le statut
+     */
+    public void statutModifie(Transaction transaction, String ancienStatut) {
+        String nouveauStatut = transaction.getStatut();
+        if (ancienStatut == null || ancienStatut.equals(nouveauStatut) || transaction.getDateTransaction() == null) {
+            return;
+        }
+        RollupWatermark watermark = watermarkRepository.verrouiller(WATERMARK).orElse(null);
+        if (watermark == null || !transaction.getDateTransaction().isBefore(watermark.getValeur())) {
+            return; // pas encore agrégée : le job lira le nouveau statut
+        }
+        String type = typeDe(transaction);
+        long montant = transaction.getMontant();
+        long frais = transaction.getFrais();
+        LocalDateTime heure = transaction.getDateTransaction().truncatedTo(ChronoUnit.HOURS);
+        for (Granularite g : Granularite.values()) {
+            LocalDateTime periode = g == Granularite.HEURE ? heure : heure.truncatedTo(ChronoUnit.DAYS);
+            ajouter(g, periode, ancienStatut, type, -1, -montant, -frais);
+            ajouter(g, periode, nouveauStatut, type, 1, montant, frais);
+        }
+    }
+
+    private void ajouter(Granularite granularite, LocalDateTime periode, String statut, String type,
+                         long nombre, long montant, long frais) {
+        TransactionRollup rollup = rollupRepository
+                .findByGranulariteAndPeriodeAndStatutAndType(granularite, periode, statut, type)
+                .orElseGet(() -> TransactionRollup.builder()
+                        .granularite(granularite).periode(periode).statut(statut).type(type)
+                        .build());
+        rollup.setNombre(rollup.getNombre() + nombre);
+        rollup.setMontant(rollup.getMontant() + montant);
+        rollup.setFrais(rollup.getFrais() + frais);
+        rollupRepository.save(rollup);
+    }
+
+    // ==================== LECTURE ====================
+
+    /**
+     * Statistiques sur [start, end] (bornes incluses) : jours complets et heures complètes
+     * depuis les rollups, bords de période et partie non encore agrégée depuis la table.
+     * Mêmes sources pour le détail par jour (nombre et montant, jour le plus récent en tête)
+     */
+    public Map<String, Object> getStatistiques(LocalDateTime start, LocalDateTime end) {
+        Totaux totaux = new Totaux();
+        if (!start.isAfter(end)) {
+            LocalDateTime watermark = watermarkRepository.findById(WATERMARK)
+                    .map(RollupWatermark::getValeur)
+                    .orElse(start);
+
+            // Heures complètes couvertes par les rollups : [h0, h1)
+            LocalDateTime h0 = plafondHeure(start);
+            LocalDateTime h1 = min(end, watermark).truncatedTo(ChronoUnit.HOURS);
+            if (h0.isBefore(h1)) {
+                totaux.ajouter(transactionRepository.agregerParStatutEtType(start, h0));
+                totaux.ajouterParJour(transactionRepository.agregerParJour(start, h0));
+                LocalDateTime j0 = plafondJour(h0);
+                LocalDateTime j1 = h1.truncatedTo(ChronoUnit.DAYS);
+                if (j0.isBefore(j1)) {
+                    ajouterRollups(totaux, Granularite.HEURE, h0, j0);
+                    ajouterRollups(totaux, Granularite.JOUR, j0, j1);
+                    ajouterRollups(totaux, Granularite.HEURE, j1, h1);
+                } else {
+                    ajouterRollups(totaux, Granularite.HEURE, h0, h1);
+                }
+                totaux.ajouter(transactionRepository.agregerParStatutEtTypeJusquA(h1, end));
+                totaux.ajouterParJour(transactionRepository.agregerParJourJusquA(h1, end));
+            } else {
+                // Moins d'une heure complète agrégée dans la période : scan direct
+                totaux.ajouter(transactionRepository.agregerParStatutEtTypeJusquA(start, end));
+                totaux.ajouterParJour(transactionRepository.agregerParJourJusquA(start, end));
+            }
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("count", totaux.nombre);
+        stats.put("totalAmount", Montant.versDecimal(totaux.montant));
+        stats.put("totalFees", Montant.versDecimal(totaux.frais));
+        stats.put("countByType", totaux.parType);
+        stats.put("countByStatus", totaux.parStatut);
+        List<Map<String, Object>> parJour = new ArrayList<>(totaux.parJour.size());
+        totaux.parJour.descendingMap().forEach((jour, valeurs) -> parJour.add(Map.of(
+                "date", jour, "count", valeurs[0], "totalAmount", Montant.versDecimal(valeurs[1]))));
+        stats.put("daily", parJour);
+        return stats;
+    }
+
+    private void ajouterRollups(Totaux totaux, Granularite granularite, LocalDateTime debut, LocalDateTime fin) {
+        totaux.ajouter(rollupRepository.sommerEntre(granularite, debut, fin));
+        totaux.ajouterParJour(rollupRepository.sommerParPeriode(granularite, debut, fin));
+    }
+
+    static String typeDe(Transaction transaction) {
+        if (transaction.getCompteSource() == null) return "DEPOT";
+        if (transaction.getCompteDestination() == null) return "RETRAIT";
+        return "TRANSFERT";
+    }
+
+    private static LocalDateTime plafondHeure(LocalDateTime date) {
+        LocalDateTime heure = date.truncatedTo(ChronoUnit.HOURS);
+        return heure.equals(date) ? heure : heure.plusHours(1);
+    }
+
+    private static LocalDateTime plafondJour(LocalDateTime date) {
+        LocalDateTime jour = date.truncatedTo(ChronoUnit.DAYS);
+        return jour.equals(date) ? jour : jour.plusDays(1);
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static final class Totaux {
+        private long nombre;
+        // Sommes en centimes
+        private long montant;
+        private long frais;
+        private final Map<String, Long> parType = new HashMap<>();
+        private final Map<String, Long> parStatut = new HashMap<>();
+        // Jour -> {nombre, montant en centimes}
+        private final TreeMap<LocalDate, long[]> parJour = new TreeMap<>();
+
+        // Lignes : statut, type, nombre, montant, frais
+        private void ajouter(List<Object[]> lignes) {
+            for (Object[] ligne : lignes) {
+                long n = ((Number) ligne[2]).longValue();
+                if (n == 0) {
+                    continue;
+                }
+                nombre += n;
+                montant += ((Number) ligne[3]).longValue();
+                frais += ((Number) ligne[4]).longValue();
+                parStatut.merge(String.valueOf(ligne[0]), n, Long::sum);
+                parType.merge(String.valueOf(ligne[1]), n, Long::sum);
+            }
+        }
+
+        // Lignes : jour (ou période d'un rollup), nombre, montant
+        private void ajouterParJour(List<Object[]> lignes) {
+            for (Object[] ligne : lignes) {
+                long n = ((Number) ligne[1]).longValue();
+                if (n == 0) {
+                    continue;
+                }
+                LocalDate jour = ligne[0] instanceof LocalDateTime periode ? periode.toLocalDate() : (LocalDate) ligne[0];
+                long[] valeurs = parJour.computeIfAbsent(jour, j -> new long[2]);
+                valeurs[0] += n;
+                valeurs[1] += ((Number) ligne[2]).longValue();
+            }
+        }
+    }
+}
@@ -1,17 +1,22 @@
 package com.transfert.transfertargent.services;
 
+import com.transfert.transfertargent.dto.PageTransactionsDTO;
 import com.transfert.transfertargent.dto.TransactionDTO;
+import com.transfert.transfertargent.dto.TransactionLigne;
 import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.Montant;
 import com.transfert.transfertargent.models.Transaction;
 import com.transfert.transfertargent.models.Receipt;
+import com.transfert.transfertargent.models.StatutRecu;
+import com.transfert.transfertargent.repositories.CompteRepository;
 import com.transfert.transfertargent.repositories.TransactionRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -19,35 +24,85 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class TransactionService {
 
+    private static final int LIMITE_MAX_PAGE = 200;
+    private static final LocalDateTime DEBUT_HISTORIQUE = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final LocalDateTime FIN_HISTORIQUE = LocalDateTime.of(9999, 1, 1, 0, 0);
+
     private final TransactionRepository transactionRepository;
+    private final CompteRepository compteRepository;
     private final ReceiptService receiptService;
+    private final HistoriqueCache historiqueCache;
+    private final TransactionRollupService transactionRollupService;
+    private final StatistiquesPlateforme statistiquesPlateforme;
+    private final GrandLivreService grandLivre;
+
+    // ✅ HISTORIQUE COMPLET (pagination par curseur)
+    @Transactional(readOnly = true)
+    public PageTransactionsDTO getHistoriqueComplet(String telephone, String curseur, int limite) {
+        return historiqueCache.lire(telephone, "historique|" + curseur + "|" + limite, () ->
+                paginer(telephone, curseur, limite, (compteId, c, n) ->
+                        transactionRepository.findHistoriqueLignes(compteId, DEBUT_HISTORIQUE, c.date(), c.id(), n)));
+    }
 
-    // ✅ HISTORIQUE COMPLET
-    public List<TransactionDTO> getHistoriqueComplet(String telephone) {
-        List<Transaction> transactions = transactionRepository.findByCompteSourceNumeroTelephoneOrCompteDestinationNumeroTelephone(telephone);
-        return transactions.stream()
-                .map(transaction -> new TransactionDTO(transaction, telephone))
-                .collect(Collectors.toList());
+    // ✅ TRANSACTIONS ENVOYÉES (pagination par curseur)
+    @Transactional(readOnly = true)
+    public PageTransactionsDTO getTransactionsEnvoyees(String telephone, String curseur, int limite) {
+        return historiqueCache.lire(telephone, "envoyees|" + curseur + "|" + limite, () ->
+                paginer(telephone, curseur, limite, (compteId, c, n) ->
+                        transactionRepository.findEnvoyeesLignes(compteId, c.date(), c.id(), PageRequest.of(0, n))));
     }
 
-    // ✅ TRANSACTIONS ENVOYÉES
-    public List<TransactionDTO> getTransactionsEnvoyees(String telephone) {
-        List<Transaction> transactions = transactionRepository.findByCompteSource_NumeroTelephone(telephone);
-        return transactions.stream()
-                .map(transaction -> new TransactionDTO(transaction, telephone))
-                .collect(Collectors.toList());
+    // ✅ TRANSACTIONS REÇUES (pagination par curseur)
+    @Transactional(readOnly = true)
+    public PageTransactionsDTO getTransactionsRecues(String telephone, String curseur, int limite) {
+        return historiqueCache.lire(telephone, "recues|" + curseur + "|" + limite, () ->
+                paginer(telephone, curseur, limite, (compteId, c, n) ->
+                        transactionRepository.findRecuesLignes(compteId, c.date(), c.id(), PageRequest.of(0, n))));
+    }
+
+    private PageTransactionsDTO paginer(String telephone, String curseur, int limite, RequetePage requete) {
+        return paginer(telephone, curseur, limite, FIN_HISTORIQUE, requete);
+    }
+
+    private PageTransactionsDTO paginer(String telephone, String curseur, int limite, LocalDateTime fin,
+                                        RequetePage requete) {
+        int taille = Math.max(1, Math.min(limite, LIMITE_MAX_PAGE));
+        CurseurHistorique position = CurseurHistorique.decoder(curseur);
+        if (position == null) {
+            // Première page : tout ce qui est strictement avant la fin de période
+            position = new CurseurHistorique(fin, 0L);
+        }
+
+        Long compteId = compteRepository.findIdByNumeroTelephone(telephone).orElse(null);
+        if (compteId == null) {
+            return new PageTransactionsDTO(List.of(), null);
+        }
+
+        // Une ligne de plus que demandé pour savoir s'il existe une page suivante
+        List<TransactionLigne> lignes = requete.executer(compteId, position, taille + 1);
+        boolean pageSuivante = lignes.size() > taille;
+        List<TransactionDTO> items = new ArrayList<>(Math.min(lignes.size(), taille));
+        for (int i = 0; i < lignes.size() && i < taille; i++) {
+            items.add(new TransactionDTO(lignes.get(i), telephone));
+        }
+
+        String nextCursor = null;
+        if (pageSuivante) {
+            TransactionDTO dernier = items.get(items.size() - 1);
+            nextCursor = new CurseurHistorique(dernier.getDateTransaction(), dernier.getId()).encoder();
+        }
+        return new PageTransactionsDTO(items, nextCursor);
     }
 
-    // ✅ TRANSACTIONS REÇUES
-    public List<TransactionDTO> getTransactionsRecues(String telephone) {
-        List<Transaction> transactions = transactionRepository.findByCompteDestination_NumeroTelephone(telephone);
-        return transactions.stream()
-                .map(transaction -> new TransactionDTO(transaction, telephone))
-                .collect(Collectors.toList());
+    @FunctionalInterface
+    private interface RequetePage {
+        List<TransactionLigne> executer(Long compteId, CurseurHistorique curseur, int limite);
     }
 
-    // ✅ GÉNÉRATION DE REÇU PDF (VERSION CORRIGÉE)
-    public byte[] generateReceiptPdf(Long transactionId, String telephone) {
+    // ✅ REÇU À TÉLÉCHARGER (généré au besoin) ; le fichier est envoyé par ReceiptDownloadService.
+    // Sans transaction englobante : chargement et contrôle d'accès dans la courte transaction en lecture
+    // de findById (comptes et utilisateurs chargés avec), puis attente et rendu sans connexion retenue
+    public Receipt getReceiptForDownload(Long transactionId, String telephone) {
         Transaction transaction = transactionRepository.findById(transactionId)
                 .orElseThrow(() -> new RuntimeException("Transaction non trouvée avec l'ID: " + transactionId));
 
@@ -59,18 +114,14 @@ public class TransactionService {
 
         try {
             // ✅ UTILISEZ LA NOUVELLE MÉTHODE QUI GÈRE LES REÇUS EXISTANTS
-            Receipt receipt = receiptService.getOrGenerateReceipt(transaction);
-
-            // Lire le fichier PDF généré
-            Path filePath = Paths.get(receipt.getUrlFichier());
-            return Files.readAllBytes(filePath);
-
+            return receiptService.getOrGenerateReceipt(transaction);
         } catch (Exception e) {
             throw new RuntimeException("Erreur lors de la génération du PDF: " + e.getMessage());
         }
     }
 
     // ✅ OBTENIR UNE TRANSACTION SPÉCIFIQUE
+    @Transactional(readOnly = true)
     public TransactionDTO getTransactionById(Long id, String telephone) {
         Transaction transaction = transactionRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Transaction non trouvée avec l'ID: " + id));
@@ -84,46 +135,49 @@ public class TransactionService {
         return new TransactionDTO(transaction, telephone);
     }
 
-    // ✅ FILTRER LES TRANSACTIONS PAR DATE (CORRIGÉ POUR LocalDateTime)
-    public List<TransactionDTO> getTransactionsByDateRange(String telephone, LocalDateTime startDate, LocalDateTime endDate) {
-        // ✅ IMPLÉMENTATION SIMPLIFIÉE - Filtrage en mémoire
-        List<Transaction> allTransactions = transactionRepository.findByCompteSourceNumeroTelephoneOrCompteDestinationNumeroTelephone(telephone);
-
-        return allTransactions.stream()
-                .filter(transaction -> {
-                    LocalDateTime transactionDate = transaction.getDateTransaction();
-                    return (startDate == null || transactionDate.isAfter(startDate)) &&
-                            (endDate == null || transactionDate.isBefore(endDate));
-                })
-                .map(transaction -> new TransactionDTO(transaction, telephone))
-                .collect(Collectors.toList());
+    // ✅ FILTRER LES TRANSACTIONS PAR DATE (filtre et pagination faits par la base)
+    @Transactional(readOnly = true)
+    public PageTransactionsDTO getTransactionsByDateRange(String telephone, LocalDateTime startDate, LocalDateTime endDate,
+                                                          String curseur, int limite) {
+        LocalDateTime debut = startDate != null ? startDate : DEBUT_HISTORIQUE;
+        LocalDateTime fin = endDate != null ? endDate : FIN_HISTORIQUE;
+        return historiqueCache.lire(telephone, "periode|" + debut + "|" + fin + "|" + curseur + "|" + limite, () ->
+                paginer(telephone, curseur, limite, fin, (compteId, c, n) ->
+                        transactionRepository.findHistoriqueLignes(compteId, debut, c.date(), c.id(), n)));
     }
 
-    // ✅ STATISTIQUES DES TRANSACTIONS
+    // ✅ STATISTIQUES DES TRANSACTIONS (une seule requête d'agrégat)
+    @Transactional(readOnly = true)
     public java.util.Map<String, Object> getStatistiques(String telephone) {
-        List<Transaction> transactions = transactionRepository.findByCompteSourceNumeroTelephoneOrCompteDestinationNumeroTelephone(telephone);
-
-        double totalEnvoye = transactions.stream()
-                .filter(t -> t.getCompteSource().getNumeroTelephone().equals(telephone))
-                .mapToDouble(Transaction::getMontant)
-                .sum();
-
-        double totalRecu = transactions.stream()
-                .filter(t -> t.getCompteDestination().getNumeroTelephone().equals(telephone))
-                .mapToDouble(Transaction::getMontant)
-                .sum();
-
-        double totalFrais = transactions.stream()
-                .filter(t -> t.getCompteSource().getNumeroTelephone().equals(telephone))
-                .mapToDouble(Transaction::getFrais)
-                .sum();
+        return historiqueCache.lire(telephone, "statistiques", () -> calculerStatistiques(telephone));
+    }
 
-        long nombreTransactions = transactions.size();
+    private java.util.Map<String, Object> calculerStatistiques(String telephone) {
+        // Sommes en centimes
+        long totalEnvoye = 0;
+        long totalRecu = 0;
+        long totalFrais = 0;
+        long nombreTransactions = 0;
+
+        Long compteId = compteRepository.findIdByNumeroTelephone(telephone).orElse(null);
+        if (compteId != null) {
+            for (Object[] ligne : transactionRepository.getStatistiquesParDirection(compteId)) {
+                long nombre = ((Number) ligne[1]).longValue();
+                long montant = ((Number) ligne[2]).longValue();
+                nombreTransactions += nombre;
+                if ("ENVOI".equals(ligne[0])) {
+                    totalEnvoye = montant;
+                    totalFrais = ((Number) ligne[3]).longValue();
+                } else {
+                    totalRecu = montant;
+                }
+            }
+        }
 
         return java.util.Map.of(
-                "totalEnvoye", totalEnvoye,
-                "totalRecu", totalRecu,
-                "totalFrais", totalFrais,
+                "totalEnvoye", Montant.versDecimal(totalEnvoye),
+                "totalRecu", Montant.versDecimal(totalRecu),
+                "totalFrais", Montant.versDecimal(totalFrais),
                 "nombreTransactions", nombreTransactions
         );
     }
@@ -148,6 +202,7 @@ public class TransactionService {
     }
 
     // ✅ ANNULATION D’UNE TRANSACTION (ADMIN)
+    @Transactional
     public void annulerTransaction(Long transactionId) {
         Transaction transaction = transactionRepository.findById(transactionId)
                 .orElseThrow(() -> new RuntimeException("Transaction non trouvée"));
@@ -159,16 +214,25 @@ public class TransactionService {
         Compte source = transaction.getCompteSource();
         Compte destination = transaction.getCompteDestination();
 
-        // Remboursement et mise à jour du solde
-        source.setSolde(source.getSolde() + transaction.getMontant());
-        destination.setSolde(destination.getSolde() - transaction.getMontant());
+        // ✅ Remboursement par UPDATE conditionnels (dépôts / retraits : une seule des deux parties)
+        if (destination != null && compteRepository.ajusterSolde(destination.getId(), -transaction.getMontant()) == 0) {
+            throw new RuntimeException("Annulation impossible : solde du destinataire insuffisant ou compte inactif");
+        }
+        if (source != null && compteRepository.ajusterSolde(source.getId(), transaction.getMontant()) == 0) {
+            throw new RuntimeException("Annulation impossible : compte source inactif");
+        }
 
+        String ancienStatut = transaction.getStatut();
         transaction.setStatut("ANNULE");
 
         transactionRepository.save(transaction);
-        // Si nécessaire : sauvegarder les comptes via CompteRepository
-        // compteRepository.save(source);
-        // compteRepository.save(destination);
+        grandLivre.contrepasser(transaction);
+        transactionRollupService.statutModifie(transaction, ancienStatut);
+        // Seule l'annulation d'un dépôt ou d'un retrait change la somme des soldes
+        statistiquesPlateforme.soldeModifie((source != null ? transaction.getMontant() : 0)
+                - (destination != null ? transaction.getMontant() : 0));
+        historiqueCache.invalider(source != null ? source.getNumeroTelephone() : null,
+                destination != null ? destination.getNumeroTelephone() : null);
     }
 
     // ✅ MÉTHODE POUR OBTENIR LE NUMÉRO DE REÇU D'UNE TRANSACTION
@@ -189,6 +253,23 @@ public class TransactionService {
         return null;
     }
 
+    // ✅ STATUT DE GÉNÉRATION DU REÇU (EN_ATTENTE, GENERE, ECHEC)
+    public StatutRecu getReceiptStatut(Long transactionId, String telephone) {
+        Transaction transaction = transactionRepository.findById(transactionId)
+                .orElseThrow(() -> new RuntimeException("Transaction non trouvée"));
+
+        // VÉRIFICATION DES PERMISSIONS
+        if (!transaction.getCompteSource().getNumeroTelephone().equals(telephone) &&
+                !transaction.getCompteDestination().getNumeroTelephone().equals(telephone)) {
+            throw new RuntimeException("Accès non autorisé");
+        }
+
+        if (transaction.getReceipt() != null) {
+            return StatutRecu.GENERE;
+        }
+        return transaction.getStatutRecu() != null ? transaction.getStatutRecu() : StatutRecu.EN_ATTENTE;
+    }
+
     // ✅ MÉTHODE POUR VÉRIFIER SI UN REÇU EXISTE
     public boolean hasReceipt(Long transactionId, String telephone) {
         Transaction transaction = transactionRepository.findById(transactionId)
@@ -0,0 +1,115 @@
+package com.transfert.transfertargent.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métriques de contention des transferts, globales (Micrometer) et par compte.
+ * Le détail par compte est exposé par l'endpoint actuator "contention" afin de
+ * ne pas créer une série Micrometer par numéro de compte.
+ */
+@Component
+public class TransfertContentionMetrics {
+
+    // Au-delà, les nouveaux comptes ne sont suivis que dans les métriques globales
+    private static final int MAX_COMPTES_SUIVIS = 10_000;
+
+    private final Map<Long, CompteContention> parCompte = new ConcurrentHashMap<>();
+    private final Counter conflits;
+    private final Counter abandons;
+    private final Timer dureeTransfert;
+
+    public TransfertContentionMetrics(MeterRegistry registry) {
+        this.conflits = Counter.builder("transfert.conflits")
+                .description("Conflits de verrous (deadlock, timeout) ayant provoqué une nouvelle tentative")
+                .register(registry);
+        this.abandons = Counter.builder("transfert.abandons")
+                .description("Transferts abandonnés après épuisement des tentatives")
+                .register(registry);
+        this.dureeTransfert = Timer.builder("transfert.duree")
+                .description("Durée des transactions de transfert, tentatives comprises")
+                .register(registry);
+    }
+
+    public void enregistrerSucces(long dureeNanos, Long... compteIds) {
+        dureeTransfert.record(dureeNanos, TimeUnit.NANOSECONDS);
+        for (Long id : compteIds) {
+            CompteContention c = pour(id);
+            if (c != null) {
+                c.succes.increment();
+                c.nanosTransaction.add(dureeNanos);
+            }
+        }
+    }
+
+    public void enregistrerConflit(Long... compteIds) {
+        conflits.increment();
+        for (Long id : compteIds) {
+            CompteContention c = pour(id);
+            if (c != null) {
+                c.conflits.increment();
+            }
+        }
+    }
+
+    public void enregistrerAbandon(Long... compteIds) {
+        abandons.increment();
+        for (Long id : compteIds) {
+            CompteContention c = pour(id);
+            if (c != null) {
+                c.abandons.increment();
+            }
+        }
+    }
+
+    /**
+     * Les comptes les plus disputés, triés par nombre de conflits décroissant
+     */
+    public List<Map<String, Object>> comptesLesPlusDisputes(int limite) {
+        return parCompte.entrySet().stream()
+                .sorted(Comparator.comparingLong(
+                        (Map.Entry<Long, CompteContention> e) -> e.getValue().conflits.sum()).reversed())
+                .limit(limite)
+                .map(e -> e.getValue().toMap(e.getKey()))
+                .toList();
+    }
+
+    private CompteContention pour(Long compteId) {
+        if (compteId == null) {
+            return null;
+        }
+        CompteContention existant = parCompte.get(compteId);
+        if (existant != null || parCompte.size() >= MAX_COMPTES_SUIVIS) {
+            return existant;
+        }
+        return parCompte.computeIfAbsent(compteId, id -> new CompteContention());
+    }
+
+    private static final class CompteContention {
+        private final LongAdder succes = new LongAdder();
+        private final LongAdder conflits = new LongAdder();
+        private final LongAdder abandons = new LongAdder();
+        private final LongAdder nanosTransaction = new LongAdder();
+
+        private Map<String, Object> toMap(Long compteId) {
+            long nbSucces = succes.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("compteId", compteId);
+            map.put("succes", nbSucces);
+            map.put("conflits", conflits.sum());
+            map.put("abandons", abandons.sum());
+            map.put("dureeMoyenneMs", nbSucces == 0 ? 0.0 : nanosTransaction.sum() / 1_000_000.0 / nbSucces);
+            return map;
+        }
+    }
+}
@@ -1,47 +1,302 @@
 package com.transfert.transfertargent.services;
 
+import com.transfert.transfertargent.dto.BatchTransfertResponse;
+import com.transfert.transfertargent.dto.TransfertRequest;
 import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.Montant;
+import com.transfert.transfertargent.models.StatutRecu;
 import com.transfert.transfertargent.models.Transaction;
 import com.transfert.transfertargent.repositories.CompteRepository;
 import com.transfert.transfertargent.repositories.TransactionRepository;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 public class TransfertService {
 
+    // Nouvelles tentatives en cas de deadlock / timeout de verrou
+    private static final int MAX_TENTATIVES = 5;
+    private static final long BACKOFF_INITIAL_MS = 5;
+
+    // Paiements en lot
+    private static final int MAX_LIGNES_LOT = 20_000;
+    private static final int TAILLE_CLAUSE_IN = 1_000;
+    private static final int TAILLE_BATCH_JDBC = 500;
+
+    // Frais de transfert : 1 %, arrondis au centime
+    private static final long TAUX_FRAIS_POINTS_DE_BASE = 100;
+
     private final CompteRepository compteRepository;
     private final TransactionRepository transactionRepository;
-    private final ReceiptService receiptService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IdempotencyService idempotencyService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransfertContentionMetrics contentionMetrics;
+    private final EntityManager entityManager;
+    private final HistoriqueCache historiqueCache;
+    private final StatistiquesPlateforme statistiquesPlateforme;
+    private final GrandLivreService grandLivre;
+    private final TransactionRollupService transactionRollupService;
 
-    @Transactional
     public Transaction effectuerTransfert(Compte compteSource, String telephoneDestinataire, Double montant) {
-        // 1. Calcul des frais (1%)
-        Double frais = montant * 0.01;
-        Double totalDebit = montant + frais;
+        return effectuerTransfert(compteSource, telephoneDestinataire, montant, null);
+    }
 
-        // 2. Vérification solde suffisant
-        if (compteSource.getSolde() < totalDebit) {
-            throw new RuntimeException("Solde insuffisant. Montant: " + montant + " + Frais: " + frais + " = " + totalDebit);
+    /**
+     * @param cleIdempotence clé enregistrée dans la même transaction que le transfert (null si absente)
+     */
+    public Transaction effectuerTransfert(Compte compteSource, String telephoneDestinataire, Double montant,
+                                         String cleIdempotence) {
+        if (montant == null || montant <= 0) {
+            throw new RuntimeException("Le montant doit être positif");
         }
 
-        // 3. Trouver le compte destinataire
+        // 1. Calcul des frais (1%), en centimes
+        long centimes = Montant.versCentimes(montant);
+        long frais = Montant.pourcentage(centimes, TAUX_FRAIS_POINTS_DE_BASE);
+        long totalDebit = centimes + frais;
+
+        // 2. Trouver le compte destinataire
         Compte compteDestinataire = compteRepository.findByNumeroTelephone(telephoneDestinataire)
                 .orElseThrow(() -> new RuntimeException("Destinataire avec le numéro " + telephoneDestinataire + " introuvable"));
 
-        // 4. Vérifier qu'on ne transfert pas à soi-même
+        // 3. Vérifier qu'on ne transfert pas à soi-même
         if (compteSource.getNumeroTelephone().equals(telephoneDestinataire)) {
             throw new RuntimeException("Impossible de transférer à votre propre compte");
         }
 
-        // 5. Mise à jour des soldes
-        compteSource.setSolde(compteSource.getSolde() - totalDebit);
-        compteDestinataire.setSolde(compteDestinataire.getSolde() + montant);
+        // 4. Transaction courte, rejouée si la base la désigne comme victime d'un deadlock
+        return executerAvecNouvellesTentatives(
+                () -> executerTransfert(compteSource, compteDestinataire, centimes, frais, totalDebit, cleIdempotence),
+                compteSource.getId(), compteDestinataire.getId());
+    }
+
+    /**
+     * Paiement en lot (salaires, marchands) : une seule requête pour des milliers de destinataires.
+     * Les destinataires sont résolus en une requête IN, le compte source est débité une seule fois
+     * et les crédits / lignes Transaction passent par le batching JDBC.
+     */
+    public BatchTransfertResponse effectuerTransfertsEnLot(Compte compteSource, List<TransfertRequest> lignes) {
+        if (lignes == null || lignes.isEmpty()) {
+            throw new RuntimeException("Le lot ne contient aucune ligne");
+        }
+        if (lignes.size() > MAX_LIGNES_LOT) {
+            throw new RuntimeException("Le lot dépasse la limite de " + MAX_LIGNES_LOT + " lignes");
+        }
+
+        // 1. Résolution de tous les destinataires en une passe
+        Map<String, Long> destinataires = resoudreDestinataires(lignes);
+
+        // 2. Validation ligne par ligne, sans toucher aux soldes
+        List<BatchTransfertResponse.LigneResultat> resultats = new ArrayList<>(lignes.size());
+        List<LigneValide> valides = new ArrayList<>();
+        long montantTotal = 0;
+        long fraisTotal = 0;
+        for (int i = 0; i < lignes.size(); i++) {
+            TransfertRequest ligne = lignes.get(i);
+            String telephone = ligne.getTelephoneDestinataire();
+            Double montant = ligne.getMontant();
+            String erreur = validerLigne(compteSource, telephone, montant, destinataires);
+            if (erreur != null) {
+                resultats.add(new BatchTransfertResponse.LigneResultat(i, telephone, montant, null, "REJETE", erreur));
+                continue;
+            }
+            long centimes = Montant.versCentimes(montant);
+            long frais = Montant.pourcentage(centimes, TAUX_FRAIS_POINTS_DE_BASE);
+            valides.add(new LigneValide(i, destinataires.get(telephone), centimes, frais));
+            resultats.add(new BatchTransfertResponse.LigneResultat(i, telephone, montant,
+                    Montant.versDecimal(frais), "SUCCES", null));
+            montantTotal += centimes;
+            fraisTotal += frais;
+        }
+
+        // 3. Débit unique + crédits + insertions, dans une transaction rejouable
+        if (!valides.isEmpty()) {
+            long totalDebit = montantTotal + fraisTotal;
+            try {
+                executerAvecNouvellesTentatives(
+                        () -> executerLot(compteSource.getId(), valides, totalDebit),
+                        compteSource.getId());
+                // Après le commit du lot : l'émetteur et chaque destinataire crédité
+                Set<String> comptesModifies = new HashSet<>();
+                comptesModifies.add(compteSource.getNumeroTelephone());
+                valides.forEach(v -> comptesModifies.add(lignes.get(v.index()).getTelephoneDestinataire()));
+                historiqueCache.invalider(comptesModifies);
+                statistiquesPlateforme.transactionsEnregistrees(valides.size(), -fraisTotal);
+            } catch (RuntimeException e) {
+                // Le lot est atomique : si la transaction échoue, aucune ligne n'est passée
+                for (LigneValide v : valides) {
+                    BatchTransfertResponse.LigneResultat r = resultats.get(v.index());
+                    r.setStatut("REJETE");
+                    r.setMessage(e.getMessage());
+                }
+                montantTotal = 0;
+                fraisTotal = 0;
+            }
+        }
+
+        int succes = (int) resultats.stream().filter(r -> "SUCCES".equals(r.getStatut())).count();
+        return new BatchTransfertResponse(lignes.size(), succes, lignes.size() - succes,
+                Montant.versDecimal(montantTotal), Montant.versDecimal(fraisTotal), resultats);
+    }
+
+    private Map<String, Long> resoudreDestinataires(List<TransfertRequest> lignes) {
+        List<String> telephones = lignes.stream()
+                .map(TransfertRequest::getTelephoneDestinataire)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+
+        Map<String, Long> destinataires = new HashMap<>(telephones.size() * 2);
+        // Découpage de la clause IN pour rester sous les limites de paramètres du driver
+        for (int debut = 0; debut < telephones.size(); debut += TAILLE_CLAUSE_IN) {
+            List<String> tranche = telephones.subList(debut, Math.min(debut + TAILLE_CLAUSE_IN, telephones.size()));
+            for (Object[] ligne : compteRepository.findIdsByNumeroTelephoneIn(tranche)) {
+                if (Boolean.TRUE.equals(ligne[2])) {
+                    destinataires.put((String) ligne[1], (Long) ligne[0]);
+                }
+            }
+        }
+        return destinataires;
+    }
 
-        compteRepository.save(compteSource);
-        compteRepository.save(compteDestinataire);
+    private String validerLigne(Compte compteSource, String telephone, Double montant, Map<String, Long> destinataires) {
+        if (montant == null || montant <= 0) {
+            return "Le montant doit être positif";
+        }
+        try {
+            Montant.versCentimes(montant);
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+        if (telephone == null || !destinataires.containsKey(telephone)) {
+            return "Destinataire avec le numéro " + telephone + " introuvable";
+        }
+        if (compteSource.getNumeroTelephone().equals(telephone)) {
+            return "Impossible de transférer à votre propre compte";
+        }
+        return null;
+    }
+
+    private Void executerLot(Long sourceId, List<LigneValide> valides, long totalDebit) {
+        // Crédits agrégés par compte dans des tableaux primitifs, triés par id
+        // (même ordre de verrouillage que les transferts unitaires)
+        LigneValide[] parDestination = valides.toArray(new LigneValide[0]);
+        Arrays.sort(parDestination, Comparator.comparingLong(LigneValide::destinationId));
+        long[] compteIds = new long[parDestination.length];
+        long[] montants = new long[parDestination.length];
+        int nombre = 0;
+        int avantSource = 0;
+        for (LigneValide v : parDestination) {
+            if (nombre > 0 && compteIds[nombre - 1] == v.destinationId()) {
+                montants[nombre - 1] += v.montant();
+                continue;
+            }
+            compteIds[nombre] = v.destinationId();
+            montants[nombre] = v.montant();
+            nombre++;
+            if (v.destinationId() < sourceId) {
+                avantSource = nombre;
+            }
+        }
+
+        crediterOuEchouer(compteIds, montants, 0, avantSource);
+        if (compteRepository.ajusterSolde(sourceId, -totalDebit) == 0) {
+            throw new RuntimeException("Solde insuffisant ou compte inactif pour le lot. Total à débiter (frais inclus): "
+                    + Montant.versDecimal(totalDebit));
+        }
+        crediterOuEchouer(compteIds, montants, avantSource, nombre);
+
+        // Insertions par l'ORM : ids de séquence pré-alloués, donc regroupées en batchs JDBC
+        // (hibernate.jdbc.batch_size) ; détachées à chaque flush pour garder le contexte léger.
+        // Les écritures du grand livre suivent le même chemin (hibernate.order_inserts les regroupe)
+        Compte source = entityManager.getReference(Compte.class, sourceId);
+        List<Object> enAttente = new ArrayList<>(TAILLE_BATCH_JDBC * 5);
+        for (LigneValide v : valides) {
+            Transaction transaction = Transaction.builder()
+                    .montant(v.montant())
+                    .frais(v.frais())
+                    .compteSource(source)
+                    .compteDestination(entityManager.getReference(Compte.class, v.destinationId()))
+                    .statut("SUCCES")
+                    .build();
+            entityManager.persist(transaction);
+            transactionRollupService.enregistree(transaction);
+            enAttente.add(transaction);
+            enAttente.addAll(grandLivre.enregistrer(transaction));
+            if (enAttente.size() >= TAILLE_BATCH_JDBC) {
+                flushEtDetacher(enAttente);
+            }
+        }
+        flushEtDetacher(enAttente);
+        return null;
+    }
+
+    // Un destinataire désactivé depuis la résolution annule tout le lot
+    private void crediterOuEchouer(long[] compteIds, long[] montants, int debut, int fin) {
+        int[] lignesModifiees = compteRepository.crediterEnLot(
+                Arrays.copyOfRange(compteIds, debut, fin), Arrays.copyOfRange(montants, debut, fin), TAILLE_BATCH_JDBC);
+        for (int i = 0; i < lignesModifiees.length; i++) {
+            if (lignesModifiees[i] == 0) {
+                throw new RuntimeException("Compte destinataire " + compteIds[debut + i] + " inactif");
+            }
+        }
+    }
+
+    private void flushEtDetacher(List<Object> entites) {
+        entityManager.flush();
+        entites.forEach(entityManager::detach);
+        entites.clear();
+    }
+
+    private <T> T executerAvecNouvellesTentatives(Supplier<T> travail, Long... compteIds) {
+        long debut = System.nanoTime();
+        for (int tentative = 1; ; tentative++) {
+            try {
+                T resultat = transactionTemplate.execute(status -> travail.get());
+                contentionMetrics.enregistrerSucces(System.nanoTime() - debut, compteIds);
+                return resultat;
+            } catch (ConcurrencyFailureException e) {
+                contentionMetrics.enregistrerConflit(compteIds);
+                if (tentative >= MAX_TENTATIVES) {
+                    contentionMetrics.enregistrerAbandon(compteIds);
+                    throw new RuntimeException("Transfert momentanément impossible, compte très sollicité. Veuillez réessayer");
+                }
+                attendreAvantNouvelleTentative(tentative);
+            }
+        }
+    }
+
+    private Transaction executerTransfert(Compte compteSource, Compte compteDestinataire,
+                                          long montant, long frais, long totalDebit,
+                                          String cleIdempotence) {
+        // 5. Mise à jour atomique des soldes, toujours dans l'ordre croissant des id
+        //    pour que deux transferts croisés verrouillent les lignes dans le même ordre
+        boolean sourceDAbord = compteSource.getId() < compteDestinataire.getId();
+        if (sourceDAbord) {
+            debiterOuEchouer(compteSource, montant, frais, totalDebit);
+            crediterOuEchouer(compteDestinataire, montant);
+        } else {
+            crediterOuEchouer(compteDestinataire, montant);
+            debiterOuEchouer(compteSource, montant, frais, totalDebit);
+        }
 
         // 6. Enregistrement de la transaction
         Transaction transaction = Transaction.builder()
@@ -50,20 +305,50 @@ public class TransfertService {
                 .compteSource(compteSource)
                 .compteDestination(compteDestinataire)
                 .statut("SUCCES")
+                .statutRecu(StatutRecu.EN_ATTENTE)
                 .build();
 
         Transaction transactionSauvegardee = transactionRepository.save(transaction);
+        transactionRollupService.enregistree(transactionSauvegardee);
+        grandLivre.enregistrer(transactionSauvegardee);
+        historiqueCache.invalider(compteSource.getNumeroTelephone(), compteDestinataire.getNumeroTelephone());
+        // Les montants changent de compte : seuls les frais sortent du solde total
+        statistiquesPlateforme.transactionsEnregistrees(1, -frais);
+        if (cleIdempotence != null) {
+            idempotencyService.enregistrer(cleIdempotence, transactionSauvegardee.getId());
+        }
 
-        // ✅ Génération du reçu
+        // ✅ Le reçu est généré de façon asynchrone, uniquement après le commit
+        eventPublisher.publishEvent(new ReceiptGenerationQueue.TransfertEffectueEvent(transactionSauvegardee.getId()));
+        return transactionSauvegardee;
+    }
+
+    private void debiterOuEchouer(Compte compteSource, long montant, long frais, long totalDebit) {
+        // Le contrôle du solde est fait par la base dans le même UPDATE : pas de mise à jour perdue
+        if (compteRepository.ajusterSolde(compteSource.getId(), -totalDebit) == 0) {
+            throw new RuntimeException("Solde insuffisant ou compte inactif. Montant: " + Montant.versDecimal(montant)
+                    + " + Frais: " + Montant.versDecimal(frais) + " = " + Montant.versDecimal(totalDebit));
+        }
+    }
+
+    private void crediterOuEchouer(Compte compteDestinataire, long montant) {
+        if (compteRepository.ajusterSolde(compteDestinataire.getId(), montant) == 0) {
+            throw new RuntimeException("Le compte destinataire " + compteDestinataire.getNumeroTelephone() + " est inactif");
+        }
+    }
+
+    // Backoff exponentiel avec jitter pour éviter que les perdants ne se percutent à nouveau
+    private void attendreAvantNouvelleTentative(int tentative) {
+        long plafond = BACKOFF_INITIAL_MS << tentative;
         try {
-            receiptService.generateReceipt(transactionSauvegardee);
-            // ✅ Recharger la transaction pour avoir le reçu
-            return transactionRepository.findById(transactionSauvegardee.getId())
-                    .orElse(transactionSauvegardee);
-        } catch (Exception e) {
-            // ✅ En cas d'erreur de génération, on retourne quand même la transaction
-            System.err.println("Erreur génération reçu: " + e.getMessage());
-            return transactionSauvegardee;
+            Thread.sleep(ThreadLocalRandom.current().nextLong(BACKOFF_INITIAL_MS, plafond + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Transfert interrompu");
         }
     }
-}
\ No newline at end of file
+
+    // Montant et frais en centimes
+    private record LigneValide(int index, long destinationId, long montant, long frais) {
+    }
+}
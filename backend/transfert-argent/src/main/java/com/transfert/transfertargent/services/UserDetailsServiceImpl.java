@@ -1,21 +1,71 @@
 package com.transfert.transfertargent.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.transfert.transfertargent.models.PrincipalUtilisateur;
 import com.transfert.transfertargent.models.User;  // Importer User
 import com.transfert.transfertargent.repositories.UserRepository;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
 
 @Service
-@RequiredArgsConstructor
 public class UserDetailsServiceImpl implements UserDetailsService {
 
     private final UserRepository userRepository;
 
+    // ✅ Principaux des requêtes JWT, par téléphone. La durée de vie borne le délai
+    // de prise en compte d'un changement fait hors des services qui invalident.
+    private final Cache<String, PrincipalUtilisateur> principaux;
+
+    public UserDetailsServiceImpl(UserRepository userRepository,
+                                  @Value("${securite.principal.cache.taille-max:10000}") long tailleMax,
+                                  @Value("${securite.principal.cache.ttl-secondes:60}") long ttlSecondes) {
+        this.userRepository = userRepository;
+        this.principaux = Caffeine.newBuilder()
+                .maximumSize(tailleMax)
+                .expireAfterWrite(Duration.ofSeconds(ttlSecondes))
+                .build();
+    }
+
     @Override
     public User loadUserByUsername(String telephone) throws UsernameNotFoundException {
-        // Charger l'utilisateur à partir du téléphone
+        // Charger l'utilisateur à partir du téléphone (connexion : mot de passe requis)
         return userRepository.findByTelephone(telephone)
                 .orElseThrow(() -> new UsernameNotFoundException("Utilisateur non trouvé"));
     }
+
+    // ✅ Principal d'une requête authentifiée par JWT : aucune requête SQL tant qu'il est en cache
+    public PrincipalUtilisateur chargerPrincipal(String telephone) throws UsernameNotFoundException {
+        return principaux.get(telephone, t -> PrincipalUtilisateur.depuis(loadUserByUsername(t)));
+    }
+
+    /**
+     * À appeler après toute modification du rôle, du statut, du téléphone ou du mot de passe.
+     * Dans une transaction, l'invalidation est répétée après le commit pour ne pas garder
+     * un instantané relu entre-temps.
+     */
+    public void invaliderPrincipal(String... telephones) {
+        invaliderMaintenant(telephones);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invaliderMaintenant(telephones);
+                }
+            });
+        }
+    }
+
+    private void invaliderMaintenant(String... telephones) {
+        for (String telephone : telephones) {
+            if (telephone != null) {
+                principaux.invalidate(telephone);
+            }
+        }
+    }
 }
@@ -5,6 +5,7 @@ import com.transfert.transfertargent.dto.PasswordChangeDTO;
 import com.transfert.transfertargent.dto.CompteInfoDTO;
 import com.transfert.transfertargent.models.User;
 import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.Montant;
 import com.transfert.transfertargent.repositories.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -20,6 +21,7 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserDetailsServiceImpl userDetailsService;
 
     // ✅ Méthode existante
     public User getUserById(Long userId) {
@@ -67,6 +69,8 @@ public class UserService {
         user.setPhotoProfil(profileDTO.getPhotoProfil());
 
         User updatedUser = userRepository.save(user);
+        // L'ancien et le nouveau numéro : le principal est indexé par téléphone
+        userDetailsService.invaliderPrincipal(telephone, updatedUser.getTelephone());
         return mapToProfileDTO(updatedUser);
     }
 
@@ -94,6 +98,7 @@ public class UserService {
         // Mettre à jour le mot de passe
         user.setPassword(passwordEncoder.encode(passwordDTO.getNewPassword()));
         userRepository.save(user);
+        userDetailsService.invaliderPrincipal(telephone);
     }
 
     // ✅ NOUVEAU: Vérifier si un email existe déjà
@@ -138,7 +143,7 @@ public class UserService {
     private CompteInfoDTO mapToCompteInfoDTO(Compte compte) {
         CompteInfoDTO dto = new CompteInfoDTO();
         dto.setId(compte.getId());
-        dto.setSolde(compte.getSolde());
+        dto.setSolde(Montant.versDecimal(compte.getSolde()));
         dto.setTypeCompte(compte.getTypeCompte());
         dto.setNumeroTelephone(compte.getNumeroTelephone());
         dto.setDateCreation(compte.getDateCreation());
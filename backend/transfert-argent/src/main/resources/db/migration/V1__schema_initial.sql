@@ -0,0 +1,72 @@
+-- Schéma initial, identique à celui produit jusqu'ici par spring.jpa.hibernate.ddl-auto=update
+-- (ids auto-incrémentés). Les bases existantes sont marquées à cette version
+-- (spring.flyway.baseline-version=1) : tout ajout ultérieur va dans V2 et suivantes.
+
+create table users (
+    id bigint not null auto_increment,
+    nom varchar(255),
+    prenom varchar(255),
+    email varchar(255),
+    telephone varchar(255),
+    password varchar(255),
+    pays varchar(255),
+    numero_piece varchar(255),
+    photo_piece varchar(255),
+    photo_profil varchar(255),
+    role enum ('ADMIN','USER'),
+    enabled bit not null,
+    created_at datetime(6),
+    primary key (id)
+) engine=InnoDB;
+
+create table comptes (
+    id bigint not null auto_increment,
+    solde float(53),
+    date_creation datetime(6) not null,
+    type_compte varchar(255),
+    numero_telephone varchar(255) not null,
+    active bit not null,
+    user_id bigint not null,
+    primary key (id),
+    constraint uk_comptes_numero_telephone unique (numero_telephone),
+    constraint uk_comptes_user unique (user_id),
+    constraint fk_comptes_user foreign key (user_id) references users (id)
+) engine=InnoDB;
+
+create table transaction (
+    id bigint not null auto_increment,
+    montant float(53),
+    frais float(53),
+    compte_source_id bigint,
+    compte_destination_id bigint,
+    statut varchar(255),
+    date_transaction datetime(6),
+    primary key (id),
+    constraint fk_transaction_source foreign key (compte_source_id) references comptes (id),
+    constraint fk_transaction_destination foreign key (compte_destination_id) references comptes (id)
+) engine=InnoDB;
+
+create table receipts (
+    id bigint not null auto_increment,
+    numero varchar(255) not null,
+    date_generation datetime(6),
+    url_fichier varchar(255),
+    transaction_id bigint,
+    primary key (id),
+    constraint uk_receipts_numero unique (numero),
+    constraint uk_receipts_transaction unique (transaction_id),
+    constraint fk_receipts_transaction foreign key (transaction_id) references transaction (id)
+) engine=InnoDB;
+
+create table historique_transaction (
+    id bigint not null auto_increment,
+    montant float(53),
+    frais float(53),
+    compte_source_id bigint,
+    compte_destination_id bigint,
+    statut varchar(255),
+    date_transaction datetime(6),
+    primary key (id),
+    constraint fk_historique_source foreign key (compte_source_id) references comptes (id),
+    constraint fk_historique_destination foreign key (compte_destination_id) references comptes (id)
+) engine=InnoDB;
@@ -0,0 +1,86 @@
+-- Ajouts au schéma initial (V1) : tables, colonnes et séquences introduites avant Flyway, puis
+-- index des requêtes fréquentes des repositories (vérifiés par QueryPlanTest).
+
+-- Statut de la génération asynchrone du reçu
+alter table transaction add column statut_recu enum ('ECHEC','EN_ATTENTE','GENERE');
+
+create table receipt_dead_letters (
+    id bigint not null,
+    transaction_id bigint not null,
+    tentatives integer not null,
+    derniere_erreur varchar(1000),
+    date_echec datetime(6),
+    primary key (id)
+) engine=InnoDB;
+
+create table idempotency_keys (
+    id bigint not null,
+    cle varchar(150) not null,
+    transaction_id bigint not null,
+    date_creation datetime(6) not null,
+    primary key (id),
+    constraint uk_idempotency_keys_cle unique (cle)
+) engine=InnoDB;
+
+create table transaction_rollups (
+    id bigint not null,
+    granularite enum ('HEURE','JOUR') not null,
+    periode datetime(6) not null,
+    statut varchar(30) not null,
+    type varchar(20) not null,
+    nombre bigint not null,
+    montant float(53) not null,
+    frais float(53) not null,
+    primary key (id),
+    constraint uk_rollup_periode unique (granularite, periode, statut, type)
+) engine=InnoDB;
+
+create table rollup_watermarks (
+    nom varchar(50) not null,
+    valeur datetime(6) not null,
+    primary key (nom)
+) engine=InnoDB;
+
+-- Séquences d'ids émulées par des tables (allocation par blocs de 50) ; les ids auto-incrémentés
+-- existants restent valides, les séquences sont recalées au démarrage (SequenceInitializer)
+create table users_seq (next_val bigint) engine=InnoDB;
+insert into users_seq values (1);
+create table comptes_seq (next_val bigint) engine=InnoDB;
+insert into comptes_seq values (1);
+create table transaction_seq (next_val bigint) engine=InnoDB;
+insert into transaction_seq values (1);
+create table receipts_seq (next_val bigint) engine=InnoDB;
+insert into receipts_seq values (1);
+create table historique_transaction_seq (next_val bigint) engine=InnoDB;
+insert into historique_transaction_seq values (1);
+create table receipt_dead_letters_seq (next_val bigint) engine=InnoDB;
+insert into receipt_dead_letters_seq values (1);
+create table idempotency_keys_seq (next_val bigint) engine=InnoDB;
+insert into idempotency_keys_seq values (1);
+create table transaction_rollups_seq (next_val bigint) engine=InnoDB;
+insert into transaction_rollups_seq values (1);
+
+-- TransactionRepository : parcours par curseur (date_transaction, id) de l'historique
+create index idx_transaction_source_date on transaction (compte_source_id, date_transaction, id);
+create index idx_transaction_destination_date on transaction (compte_destination_id, date_transaction, id);
+-- TransactionRepository : parcours par plage de dates (rollups, statistiques admin)
+create index idx_transaction_date on transaction (date_transaction);
+
+-- UserRepository : findByTelephone / existsByTelephone / findByTelephoneAndIdNot (authentification, profil)
+create index idx_users_telephone on users (telephone);
+-- UserRepository : findByEmail / existsByEmail / findByEmailAndIdNot (inscription, profil)
+create index idx_users_email on users (email);
+-- UserRepository : findAllOrderByCreatedAtDesc / findRecentUsers / countByCreatedAtBetween
+create index idx_users_created_at on users (created_at);
+
+-- CompteRepository : findByDateCreationBetween / countByDateCreationBetween
+create index idx_comptes_date_creation on comptes (date_creation);
+
+-- TransactionRepository : findByStatut / findByStatutWithPagination
+create index idx_transaction_statut_date on transaction (statut, date_transaction);
+
+-- IdempotencyKeyRepository : deleteByDateCreationBefore (purge horaire)
+create index idx_idempotency_keys_date_creation on idempotency_keys (date_creation);
+
+-- ReceiptEchecRepository : findByTransactionId
+create index idx_receipt_dead_letters_transaction on receipt_dead_letters (transaction_id);
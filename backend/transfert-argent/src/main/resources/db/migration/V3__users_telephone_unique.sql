@@ -0,0 +1,3 @@
+-- Le téléphone devient l'identifiant naturel des utilisateurs (cache de second niveau) : il doit être unique
+drop index idx_users_telephone on users;
+alter table users add constraint uk_users_telephone unique (telephone);
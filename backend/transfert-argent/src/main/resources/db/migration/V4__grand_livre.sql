@@ -0,0 +1,49 @@
+-- Grand livre en partie double et instantanés de soldes par compte
+create table ecritures_comptables (
+    id bigint not null,
+    transaction_id bigint,
+    compte_id bigint,
+    compte_technique enum ('CAISSE','FRAIS'),
+    sens enum ('CREDIT','DEBIT') not null,
+    nature enum ('ANNULATION','DEPOT','FRAIS','OUVERTURE','RETRAIT','TRANSFERT') not null,
+    montant float(53) not null,
+    date_ecriture datetime(6) not null,
+    primary key (id),
+    constraint fk_ecritures_compte foreign key (compte_id) references comptes (id)
+) engine=InnoDB;
+
+create index idx_ecritures_compte_date on ecritures_comptables (compte_id, date_ecriture);
+create index idx_ecritures_date on ecritures_comptables (date_ecriture);
+create index idx_ecritures_transaction on ecritures_comptables (transaction_id);
+
+create table soldes_instantanes (
+    id bigint not null,
+    compte_id bigint not null,
+    date_instantane datetime(6) not null,
+    solde float(53) not null,
+    primary key (id),
+    constraint uk_solde_instantane unique (compte_id, date_instantane)
+) engine=InnoDB;
+
+create table ecritures_comptables_seq (next_val bigint) engine=InnoDB;
+insert into ecritures_comptables_seq values (1);
+create table soldes_instantanes_seq (next_val bigint) engine=InnoDB;
+insert into soldes_instantanes_seq values (1);
+
+-- Reprise : le solde actuel de chaque compte devient une écriture d'ouverture, juste avant un
+-- premier instantané. Les séquences sont recalées au démarrage (SequenceInitializer).
+insert into rollup_watermarks (nom, valeur) values ('instantanes', current_timestamp(6));
+
+insert into ecritures_comptables (id, transaction_id, compte_id, compte_technique, sens, nature, montant, date_ecriture)
+select 2 * c.id, null, c.id, null, 'CREDIT', 'OUVERTURE', c.solde, timestampadd(second, -1, w.valeur)
+from comptes c join rollup_watermarks w on w.nom = 'instantanes'
+where c.solde > 0;
+
+insert into ecritures_comptables (id, transaction_id, compte_id, compte_technique, sens, nature, montant, date_ecriture)
+select 2 * c.id + 1, null, null, 'CAISSE', 'DEBIT', 'OUVERTURE', c.solde, timestampadd(second, -1, w.valeur)
+from comptes c join rollup_watermarks w on w.nom = 'instantanes'
+where c.solde > 0;
+
+insert into soldes_instantanes (id, compte_id, date_instantane, solde)
+select c.id, c.id, w.valeur, coalesce(c.solde, 0)
+from comptes c join rollup_watermarks w on w.nom = 'instantanes';
@@ -0,0 +1,21 @@
+-- Montants en centimes (BIGINT) au lieu de DOUBLE : calculs exacts, sans arrondi flottant (voir Montant)
+update comptes set solde = round(coalesce(solde, 0) * 100);
+alter table comptes modify column solde bigint not null;
+
+update transaction set montant = round(coalesce(montant, 0) * 100), frais = round(coalesce(frais, 0) * 100);
+alter table transaction modify column montant bigint not null;
+alter table transaction modify column frais bigint not null;
+
+update historique_transaction set montant = round(coalesce(montant, 0) * 100), frais = round(coalesce(frais, 0) * 100);
+alter table historique_transaction modify column montant bigint not null;
+alter table historique_transaction modify column frais bigint not null;
+
+update transaction_rollups set montant = round(montant * 100), frais = round(frais * 100);
+alter table transaction_rollups modify column montant bigint not null;
+alter table transaction_rollups modify column frais bigint not null;
+
+update ecritures_comptables set montant = round(montant * 100);
+alter table ecritures_comptables modify column montant bigint not null;
+
+update soldes_instantanes set solde = round(solde * 100);
+alter table soldes_instantanes modify column solde bigint not null;
@@ -0,0 +1,4 @@
+-- Empreinte SHA-256 (hex) et taille du PDF d'un reçu : ETag fort des téléchargements.
+-- Les reçus déjà générés sont complétés à leur premier téléchargement.
+alter table receipts add column empreinte varchar(64);
+alter table receipts add column taille bigint;
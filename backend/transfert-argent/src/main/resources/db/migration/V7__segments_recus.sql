@@ -0,0 +1,6 @@
+-- Reçus rangés dans des segments (SegmentReceiptStore) : numéro du segment et position du PDF ;
+-- la longueur et la somme de contrôle sont taille et empreinte (V6). Les reçus sans segment
+-- restent des fichiers isolés (url_fichier).
+alter table receipts add column segment bigint;
+alter table receipts add column position_segment bigint;
+create index idx_receipts_segment on receipts (segment, position_segment);
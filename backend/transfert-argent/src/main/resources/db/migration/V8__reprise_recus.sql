@@ -0,0 +1,2 @@
+-- Reprise des reçus restés EN_ATTENTE (ReceiptGenerationQueue.reprendre) : parcours par statut puis id.
+create index idx_transaction_statut_recu on transaction (statut_recu, id);
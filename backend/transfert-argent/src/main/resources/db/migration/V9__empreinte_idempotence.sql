@@ -0,0 +1,3 @@
+-- Empreinte SHA-256 (hex) de la requête qui a utilisé une Idempotency-Key : un rejeu avec la même
+-- clé mais un autre destinataire ou montant est refusé. Les clés existantes restent sans empreinte.
+alter table idempotency_keys add column empreinte_requete varchar(64);
@@ -0,0 +1,154 @@
+package com.transfert.benchmarks;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Import de 100 000 transactions par Hibernate sur H2 embarqué (mode MySQL) :
+ * ids IDENTITY (un aller-retour par ligne, batching impossible) contre séquence
+ * allouée par blocs de 50 avec hibernate.jdbc.batch_size et order_inserts.
+ * Hors du paquet de l'application : ses entités ne doivent pas entrer dans le scan JPA des tests.
+ *
+ * Lancement : mvn test-compile puis exécuter main() avec le classpath de test.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InsertionLotBenchmark {
+
+    private static final int LIGNES = 100_000;
+    private static final int TAILLE_FLUSH = 500;
+
+    @Param({"IDENTITY", "SEQUENCE"})
+    public String generation;
+
+    private SessionFactory sessionFactory;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        Configuration configuration = new Configuration()
+                .setProperty("hibernate.connection.url", "jdbc:h2:mem:bench_" + generation + ";MODE=MySQL;DB_CLOSE_DELAY=-1")
+                .setProperty("hibernate.connection.username", "sa")
+                .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+                .setProperty("hibernate.jdbc.batch_size", "100")
+                .setProperty("hibernate.order_inserts", "true")
+                .setProperty("hibernate.show_sql", "false");
+        configuration.addAnnotatedClass("IDENTITY".equals(generation) ? LigneIdentity.class : LigneSequence.class);
+        sessionFactory = configuration.buildSessionFactory();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public int importer() {
+        boolean identity = "IDENTITY".equals(generation);
+        try (Session session = sessionFactory.openSession()) {
+            Transaction tx = session.beginTransaction();
+            LocalDateTime maintenant = LocalDateTime.now();
+            for (int i = 0; i < LIGNES; i++) {
+                Object ligne = identity
+                        ? new LigneIdentity(1000.0 + i, 10.0, 1L, 2L + i % 1000, "SUCCES", maintenant)
+                        : new LigneSequence(1000.0 + i, 10.0, 1L, 2L + i % 1000, "SUCCES", maintenant);
+                session.persist(ligne);
+                if ((i + 1) % TAILLE_FLUSH == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            tx.commit();
+        }
+        return LIGNES;
+    }
+
+    @Entity
+    @Table(name = "transaction_identity")
+    public static class LigneIdentity {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Long id;
+        private Double montant;
+        private Double frais;
+        private Long compteSourceId;
+        private Long compteDestinationId;
+        private String statut;
+        private LocalDateTime dateTransaction;
+
+        protected LigneIdentity() {
+        }
+
+        LigneIdentity(Double montant, Double frais, Long source, Long destination, String statut, LocalDateTime date) {
+            this.montant = montant;
+            this.frais = frais;
+            this.compteSourceId = source;
+            this.compteDestinationId = destination;
+            this.statut = statut;
+            this.dateTransaction = date;
+        }
+    }
+
+    @Entity
+    @Table(name = "transaction_sequence")
+    public static class LigneSequence {
+        @Id
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bench_seq")
+        @SequenceGenerator(name = "bench_seq", sequenceName = "bench_seq", allocationSize = 50)
+        private Long id;
+        private Double montant;
+        private Double frais;
+        private Long compteSourceId;
+        private Long compteDestinationId;
+        private String statut;
+        private LocalDateTime dateTransaction;
+
+        protected LigneSequence() {
+        }
+
+        LigneSequence(Double montant, Double frais, Long source, Long destination, String statut, LocalDateTime date) {
+            this.montant = montant;
+            this.frais = frais;
+            this.compteSourceId = source;
+            this.compteDestinationId = destination;
+            this.statut = statut;
+            this.dateTransaction = date;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(InsertionLotBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,83 @@
+package com.transfert.benchmarks;
+
+import com.transfert.transfertargent.models.Role;
+import com.transfert.transfertargent.models.User;
+import com.transfert.transfertargent.services.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût de l'authentification d'une requête : extractTelephone (filtre), isTokenValid (filtre)
+ * puis extractTelephone (contrôleur).
+ * "ancien" reproduit l'ancien JwtService (clé + parseur reconstruits, trois vérifications HMAC) ;
+ * "cache" passe par le JwtService actuel (parseur partagé, claims vérifiés en cache).
+ *
+ * Lancement : mvn test-compile puis exécuter main() avec le classpath de test.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET_KEY = "12345678901234567890123456789012";
+
+    private JwtService jwtService;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtService = new JwtService(10_000);
+        user = User.builder().id(1L).nom("Diop").prenom("Awa").telephone("770000000").role(Role.USER).build();
+        token = jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean ancien() {
+        String telephone = ancienParse(token).getSubject();
+        boolean valide = ancienParse(token).getSubject().equals(user.getTelephone())
+                && !ancienParse(token).getExpiration().before(new Date());
+        return valide && ancienParse(token).getSubject().equals(telephone);
+    }
+
+    @Benchmark
+    public boolean cache() {
+        String telephone = jwtService.extractTelephone(token);
+        boolean valide = jwtService.isTokenValid(token, user);
+        return valide && jwtService.extractTelephone(token).equals(telephone);
+    }
+
+    private static Claims ancienParse(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET_KEY.getBytes()))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
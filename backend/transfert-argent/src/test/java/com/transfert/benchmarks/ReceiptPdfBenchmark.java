@@ -0,0 +1,228 @@
+package com.transfert.benchmarks;
+
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.Chunk;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Element;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.Phrase;
+import com.itextpdf.text.pdf.PdfPCell;
+import com.itextpdf.text.pdf.PdfPTable;
+import com.itextpdf.text.pdf.PdfWriter;
+import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.Montant;
+import com.transfert.transfertargent.models.Role;
+import com.transfert.transfertargent.models.Transaction;
+import com.transfert.transfertargent.models.User;
+import com.transfert.transfertargent.services.TemplatePdfGenerationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendu d'un reçu PDF, en reçus par seconde ; le profileur GC ajoute les octets alloués
+ * par reçu (gc.alloc.rate.norm).
+ * "ancien" reproduit l'ancien ReceiptService (polices, formateurs, Paragraph et PdfPTable
+ * reconstruits à chaque reçu) ; "gabarit" passe par TemplatePdfGenerationService.
+ * Les deux écrivent dans une sortie nulle pour ne mesurer que le rendu.
+ *
+ * Lancement : mvn test-compile puis exécuter main() avec le classpath de test.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ReceiptPdfBenchmark {
+
+    private TemplatePdfGenerationService gabarit;
+    private Transaction transaction;
+
+    @Setup
+    public void setup() throws Exception {
+        gabarit = new TemplatePdfGenerationService();
+        transaction = Transaction.builder()
+                .id(123_456L)
+                .montant(2_500_000)
+                .frais(25_000)
+                .statut("SUCCES")
+                .dateTransaction(LocalDateTime.of(2024, 1, 15, 10, 45))
+                .compteSource(compte("Awa", "Diop", "770000000"))
+                .compteDestination(compte("Moussa", "Ndiaye", "780000000"))
+                .build();
+    }
+
+    @Benchmark
+    public void ancien() throws Exception {
+        Document document = new Document();
+        try {
+            PdfWriter.getInstance(document, OutputStream.nullOutputStream());
+            document.open();
+            addTitle(document);
+            addTransactionDetails(document, transaction);
+            addPartiesInfo(document, transaction);
+            addFooter(document);
+        } finally {
+            if (document.isOpen()) {
+                document.close();
+            }
+        }
+    }
+
+    @Benchmark
+    public void gabarit() throws Exception {
+        gabarit.writeReceiptPdf(transaction, OutputStream.nullOutputStream());
+    }
+
+    private static Compte compte(String prenom, String nom, String telephone) {
+        User user = User.builder().nom(nom).prenom(prenom).telephone(telephone).role(Role.USER).build();
+        return Compte.builder().numeroTelephone(telephone).typeCompte("COURANT").user(user).build();
+    }
+
+    // --- Ancien rendu (ReceiptService avant le gabarit) ---
+
+    /**
+     * Ajoute le titre au PDF
+     */
+    private static void addTitle(Document document) throws DocumentException {
+        Font titleFont = new Font(Font.FontFamily.HELVETICA, 18, Font.BOLD, BaseColor.BLUE);
+        Paragraph title = new Paragraph("REÇU DE TRANSFERT D'ARGENT", titleFont);
+        title.setAlignment(Element.ALIGN_CENTER);
+        title.setSpacingAfter(20);
+        document.add(title);
+    }
+
+    /**
+     * Ajoute les détails de la transaction au PDF
+     */
+    private static void addTransactionDetails(Document document, Transaction transaction) throws DocumentException {
+        Font boldFont = new Font(Font.FontFamily.HELVETICA, 12, Font.BOLD);
+        Font normalFont = new Font(Font.FontFamily.HELVETICA, 12);
+
+        PdfPTable table = new PdfPTable(2);
+        table.setWidthPercentage(100);
+        table.setSpacingBefore(10);
+        table.setSpacingAfter(20);
+
+        addTableRow(table, "Numéro Transaction:", transaction.getId().toString(), boldFont, normalFont);
+        addTableRow(table, "Date Transaction:",
+                transaction.getDateTransaction().format(DateTimeFormatter.ofPattern("dd/MM/yyyy à HH:mm")),
+                boldFont, normalFont);
+        addTableRow(table, "Montant Transféré:", Montant.formater(transaction.getMontant()), boldFont, normalFont);
+        addTableRow(table, "Frais (1%):", Montant.formater(transaction.getFrais()), boldFont, normalFont);
+        addTableRow(table, "Total Débité:", Montant.formater(transaction.getMontant() + transaction.getFrais()), boldFont, normalFont);
+        addTableRow(table, "Statut:", transaction.getStatut(), boldFont, normalFont);
+
+        document.add(table);
+    }
+
+    /**
+     * Ajoute les informations des parties au PDF
+     */
+    private static void addPartiesInfo(Document document, Transaction transaction) throws DocumentException {
+        Font headerFont = new Font(Font.FontFamily.HELVETICA, 14, Font.BOLD, BaseColor.DARK_GRAY);
+        Font normalFont = new Font(Font.FontFamily.HELVETICA, 12);
+
+        // ✅ Section Expéditeur
+        Paragraph expediteurHeader = new Paragraph("EXPÉDITEUR", headerFont);
+        expediteurHeader.setSpacingAfter(10);
+        document.add(expediteurHeader);
+
+        PdfPTable expediteurTable = new PdfPTable(2);
+        expediteurTable.setWidthPercentage(100);
+        expediteurTable.setSpacingAfter(20);
+
+        addTableRow(expediteurTable, "Nom:",
+                transaction.getCompteSource().getUser().getPrenom() + " " +
+                        transaction.getCompteSource().getUser().getNom(),
+                normalFont, normalFont);
+        addTableRow(expediteurTable, "Téléphone:",
+                transaction.getCompteSource().getNumeroTelephone(),
+                normalFont, normalFont);
+
+        document.add(expediteurTable);
+
+        // ✅ Section Destinataire
+        Paragraph destinataireHeader = new Paragraph("DESTINATAIRE", headerFont);
+        destinataireHeader.setSpacingAfter(10);
+        document.add(destinataireHeader);
+
+        PdfPTable destinataireTable = new PdfPTable(2);
+        destinataireTable.setWidthPercentage(100);
+
+        addTableRow(destinataireTable, "Nom:",
+                transaction.getCompteDestination().getUser().getPrenom() + " " +
+                        transaction.getCompteDestination().getUser().getNom(),
+                normalFont, normalFont);
+        addTableRow(destinataireTable, "Téléphone:",
+                transaction.getCompteDestination().getNumeroTelephone(),
+                normalFont, normalFont);
+
+        document.add(destinataireTable);
+    }
+
+    /**
+     * Ajoute le footer au PDF
+     */
+    private static void addFooter(Document document) throws DocumentException {
+        Font footerFont = new Font(Font.FontFamily.HELVETICA, 10, Font.ITALIC);
+        Font smallFont = new Font(Font.FontFamily.HELVETICA, 8);
+
+        Paragraph footer = new Paragraph("\n\n", footerFont);
+        footer.add(new Chunk("Ce reçu est une preuve légale de votre transaction. ", footerFont));
+        footer.add(new Chunk("Conservez-le pour vos archives.", footerFont));
+        footer.setAlignment(Element.ALIGN_CENTER);
+        document.add(footer);
+
+        Paragraph generatedInfo = new Paragraph(
+                "Généré le " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy à HH:mm")),
+                smallFont
+        );
+        generatedInfo.setAlignment(Element.ALIGN_CENTER);
+        document.add(generatedInfo);
+    }
+
+    /**
+     * Ajoute une ligne au tableau PDF
+     */
+    private static void addTableRow(PdfPTable table, String label, String value, Font labelFont, Font valueFont) {
+        PdfPCell labelCell = new PdfPCell(new Phrase(label, labelFont));
+        labelCell.setBorder(PdfPCell.NO_BORDER);
+        labelCell.setPadding(5);
+
+        PdfPCell valueCell = new PdfPCell(new Phrase(value, valueFont));
+        valueCell.setBorder(PdfPCell.NO_BORDER);
+        valueCell.setPadding(5);
+
+        table.addCell(labelCell);
+        table.addCell(valueCell);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ReceiptPdfBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
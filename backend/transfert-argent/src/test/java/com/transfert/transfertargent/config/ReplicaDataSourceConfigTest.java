@@ -0,0 +1,152 @@
+package com.transfert.transfertargent.config;
+
+import com.transfert.transfertargent.models.User;
+import com.transfert.transfertargent.repositories.UserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// ✅ Deux bases H2 locales : les transactions readOnly lisent la réplique, sauf juste après une écriture
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ReplicaDataSourceConfig.class, LectureApresEcriture.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:principale;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "datasource.replica.url=jdbc:h2:mem:replique;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "datasource.replica.username=sa",
+        "datasource.replica.collant-secondes=1",
+        "spring.jpa.hibernate.ddl-auto=none"
+})
+class ReplicaDataSourceConfigTest {
+
+    private static final String TELEPHONE = "770000001";
+    private static final String AUTRE_TELEPHONE = "770000002";
+
+    @Autowired
+    private HikariDataSource principaleDataSource;
+
+    @Autowired
+    private HikariDataSource repliqueDataSource;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LectureApresEcriture lectureApresEcriture;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void preparerBases() {
+        // Flyway n'a migré que la principale (datasource @Primary)
+        Flyway.configure().dataSource(repliqueDataSource).load().migrate();
+        inserer(principaleDataSource, "PRINCIPALE");
+        inserer(repliqueDataSource, "REPLIQUE");
+    }
+
+    @AfterEach
+    void nettoyer() {
+        SecurityContextHolder.clearContext();
+        new JdbcTemplate(principaleDataSource).update("DELETE FROM users");
+        new JdbcTemplate(repliqueDataSource).update("DELETE FROM users");
+    }
+
+    @Test
+    void lecturesSurLaRepliqueEcrituresSurLaPrincipale() {
+        assertThat(lire(TELEPHONE, true)).isEqualTo("REPLIQUE");
+        assertThat(lire(TELEPHONE, false)).isEqualTo("PRINCIPALE");
+    }
+
+    @Test
+    void lectureDeSesPropresEcrituresPendantLaFenetre() throws InterruptedException {
+        authentifier(TELEPHONE);
+        lectureApresEcriture.marquer(List.of(TELEPHONE));
+        assertThat(lire(TELEPHONE, true)).isEqualTo("PRINCIPALE");
+
+        // Un autre utilisateur continue de lire la réplique
+        authentifier(AUTRE_TELEPHONE);
+        assertThat(lire(TELEPHONE, true)).isEqualTo("REPLIQUE");
+
+        // Fenêtre expirée : retour sur la réplique
+        authentifier(TELEPHONE);
+        Thread.sleep(1500);
+        assertThat(lire(TELEPHONE, true)).isEqualTo("REPLIQUE");
+    }
+
+    @Test
+    void lecturesSurLaRepliqueNAlimententPasLeCacheDeSecondNiveau() {
+        lire(TELEPHONE, true);
+        assertThat(entityManagerFactory.getCache().contains(User.class, 1L)).isFalse();
+
+        lire(TELEPHONE, false);
+        assertThat(entityManagerFactory.getCache().contains(User.class, 1L)).isTrue();
+    }
+
+    @Test
+    void ecritureApresLectureDansLeMemeEntityManager() {
+        // Contexte de persistance partagé par les deux transactions, comme celui d'une requête web
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        try {
+            assertThat(lire(TELEPHONE, true)).isEqualTo("REPLIQUE");
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    entityManager.createNativeQuery("UPDATE users SET nom = 'ECRIT'").executeUpdate());
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            entityManager.close();
+        }
+
+        assertThat(nom(principaleDataSource)).isEqualTo("ECRIT");
+        assertThat(nom(repliqueDataSource)).isEqualTo("REPLIQUE");
+    }
+
+    private String lire(String telephone, boolean readOnly) {
+        // Cache de second niveau vidé : chaque lecture montre la base effectivement interrogée
+        entityManagerFactory.getCache().evictAll();
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(readOnly);
+        return template.execute(status -> userRepository.findByTelephone(telephone).map(User::getNom).orElse(null));
+    }
+
+    private static String nom(HikariDataSource dataSource) {
+        return new JdbcTemplate(dataSource).queryForObject("SELECT nom FROM users", String.class);
+    }
+
+    private static void inserer(HikariDataSource dataSource, String nom) {
+        new JdbcTemplate(dataSource).update(
+                "INSERT INTO users (id, nom, telephone, role, enabled) VALUES (1, ?, ?, 'USER', true)", nom, TELEPHONE);
+    }
+
+    private static void authentifier(String telephone) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(telephone, null, List.of()));
+    }
+}
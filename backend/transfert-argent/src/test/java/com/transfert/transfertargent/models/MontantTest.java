@@ -0,0 +1,34 @@
+package com.transfert.transfertargent.models;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// ✅ Conversions aux frontières et frais calculés en centimes, sans arrondi flottant
+class MontantTest {
+
+    @Test
+    void conversionExacteDesMontantsSaisis() {
+        assertThat(Montant.versCentimes(0.29)).isEqualTo(29);
+        assertThat(Montant.versCentimes(1234.5)).isEqualTo(123_450);
+        assertThat(Montant.versCentimes(100.0)).isEqualTo(10_000);
+        assertThat(Montant.versDecimal(123_450)).isEqualTo(1234.5);
+        assertThatThrownBy(() -> Montant.versCentimes(10.001)).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> Montant.versCentimes(null)).isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void fraisArrondisAuCentimeLePlusProche() {
+        // 1 % de 10,50 = 0,105 -> 0,11 ; de 10,49 = 0,1049 -> 0,10
+        assertThat(Montant.pourcentage(1_050, 100)).isEqualTo(11);
+        assertThat(Montant.pourcentage(1_049, 100)).isEqualTo(10);
+        assertThat(Montant.pourcentage(100_000, 100)).isEqualTo(1_000);
+        // La somme des frais d'un lot est exactement celle des lignes
+        long total = 0;
+        for (int i = 0; i < 1_000; i++) {
+            total += Montant.pourcentage(1_010, 100);
+        }
+        assertThat(total).isEqualTo(10_000);
+    }
+}
@@ -0,0 +1,157 @@
+package com.transfert.transfertargent.repositories;
+
+import com.transfert.transfertargent.config.CacheNiveau2Config;
+import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.Role;
+import com.transfert.transfertargent.models.User;
+import com.transfert.transfertargent.support.TestJpaH2;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// ✅ Lectures par téléphone servies par le cache de second niveau, sans solde périmé après un débit / crédit
+@TestJpaH2
+@Import({CacheNiveau2Config.class, CacheNiveau2Test.Metriques.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class CacheNiveau2Test {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CompteRepository compteRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private Statistics statistiques;
+    private Long compteId;
+
+    @BeforeEach
+    void preparer() {
+        statistiques = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        enTransaction(() -> {
+            compteRepository.deleteAll();
+            userRepository.deleteAll();
+            return null;
+        });
+        compteId = enTransaction(() -> {
+            User user = User.builder().telephone("770000001").role(Role.USER).build();
+            entityManager.persist(user);
+            Compte compte = Compte.builder().numeroTelephone("770000001").solde(100_000).user(user).build();
+            entityManager.persist(compte);
+            return compte.getId();
+        });
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void rechercheParTelephoneSansRequeteUneFoisEnCache() {
+        enTransaction(() -> userRepository.findByTelephone("770000001"));
+        enTransaction(() -> compteRepository.findByNumeroTelephone("770000001"));
+
+        statistiques.clear();
+        assertThat(enTransaction(() -> userRepository.findByTelephone("770000001"))).isPresent();
+        assertThat(enTransaction(() -> compteRepository.findByNumeroTelephone("770000001"))).isPresent();
+        assertThat(enTransaction(() -> compteRepository.findByUser_Id(compteRepository.findByNumeroTelephone("770000001")
+                .orElseThrow().getUser().getId()))).hasSize(1);
+        assertThat(enTransaction(() -> compteRepository.findByUser_Id(
+                userRepository.findByTelephone("770000001").orElseThrow().getId()))).hasSize(1);
+
+        assertThat(statistiques.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistiques.getQueryCacheHitCount()).isEqualTo(1);
+        assertThat(registry.get("cache.gets").tags("cache", CacheNiveau2Config.REGION_COMPTES_NUMERO, "result", "hit")
+                .functionCounter().count()).isPositive();
+    }
+
+    @Test
+    void soldeAJourApresDebitCreditEtCreditsEnLot() {
+        assertThat(solde()).isEqualTo(100_000);
+
+        enTransaction(() -> compteRepository.ajusterSolde(compteId, -10_000));
+        assertThat(solde()).isEqualTo(90_000);
+
+        enTransaction(() -> compteRepository.ajusterSolde(compteId, 5_000));
+        assertThat(solde()).isEqualTo(95_000);
+
+        enTransaction(() -> {
+            compteRepository.crediterEnLot(new long[]{compteId}, new long[]{2_500}, 100);
+            return null;
+        });
+        assertThat(solde()).isEqualTo(97_500);
+
+        // Transaction annulée : l'entrée verrouillée est libérée, la lecture suivante relit la base
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.executeWithoutResult(status -> {
+            compteRepository.ajusterSolde(compteId, -1_000);
+            status.setRollbackOnly();
+        });
+        assertThat(solde()).isEqualTo(97_500);
+    }
+
+    @Test
+    void ajustementRefuseSiSoldeNegatifOuCompteInactif() {
+        assertThat(enTransaction(() -> compteRepository.ajusterSolde(compteId, -100_001))).isZero();
+        assertThat(enTransaction(() -> compteRepository.ajusterSolde(compteId, -100_000))).isEqualTo(1);
+        assertThat(solde()).isZero();
+
+        enTransaction(() -> {
+            compteRepository.findById(compteId).orElseThrow().setActive(false);
+            return null;
+        });
+        assertThat(enTransaction(() -> compteRepository.ajusterSolde(compteId, 1_000))).isZero();
+        assertThat(enTransaction(() -> compteRepository.crediterEnLot(new long[]{compteId}, new long[]{1_000}, 100)))
+                .containsExactly(0);
+        assertThat(solde()).isZero();
+    }
+
+    private Long solde() {
+        // Lu deux fois : la seconde lecture vient du cache et doit être identique
+        Long premier = enTransaction(() -> compteRepository.findByNumeroTelephone("770000001").orElseThrow().getSolde());
+        Long second = enTransaction(() -> compteRepository.findById(compteId).orElseThrow().getSolde());
+        assertThat(second).isEqualTo(premier);
+        return premier;
+    }
+
+    private <T> T enTransaction(Supplier<T> travail) {
+        return new TransactionTemplate(transactionManager).execute(status -> travail.get());
+    }
+
+    @TestConfiguration
+    static class Metriques {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.transfert.transfertargent.repositories;
+
+import com.transfert.transfertargent.models.TransactionRollup;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Plans d'exécution des requêtes fréquentes sur le schéma des migrations Flyway (H2 en mode MySQL).
+ * Échoue si une requête chaude retombe sur un parcours complet d'une table.
+ * Chaque méthode de repository est appelée ; le SQL qu'Hibernate envoie réellement est capturé
+ * (StatementInspector) puis passé à EXPLAIN, paramètres laissés en « ? ».
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:plans;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.username=sa",
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+class QueryPlanTest {
+
+    private static final LocalDateTime DEBUT = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime FIN = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+    @TestConfiguration
+    static class Capture {
+
+        @Bean
+        SqlCapture sqlCapture() {
+            return new SqlCapture();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer inspecteurSql(SqlCapture capture) {
+            return proprietes -> proprietes.put(AvailableSettings.STATEMENT_INSPECTOR, capture);
+        }
+    }
+
+    // SQL préparé par Hibernate, dans l'ordre d'envoi
+    static class SqlCapture implements StatementInspector {
+
+        private final List<String> requetes = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            requetes.add(sql);
+            return sql;
+        }
+    }
+
+    @Autowired
+    private SqlCapture capture;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CompteRepository compteRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    @Autowired
+    private ReceiptEchecRepository receiptEchecRepository;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private TransactionRollupRepository transactionRollupRepository;
+
+    @Autowired
+    private EcritureComptableRepository ecritureComptableRepository;
+
+    @Autowired
+    private SoldeInstantaneRepository soldeInstantaneRepository;
+
+    @Test
+    void requetesFrequentesSansParcoursComplet() {
+        Map<String, Runnable> appels = new LinkedHashMap<>();
+        // UserRepository
+        appels.put("findByTelephone", () -> userRepository.findByTelephone("770000000"));
+        appels.put("findByEmail", () -> userRepository.findByEmail("a@b.c"));
+        appels.put("countByCreatedAtBetween", () -> userRepository.countByCreatedAtBetween(DEBUT, FIN));
+        // CompteRepository
+        appels.put("findIdByNumeroTelephone", () -> compteRepository.findIdByNumeroTelephone("770000000"));
+        appels.put("findIdsByNumeroTelephoneIn",
+                () -> compteRepository.findIdsByNumeroTelephoneIn(List.of("770000000", "770000001")));
+        appels.put("findByUser_Id", () -> compteRepository.findByUser_Id(1L));
+        // TransactionRepository
+        appels.put("findHistoriqueLignes", () -> transactionRepository.findHistoriqueLignes(1L, DEBUT, FIN, 0L, 51));
+        appels.put("findEnvoyeesLignes", () -> transactionRepository.findEnvoyeesLignes(1L, FIN, 0L, PageRequest.of(0, 51)));
+        appels.put("findRecuesLignes", () -> transactionRepository.findRecuesLignes(1L, FIN, 0L, PageRequest.of(0, 51)));
+        appels.put("getStatistiquesParDirection", () -> transactionRepository.getStatistiquesParDirection(1L));
+        appels.put("streamEnvoyees", () -> consommer(transactionRepository.streamEnvoyees(1L, DEBUT, FIN)));
+        appels.put("streamRecues", () -> consommer(transactionRepository.streamRecues(1L, DEBUT, FIN)));
+        appels.put("agregerParJour", () -> transactionRepository.agregerParJour(DEBUT, FIN));
+        appels.put("agregerParStatutEtType", () -> transactionRepository.agregerParStatutEtType(DEBUT, FIN));
+        appels.put("findByStatut", () -> transactionRepository.findByStatut("ANNULE"));
+        appels.put("findIdsRecusEnAttente",
+                () -> transactionRepository.findIdsRecusEnAttente(FIN, 0L, PageRequest.of(0, 500)));
+        // ReceiptRepository
+        appels.put("findByTransactionId", () -> receiptRepository.findByTransactionId(1L));
+        appels.put("findByNumero", () -> receiptRepository.findByNumero("RC-1"));
+        appels.put("findTop500BySegmentAndPositionSegmentGreaterThan",
+                () -> receiptRepository.findTop500BySegmentAndPositionSegmentGreaterThanOrderByPositionSegment(1L, 0L));
+        appels.put("octetsVivantsParSegment", () -> receiptRepository.octetsVivantsParSegment());
+        appels.put("findUrlFichierByNumeroIn", () -> receiptRepository.findUrlFichierByNumeroIn(List.of("RC-1", "RC-2")));
+        // ReceiptEchecRepository
+        appels.put("findByTransactionId (échecs)", () -> receiptEchecRepository.findByTransactionId(1L));
+        // IdempotencyKeyRepository
+        appels.put("findByCle", () -> idempotencyKeyRepository.findByCle("770000000:cle"));
+        appels.put("deleteByDateCreationBefore", () -> idempotencyKeyRepository.deleteByDateCreationBefore(DEBUT));
+        // TransactionRollupRepository
+        appels.put("sommerEntre",
+                () -> transactionRollupRepository.sommerEntre(TransactionRollup.Granularite.JOUR, DEBUT, FIN));
+        appels.put("sommerParPeriode",
+                () -> transactionRollupRepository.sommerParPeriode(TransactionRollup.Granularite.JOUR, DEBUT, FIN));
+        appels.put("findByGranulariteAndPeriodeAndStatutAndType", () -> transactionRollupRepository
+                .findByGranulariteAndPeriodeAndStatutAndType(TransactionRollup.Granularite.HEURE, DEBUT, "SUCCES", "DEPOT"));
+        // EcritureComptableRepository / SoldeInstantaneRepository (grand livre)
+        appels.put("variationEntre", () -> ecritureComptableRepository.variationEntre(1L, DEBUT, FIN));
+        appels.put("variationsParCompte", () -> ecritureComptableRepository.variationsParCompte(DEBUT, FIN));
+        appels.put("findFirstByCompteIdAndDateInstantaneLessThanEqual", () -> soldeInstantaneRepository
+                .findFirstByCompteIdAndDateInstantaneLessThanEqualOrderByDateInstantaneDesc(1L, FIN));
+
+        for (Map.Entry<String, Runnable> appel : appels.entrySet()) {
+            capture.requetes.clear();
+            appel.getValue().run();
+            assertThat(capture.requetes).as("SQL de %s", appel.getKey()).isNotEmpty();
+            for (String sql : capture.requetes) {
+                verifierSansParcoursComplet(appel.getKey(), sql);
+            }
+        }
+
+        // Écrit en JDBC, hors Hibernate : SQL lu sur l'implémentation
+        verifierSansParcoursComplet("ajusterSolde",
+                (String) ReflectionTestUtils.getField(CompteRepositoryCustomImpl.class, "AJUSTER_SOLDE"));
+    }
+
+    private void verifierSansParcoursComplet(String nom, String sql) {
+        List<String> plan = jdbcTemplate.query(connexion -> connexion.prepareStatement("EXPLAIN " + sql),
+                (ligne, i) -> ligne.getString(1));
+        assertThat(String.join("\n", plan))
+                .as("Plan de %s : %s", nom, sql)
+                .doesNotContain("tableScan");
+    }
+
+    private static void consommer(Stream<?> flux) {
+        try (flux) {
+            flux.forEach(ligne -> {
+            });
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.transfert.transfertargent.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// ✅ Base existante (schéma ddl-auto=update d'avant Flyway, avec données) : marquée en V1, migrée puis validée
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:baseline;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.username=sa",
+        "spring.flyway.enabled=true",
+        "spring.flyway.baseline-on-migrate=true",
+        "spring.flyway.baseline-version=1",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+class SchemaBaselineMigrationsTest {
+
+    @TestConfiguration
+    static class BaseExistante {
+
+        // Avant les migrations : la base telle que l'a laissée la version d'avant Flyway
+        @Bean
+        FlywayMigrationStrategy baseExistantePuisMigration() {
+            return flyway -> {
+                DataSource dataSource = flyway.getConfiguration().getDataSource();
+                new ResourceDatabasePopulator(new ClassPathResource("db/baseline/schema_ddl_auto_update.sql"))
+                        .execute(dataSource);
+                JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+                jdbc.update("INSERT INTO users (nom, prenom, telephone, role, enabled, created_at) " +
+                        "VALUES ('Diop', 'Awa', '770000000', 'USER', true, CURRENT_TIMESTAMP)");
+                jdbc.update("INSERT INTO comptes (solde, date_creation, type_compte, numero_telephone, active, user_id) " +
+                        "VALUES (1500.5, CURRENT_TIMESTAMP, 'COURANT', '770000000', true, 1)");
+                flyway.migrate();
+            };
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void baseExistanteMigreeDepuisLaBaseline() {
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT version FROM flyway_schema_history WHERE version IS NOT NULL ORDER BY installed_rank", String.class))
+                .startsWith("1", "2");
+        // V5 : montants en centimes ; V4 : écritures d'ouverture reprises du solde
+        assertThat(jdbcTemplate.queryForObject("SELECT solde FROM comptes", Long.class)).isEqualTo(150_050L);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ecritures_comptables WHERE nature = 'OUVERTURE'", Integer.class)).isEqualTo(2);
+    }
+}
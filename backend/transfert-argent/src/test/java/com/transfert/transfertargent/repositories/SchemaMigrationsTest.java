@@ -0,0 +1,33 @@
+package com.transfert.transfertargent.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// ✅ Migrations Flyway appliquées sur une base vide puis validées par Hibernate contre les entités
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:migrations;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.username=sa",
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+class SchemaMigrationsTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void schemaDesMigrationsConformeAuxEntites() {
+        // Le contexte ne démarre que si ddl-auto=validate accepte le schéma migré
+        assertThat(jdbcTemplate.queryForList("SELECT success FROM flyway_schema_history", Boolean.class))
+                .isNotEmpty()
+                .containsOnly(true);
+    }
+}
@@ -0,0 +1,109 @@
+package com.transfert.transfertargent.repositories;
+
+import com.transfert.transfertargent.dto.TransactionLigne;
+import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.Transaction;
+import com.transfert.transfertargent.support.Comptes;
+import com.transfert.transfertargent.support.TestJpaH2;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// ✅ Une page d'historique = une seule requête, quel que soit le nombre de correspondants
+@TestJpaH2
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class TransactionRepositoryProjectionTest {
+
+    private static final LocalDateTime DEBUT = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final LocalDateTime FIN = LocalDateTime.of(9999, 1, 1, 0, 0);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void historiqueEnUneRequeteQuelQueSoitLeNombreDeCorrespondants() {
+        Compte titulaire = Comptes.creer(entityManager, "770000000");
+        creerTransactions(titulaire, 2);
+        assertThat(requetesParPage(titulaire.getId())).containsExactly(1L, 1L, 1L);
+
+        Compte autre = Comptes.creer(entityManager, "770000001");
+        creerTransactions(autre, 40);
+        assertThat(requetesParPage(autre.getId())).containsExactly(1L, 1L, 1L);
+    }
+
+    @Test
+    void projectionRenseigneLesNumerosDesDeuxParties() {
+        Compte titulaire = Comptes.creer(entityManager, "780000000");
+        creerTransactions(titulaire, 3);
+        entityManager.clear();
+
+        List<TransactionLigne> historique = transactionRepository
+                .findHistoriqueLignes(titulaire.getId(), DEBUT, FIN, 0L, 50);
+        assertThat(historique).hasSize(6);
+        assertThat(historique).allSatisfy(l -> {
+            assertThat(l.compteSourceNumero()).isNotNull();
+            assertThat(l.compteDestinationNumero()).isNotNull();
+        });
+
+        List<TransactionLigne> envoyees = transactionRepository
+                .findEnvoyeesLignes(titulaire.getId(), FIN, 0L, PageRequest.of(0, 50));
+        assertThat(envoyees).hasSize(3)
+                .allSatisfy(l -> assertThat(l.compteSourceNumero()).isEqualTo("780000000"));
+    }
+
+    // Requêtes préparées pour une page de chaque finder (historique, envoyées, reçues), mesurées séparément
+    private List<Long> requetesParPage(Long compteId) {
+        return List.of(
+                requetes(() -> transactionRepository.findHistoriqueLignes(compteId, DEBUT, FIN, 0L, 50)),
+                requetes(() -> transactionRepository.findEnvoyeesLignes(compteId, FIN, 0L, PageRequest.of(0, 50))),
+                requetes(() -> transactionRepository.findRecuesLignes(compteId, FIN, 0L, PageRequest.of(0, 50))));
+    }
+
+    private long requetes(Runnable page) {
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        page.run();
+        // Aucune entité chargée : pas de requête N+1 sur les comptes
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        return statistics.getPrepareStatementCount();
+    }
+
+    // Un envoi et une réception par correspondant, chacun avec son propre compte et utilisateur
+    private void creerTransactions(Compte titulaire, int correspondants) {
+        for (int i = 0; i < correspondants; i++) {
+            Compte correspondant = Comptes.creer(entityManager, titulaire.getNumeroTelephone() + "-" + i);
+            entityManager.persist(transaction(titulaire, correspondant));
+            entityManager.persist(transaction(correspondant, titulaire));
+        }
+        entityManager.flush();
+    }
+
+    private Transaction transaction(Compte source, Compte destination) {
+        return Transaction.builder()
+                .montant(100_000)
+                .frais(1_000)
+                .statut("SUCCES")
+                .compteSource(source)
+                .compteDestination(destination)
+                .build();
+    }
+}
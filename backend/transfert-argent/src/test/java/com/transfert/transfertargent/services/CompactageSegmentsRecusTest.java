@@ -0,0 +1,137 @@
+package com.transfert.transfertargent.services;
+
+import com.transfert.transfertargent.models.Receipt;
+import com.transfert.transfertargent.repositories.ReceiptRepository;
+import com.transfert.transfertargent.support.TestJpaH2;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// ✅ Compactage : reçus vivants recopiés hors des segments à moitié morts, fichiers isolés rangés, anciens emplacements
+// supprimés, y compris ceux laissés par un redémarrage
+@TestJpaH2
+@Import({ReceiptNumberGenerator.class, FichierReceiptStore.class, SegmentReceiptStore.class, CompactageSegmentsRecus.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "recus.numero.noeud=0",
+        "recus.segments.taille-max=100B",
+        "recus.segments.compactage.seuil=0.6",
+        "recus.segments.compactage.grace=PT0S"
+})
+class CompactageSegmentsRecusTest {
+
+    @TempDir
+    static Path dossier;
+
+    @DynamicPropertySource
+    static void segments(DynamicPropertyRegistry registry) {
+        registry.add("recus.segments.dossier", () -> dossier.resolve("segments").toString());
+        registry.add("recus.fichiers.dossier", () -> dossier.resolve("receipts").toString());
+    }
+
+    @Autowired
+    private SegmentReceiptStore store;
+
+    @Autowired
+    private CompactageSegmentsRecus compactage;
+
+    @Autowired
+    private FichierReceiptStore fichiers;
+
+    @Autowired
+    private ReceiptRepository receiptRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void segmentsAMoitieMortsEtFichiersIsolesRanges() throws Exception {
+        // Segment 1 : A puis un doublon mort ; segment 2 : C et D, plein ; segment 3 (actif) : E
+        Receipt a = enregistrer("RCA");
+        Receipt mort = enregistrer("RCX");
+        enregistrer("RCC");
+        enregistrer("RCD");
+        enregistrer("RCE");
+        receiptRepository.delete(mort);
+        Path fichier = Files.write(dossier.resolve("RCF.pdf"), pdf("RCF"));
+        Receipt isole = receiptRepository.save(Receipt.builder().numero("RCF").urlFichier(fichier.toString()).build());
+
+        compactage.compacter();
+
+        Receipt deplace = receiptRepository.findByNumero("RCA").orElseThrow();
+        assertThat(deplace.getSegment()).isEqualTo(3L);
+        assertThat(deplace.getPositionSegment()).isEqualTo(40L);
+        assertThat(deplace.getEmpreinte()).isEqualTo(a.getEmpreinte());
+        assertThat(lire(deplace)).isEqualTo(pdf("RCA"));
+        assertThat(receiptRepository.findByNumero("RCC").orElseThrow().getSegment()).isEqualTo(2L);
+
+        Receipt range = receiptRepository.findById(isole.getId()).orElseThrow();
+        assertThat(range.getUrlFichier()).isNull();
+        assertThat(range.getSegment()).isEqualTo(4L);
+        assertThat(range.getEmpreinte()).isEqualTo(sha256(pdf("RCF")));
+        assertThat(lire(range)).isEqualTo(pdf("RCF"));
+
+        // Passage suivant, délai de grâce écoulé : segment 1 et fichier isolé supprimés
+        compactage.compacter();
+        assertThat(dossier.resolve("segments/segment-0000-000001.dat")).doesNotExist();
+        assertThat(dossier.resolve("segments/segment-0000-000002.dat")).exists();
+        assertThat(fichier).doesNotExist();
+        assertThat(lire(receiptRepository.findByNumero("RCA").orElseThrow())).isEqualTo(pdf("RCA"));
+
+        // Redémarrage avant l'échéance : fichier de RCA (rangé depuis) et fichier sans reçu restés sur disque
+        Path receipts = Files.createDirectories(dossier.resolve("receipts"));
+        Path laisse = Files.write(receipts.resolve("RCA.pdf"), pdf("RCA"));
+        Path sansRecu = Files.write(receipts.resolve("RCZ.pdf"), pdf("RCZ"));
+        Receipt isoleRestant = Receipt.builder().numero("RCK").build();
+        fichiers.enregistrer(isoleRestant, pdf("RCK"));
+        receiptRepository.save(isoleRestant);
+
+        new CompactageSegmentsRecus(store, fichiers, receiptRepository, transactionTemplate, 0.6, Duration.ZERO).compacter();
+        assertThat(laisse).doesNotExist();
+        assertThat(sansRecu).doesNotExist();
+        // Référencé au balayage, rangé ensuite : supprimé seulement au passage suivant
+        assertThat(receipts.resolve("RCK.pdf")).exists();
+        assertThat(receiptRepository.findByNumero("RCK").orElseThrow().getSegment()).isNotNull();
+    }
+
+    private Receipt enregistrer(String numero) throws Exception {
+        byte[] pdf = pdf(numero);
+        Receipt receipt = Receipt.builder().numero(numero).empreinte(sha256(pdf)).build();
+        store.enregistrer(receipt, pdf);
+        return receiptRepository.save(receipt);
+    }
+
+    private byte[] lire(Receipt receipt) throws Exception {
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+        store.copier(receipt, 0, receipt.getTaille(), Channels.newChannel(sortie));
+        return sortie.toByteArray();
+    }
+
+    // 40 octets : deux reçus par segment de 100
+    private static byte[] pdf(String numero) {
+        String contenu = "%PDF-1.4 " + numero;
+        return (contenu + " ".repeat(40 - contenu.length())).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String sha256(byte[] pdf) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(pdf));
+    }
+}
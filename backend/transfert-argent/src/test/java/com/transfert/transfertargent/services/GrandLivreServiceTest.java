@@ -0,0 +1,198 @@
+package com.transfert.transfertargent.services;
+
+import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.Transaction;
+import com.transfert.transfertargent.repositories.CompteRepository;
+import com.transfert.transfertargent.repositories.SoldeInstantaneRepository;
+import com.transfert.transfertargent.repositories.TransactionRepository;
+import com.transfert.transfertargent.support.Comptes;
+import com.transfert.transfertargent.support.TestJpaH2;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// ✅ Solde d'après le grand livre (instantané + écritures suivantes) égal à Compte.solde, vérifié par le rapprochement
+@TestJpaH2
+@Import({GrandLivreService.class, ReconciliationGrandLivre.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "grand-livre.instantanes.delai-securite=PT0S",
+        "grand-livre.instantanes.delai-initial=PT1H",
+        "grand-livre.reconciliation.partitions=3"
+})
+class GrandLivreServiceTest {
+
+    @Autowired
+    private GrandLivreService grandLivre;
+
+    @Autowired
+    private ReconciliationGrandLivre reconciliation;
+
+    @Autowired
+    private CompteRepository compteRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private SoldeInstantaneRepository instantaneRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long a;
+    private Long b;
+
+    @BeforeEach
+    void preparer() {
+        for (String table : new String[]{"ecritures_comptables", "soldes_instantanes", "rollup_watermarks",
+                "transaction", "comptes", "users"}) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+        a = creerCompte("710000001", 100_000);
+        b = creerCompte("710000002", 0);
+    }
+
+    @Test
+    void soldeDuGrandLivreEgalAuSoldeDesComptes() throws InterruptedException {
+        transfert(a, b, 20_000, 200);
+        mouvement(b, 5_000);
+        mouvement(a, -10_000);
+
+        Thread.sleep(5);
+        grandLivre.instantaner();
+        assertThat(instantaneRepository.count()).isEqualTo(2);
+
+        // Écritures postérieures à l'instantané, dont l'annulation d'un transfert
+        Long retour = transfert(b, a, 3_000, 30);
+        annuler(retour);
+        transfert(b, a, 1_000, 10);
+
+        LocalDateTime apres = LocalDateTime.now().plusSeconds(1);
+        assertThat(grandLivre.soldeA(a, apres)).isEqualTo(solde(a));
+        assertThat(grandLivre.soldeA(b, apres)).isEqualTo(solde(b));
+        assertThat(solde(a)).isEqualTo(100_000 - 20_200 - 10_000 + 1_000);
+
+        ReconciliationGrandLivre.Resultat resultat = reconciliation.reconcilier();
+        assertThat(resultat.comptes()).isEqualTo(2);
+        assertThat(resultat.nombreEcarts()).isZero();
+        assertThat(resultat.totalGrandLivre()).isEqualTo(resultat.totalSoldes());
+
+        // Partie double : débits = crédits, comptes techniques compris
+        Long desequilibre = jdbcTemplate.queryForObject("SELECT SUM(CASE WHEN sens = 'CREDIT' " +
+                "THEN montant ELSE -montant END) FROM ecritures_comptables", Long.class);
+        assertThat(desequilibre).isZero();
+    }
+
+    @Test
+    void ecrituresValideesApresUnInstantaneRedateesAuCommit() throws InterruptedException {
+        enTransaction(() -> {
+            transfert(a, b, 7_000, 70);
+            // Passage pendant la transaction, depuis un autre thread : ses écritures ne sont pas encore visibles
+            sleep();
+            CompletableFuture.runAsync(grandLivre::instantaner).join();
+            sleep();
+            return null;
+        });
+        Thread.sleep(5);
+        grandLivre.instantaner();
+
+        LocalDateTime apres = LocalDateTime.now().plusSeconds(1);
+        assertThat(grandLivre.soldeA(a, apres)).isEqualTo(solde(a)).isEqualTo(100_000 - 7_070);
+        assertThat(grandLivre.soldeA(b, apres)).isEqualTo(7_000);
+        assertThat(reconciliation.reconcilier().nombreEcarts()).isZero();
+    }
+
+    @Test
+    void rapprochementSignaleUnSoldeModifieHorsGrandLivre() {
+        transfert(a, b, 10_000, 100);
+        jdbcTemplate.update("UPDATE comptes SET solde = solde + 5 WHERE id = ?", b);
+
+        ReconciliationGrandLivre.Resultat resultat = reconciliation.reconcilier();
+        assertThat(resultat.nombreEcarts()).isEqualTo(1);
+        assertThat(resultat.ecarts().get(0).compteId()).isEqualTo(b);
+        assertThat(resultat.ecarts().get(0).grandLivre()).isEqualTo(10_000);
+    }
+
+    // Montants en centimes
+    private Long transfert(Long source, Long destination, long montant, long frais) {
+        return enTransaction(() -> {
+            assertThat(compteRepository.ajusterSolde(source, -(montant + frais))).isEqualTo(1);
+            assertThat(compteRepository.ajusterSolde(destination, montant)).isEqualTo(1);
+            return enregistrer(Transaction.builder().montant(montant).frais(frais)
+                    .compteSource(entityManager.getReference(Compte.class, source))
+                    .compteDestination(entityManager.getReference(Compte.class, destination)));
+        });
+    }
+
+    // Dépôt (variation positive) ou retrait
+    private void mouvement(Long compteId, long variation) {
+        enTransaction(() -> {
+            assertThat(compteRepository.ajusterSolde(compteId, variation)).isEqualTo(1);
+            Compte compte = entityManager.getReference(Compte.class, compteId);
+            return enregistrer(Transaction.builder().montant(Math.abs(variation)).frais(0)
+                    .compteSource(variation < 0 ? compte : null)
+                    .compteDestination(variation > 0 ? compte : null));
+        });
+    }
+
+    private void annuler(Long transactionId) {
+        enTransaction(() -> {
+            Transaction transaction = transactionRepository.findById(transactionId).orElseThrow();
+            compteRepository.ajusterSolde(transaction.getCompteDestination().getId(), -transaction.getMontant());
+            compteRepository.ajusterSolde(transaction.getCompteSource().getId(), transaction.getMontant());
+            transaction.setStatut("ANNULE");
+            grandLivre.contrepasser(transaction);
+            return null;
+        });
+    }
+
+    private Long enregistrer(Transaction.TransactionBuilder builder) {
+        Transaction transaction = transactionRepository.save(builder.statut("SUCCES").build());
+        grandLivre.enregistrer(transaction);
+        return transaction.getId();
+    }
+
+    private long solde(Long compteId) {
+        return jdbcTemplate.queryForObject("SELECT solde FROM comptes WHERE id = ?", Long.class, compteId);
+    }
+
+    private Long creerCompte(String telephone, long solde) {
+        return enTransaction(() -> {
+            Compte compte = Comptes.creer(entityManager, telephone, solde);
+            grandLivre.ouverture(compte);
+            return compte.getId();
+        });
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> T enTransaction(Supplier<T> travail) {
+        return transactionTemplate.execute(status -> travail.get());
+    }
+}
@@ -0,0 +1,63 @@
+package com.transfert.transfertargent.services;
+
+import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.Transaction;
+import com.transfert.transfertargent.repositories.IdempotencyKeyRepository;
+import com.transfert.transfertargent.repositories.TransactionRepository;
+import com.transfert.transfertargent.support.Comptes;
+import com.transfert.transfertargent.support.TestJpaH2;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// ✅ Un rejeu de la même Idempotency-Key renvoie le transfert d'origine, sauf si la requête diffère
+@TestJpaH2
+class IdempotencyServiceTest {
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void rejeuAvecUneAutreRequeteRefuse() {
+        IdempotencyService service = nouveauService();
+        Compte destinataire = Comptes.creer(entityManager, "700000030");
+        String empreinte = IdempotencyService.empreinte("700000030", 10.0);
+        int[] executions = {0};
+        Function<String, Transaction> transfert = cle -> {
+            executions[0]++;
+            Transaction transaction = Transaction.builder().montant(1_000).compteDestination(destinataire).build();
+            entityManager.persist(transaction);
+            service.enregistrer(cle, transaction.getId());
+            return transaction;
+        };
+
+        Transaction originale = service.executerUneFois("700000031", "cle-1", empreinte, transfert);
+        Transaction rejouee = service.executerUneFois("700000031", "cle-1", empreinte, transfert);
+        assertThat(rejouee.getId()).isEqualTo(originale.getId());
+        assertThat(executions[0]).isEqualTo(1);
+
+        // Cache mémoire puis table (autre nœud, redémarrage)
+        String autre = IdempotencyService.empreinte("700000030", 99.0);
+        assertThatThrownBy(() -> service.executerUneFois("700000031", "cle-1", autre, transfert))
+                .isInstanceOf(IdempotencyService.CleReutiliseeException.class);
+        entityManager.flush();
+        assertThatThrownBy(() -> nouveauService().executerUneFois("700000031", "cle-1", autre, transfert))
+                .isInstanceOf(IdempotencyService.CleReutiliseeException.class);
+        assertThat(executions[0]).isEqualTo(1);
+    }
+
+    private IdempotencyService nouveauService() {
+        return new IdempotencyService(idempotencyKeyRepository, transactionRepository, 24, 100);
+    }
+}
@@ -0,0 +1,98 @@
+package com.transfert.transfertargent.services;
+
+import com.transfert.transfertargent.models.Receipt;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// ✅ Reçus : ETag fort, 304, Range (206 / 416) et délégation à sendfile quand Tomcat le propose
+class ReceiptDownloadServiceTest {
+
+    private static final String EMPREINTE = "ab".repeat(32);
+    private static final byte[] CONTENU = "%PDF-1.4 reçu de test".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path dossier;
+
+    private ReceiptDownloadService service;
+    private Receipt receipt;
+
+    @BeforeEach
+    void preparer() throws Exception {
+        Path fichier = Files.write(dossier.resolve("RC1.pdf"), CONTENU);
+        receipt = Receipt.builder()
+                .numero("RC1")
+                .urlFichier(fichier.toString())
+                .empreinte(EMPREINTE)
+                .taille((long) CONTENU.length)
+                .build();
+        ReceiptService receiptService = mock(ReceiptService.class);
+        when(receiptService.assurerEmpreinte(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        service = new ReceiptDownloadService(receiptService, new FichierReceiptStore());
+    }
+
+    @Test
+    void fichierEntierPuisRevalidationSansCorps() throws Exception {
+        MockHttpServletResponse complet = envoyer(new MockHttpServletRequest("GET", "/"));
+        assertThat(complet.getStatus()).isEqualTo(200);
+        assertThat(complet.getContentAsByteArray()).isEqualTo(CONTENU);
+        assertThat(complet.getHeader("ETag")).isEqualTo("\"" + EMPREINTE + "\"");
+        assertThat(complet.getHeader("Cache-Control")).contains("immutable");
+
+        MockHttpServletRequest revalidation = new MockHttpServletRequest("GET", "/");
+        revalidation.addHeader("If-None-Match", "\"autre\", \"" + EMPREINTE + "\"");
+        MockHttpServletResponse nonModifie = envoyer(revalidation);
+        assertThat(nonModifie.getStatus()).isEqualTo(304);
+        assertThat(nonModifie.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void plagesSatisfaitesEtHorsFichier() throws Exception {
+        MockHttpServletRequest plage = new MockHttpServletRequest("GET", "/");
+        plage.addHeader("Range", "bytes=4-7");
+        MockHttpServletResponse partiel = envoyer(plage);
+        assertThat(partiel.getStatus()).isEqualTo(206);
+        assertThat(partiel.getHeader("Content-Range")).isEqualTo("bytes 4-7/" + CONTENU.length);
+        assertThat(partiel.getContentAsString(StandardCharsets.UTF_8)).isEqualTo("-1.4");
+
+        // If-Range périmé : la plage est ignorée
+        plage.addHeader("If-Range", "\"ancien\"");
+        assertThat(envoyer(plage).getStatus()).isEqualTo(200);
+
+        MockHttpServletRequest horsFichier = new MockHttpServletRequest("GET", "/");
+        horsFichier.addHeader("Range", "bytes=1000-");
+        MockHttpServletResponse insatisfiable = envoyer(horsFichier);
+        assertThat(insatisfiable.getStatus()).isEqualTo(416);
+        assertThat(insatisfiable.getHeader("Content-Range")).isEqualTo("bytes */" + CONTENU.length);
+    }
+
+    @Test
+    void sendfileDelegueAuConnecteur() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=-5");
+        MockHttpServletResponse response = envoyer(request);
+
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        assertThat(response.getContentLengthLong()).isEqualTo(5);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo((long) CONTENU.length - 5);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo((long) CONTENU.length);
+    }
+
+    private MockHttpServletResponse envoyer(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.envoyer(receipt, request, response);
+        return response;
+    }
+}
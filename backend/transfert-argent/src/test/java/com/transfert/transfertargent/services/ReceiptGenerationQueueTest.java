@@ -0,0 +1,58 @@
+package com.transfert.transfertargent.services;
+
+import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.StatutRecu;
+import com.transfert.transfertargent.models.Transaction;
+import com.transfert.transfertargent.repositories.TransactionRepository;
+import com.transfert.transfertargent.support.Comptes;
+import com.transfert.transfertargent.support.TestJpaH2;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// ✅ Reprise des reçus restés EN_ATTENTE : seuls les anciens sont remis en file, une seule fois
+@TestJpaH2
+class ReceiptGenerationQueueTest {
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void repriseDesRecusEnAttente() {
+        Compte compte = Comptes.creer(entityManager, "700000020");
+        LocalDateTime ancienne = LocalDateTime.now().minusHours(1);
+        for (int i = 0; i < 3; i++) {
+            inserer(compte, StatutRecu.EN_ATTENTE, ancienne);
+        }
+        inserer(compte, StatutRecu.GENERE, ancienne);
+        inserer(compte, StatutRecu.EN_ATTENTE, LocalDateTime.now());
+        entityManager.flush();
+
+        // Sans @PostConstruct, aucun worker : les tâches restent en file
+        ReceiptGenerationQueue file = new ReceiptGenerationQueue(null, transactionRepository, null, null,
+                10, 1, 1, 1, Duration.ofMinutes(5));
+        file.reprendre();
+        assertThat(file.taille()).isEqualTo(3);
+
+        file.reprendre();
+        assertThat(file.taille()).isEqualTo(3);
+    }
+
+    private void inserer(Compte compte, StatutRecu statutRecu, LocalDateTime date) {
+        Transaction transaction = Transaction.builder()
+                .montant(1_000)
+                .compteDestination(compte)
+                .statutRecu(statutRecu)
+                .build();
+        entityManager.persist(transaction);
+        transaction.setDateTransaction(date);
+    }
+}
@@ -0,0 +1,83 @@
+package com.transfert.transfertargent.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// ✅ Numéros de reçu : uniques sous concurrence, croissants malgré un recul d'horloge, distincts par nœud
+class ReceiptNumberGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int PAR_THREAD = 50_000;
+
+    @Test
+    void uniquesEtCroissantsSousConcurrence() throws Exception {
+        ReceiptNumberGenerator generateur = new ReceiptNumberGenerator(7, System::currentTimeMillis);
+        List<List<String>> resultats = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        CountDownLatch depart = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            List<String> numeros = new ArrayList<>(PAR_THREAD);
+            resultats.add(numeros);
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    depart.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < PAR_THREAD; i++) {
+                    numeros.add(generateur.prochain());
+                }
+            }));
+        }
+        depart.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Set<String> tous = new HashSet<>();
+        for (List<String> numeros : resultats) {
+            // Vus d'un même thread, les numéros sont strictement croissants
+            assertThat(numeros).isSortedAccordingTo(String::compareTo).doesNotHaveDuplicates();
+            tous.addAll(numeros);
+        }
+        assertThat(tous).hasSize(THREADS * PAR_THREAD);
+        assertThat(tous).allMatch(n -> n.matches("RC[0-9A-HJKMNP-TV-Z]{13}"));
+    }
+
+    @Test
+    void reculDHorlogeEtDebordementDeSequence() {
+        AtomicLong horloge = new AtomicLong(System.currentTimeMillis());
+        ReceiptNumberGenerator generateur = new ReceiptNumberGenerator(1, horloge::get);
+
+        // Plus d'identifiants que la séquence n'en contient dans une milliseconde, puis recul d'une minute
+        long precedent = generateur.prochainIdentifiant();
+        for (int i = 0; i < 10_000; i++) {
+            if (i == 5_000) {
+                horloge.addAndGet(-60_000);
+            }
+            long suivant = generateur.prochainIdentifiant();
+            assertThat(suivant).isGreaterThan(precedent);
+            precedent = suivant;
+        }
+    }
+
+    @Test
+    void noeudsDistinctsMemeMilliseconde() {
+        ReceiptNumberGenerator a = new ReceiptNumberGenerator(1, () -> 1_800_000_000_000L);
+        ReceiptNumberGenerator b = new ReceiptNumberGenerator(2, () -> 1_800_000_000_000L);
+        Set<String> numeros = new HashSet<>();
+        for (int i = 0; i < 1_000; i++) {
+            numeros.add(a.prochain());
+            numeros.add(b.prochain());
+        }
+        assertThat(numeros).hasSize(2_000);
+    }
+}
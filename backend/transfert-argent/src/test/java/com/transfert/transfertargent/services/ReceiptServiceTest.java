@@ -0,0 +1,166 @@
+package com.transfert.transfertargent.services;
+
+import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.Receipt;
+import com.transfert.transfertargent.models.Role;
+import com.transfert.transfertargent.models.Transaction;
+import com.transfert.transfertargent.models.User;
+import com.transfert.transfertargent.repositories.ReceiptRepository;
+import com.transfert.transfertargent.repositories.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// ✅ Téléchargements simultanés d'un même reçu : un seul rendu, le même reçu pour tous, conflits d'enregistrement entre nœuds
+// et rendu jamais fait dans la transaction (ni avec la connexion) de l'appelant ; reçu réservé à l'émetteur et au destinataire
+class ReceiptServiceTest {
+
+    private static final int TELECHARGEMENTS = 100;
+
+    private final AtomicReference<Receipt> enBase = new AtomicReference<>();
+
+    @TempDir
+    Path dossier;
+
+    @Test
+    void unSeulRenduPourCentTelechargementsParalleles() throws Exception {
+        ReceiptRepository repository = mock(ReceiptRepository.class);
+        when(repository.findByTransactionId(anyLong())).thenAnswer(invocation -> Optional.ofNullable(enBase.get()));
+        when(repository.saveAndFlush(any(Receipt.class))).thenAnswer(invocation -> {
+            Receipt receipt = invocation.getArgument(0);
+            if (!enBase.compareAndSet(null, receipt)) {
+                throw new IllegalStateException("Deuxième reçu pour la même transaction");
+            }
+            return receipt;
+        });
+
+        AtomicInteger rendus = new AtomicInteger();
+        PdfGenerationService rendu = mock(PdfGenerationService.class);
+        when(rendu.generateReceiptPdf(any())).thenAnswer(invocation -> {
+            rendus.incrementAndGet();
+            Thread.sleep(100); // rendu lent : les autres demandes arrivent pendant ce temps
+            return "%PDF-1.4".getBytes();
+        });
+
+        ReceiptService service = service(repository, rendu);
+        Transaction transaction = transaction();
+
+        CountDownLatch depart = new CountDownLatch(1);
+        List<Future<Receipt>> resultats = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < TELECHARGEMENTS; i++) {
+                resultats.add(executor.submit(() -> {
+                    depart.await();
+                    return service.getOrGenerateReceipt(transaction);
+                }));
+            }
+            depart.countDown();
+            for (Future<Receipt> resultat : resultats) {
+                assertThat(resultat.get()).isSameAs(enBase.get());
+            }
+        }
+        assertThat(rendus.get()).isEqualTo(1);
+    }
+
+    @Test
+    void conflitSurLaTransactionRenvoieLeRecuDeLAutreNoeud() {
+        Receipt autreNoeud = Receipt.builder().numero("RC-AUTRE").build();
+        ReceiptRepository repository = mock(ReceiptRepository.class);
+        // Absent au premier contrôle, présent à la relecture après le conflit
+        when(repository.findByTransactionId(anyLong())).thenReturn(Optional.empty(), Optional.of(autreNoeud));
+        when(repository.saveAndFlush(any(Receipt.class))).thenThrow(new DataIntegrityViolationException("uk_receipts_transaction"));
+
+        assertThat(service(repository, renduPdf()).getOrGenerateReceipt(transaction())).isSameAs(autreNoeud);
+    }
+
+    @Test
+    void conflitSurLeNumeroNEstPasAbsorbe() {
+        ReceiptRepository repository = mock(ReceiptRepository.class);
+        when(repository.findByTransactionId(anyLong())).thenReturn(Optional.empty());
+        when(repository.saveAndFlush(any(Receipt.class))).thenThrow(new DataIntegrityViolationException("uk_receipts_numero"));
+
+        assertThatThrownBy(() -> service(repository, renduPdf()).getOrGenerateReceipt(transaction()))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("uk_receipts_numero");
+    }
+
+    @Test
+    void refuseDeGenererDansUneTransaction() {
+        ReceiptRepository repository = mock(ReceiptRepository.class);
+        when(repository.findByTransactionId(anyLong())).thenReturn(Optional.empty());
+        // Rendu et attente ne doivent pas retenir la connexion de l'appelant
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThatThrownBy(() -> service(repository, renduPdf()).getOrGenerateReceipt(transaction()))
+                    .isInstanceOf(IllegalStateException.class);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+    }
+
+    @Test
+    void recuReserveAuxPartiesDeLaTransaction() {
+        ReceiptRepository repository = mock(ReceiptRepository.class);
+        Receipt receipt = Receipt.builder().numero("RC-1").transaction(transaction()).build();
+        when(repository.findByNumero("RC-1")).thenReturn(Optional.of(receipt));
+        when(repository.findByTransactionId(999_001L)).thenReturn(Optional.of(receipt));
+        ReceiptService service = service(repository, renduPdf());
+
+        assertThat(service.getReceiptByNumero("RC-1", "770000000")).isSameAs(receipt);
+        assertThat(service.getReceiptByTransactionId(999_001L, "780000000")).isSameAs(receipt);
+        assertThatThrownBy(() -> service.getReceiptByNumero("RC-1", "790000000")).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> service.getReceiptByTransactionId(999_001L, "790000000"))
+                .isInstanceOf(RuntimeException.class);
+    }
+
+    private ReceiptService service(ReceiptRepository repository, PdfGenerationService rendu) {
+        SegmentReceiptStore store = new SegmentReceiptStore(dossier.toString(), DataSize.ofMegabytes(1), 0, new FichierReceiptStore());
+        return new ReceiptService(repository, mock(TransactionRepository.class), rendu,
+                new ReceiptNumberGenerator(0, System::currentTimeMillis), store, mock(PlatformTransactionManager.class));
+    }
+
+    private static PdfGenerationService renduPdf() {
+        PdfGenerationService rendu = mock(PdfGenerationService.class);
+        when(rendu.generateReceiptPdf(any())).thenReturn("%PDF-1.4".getBytes());
+        return rendu;
+    }
+
+    private static Transaction transaction() {
+        return Transaction.builder()
+                .id(999_001L)
+                .montant(10_000)
+                .frais(100)
+                .statut("SUCCES")
+                .dateTransaction(LocalDateTime.now())
+                .compteSource(compte("770000000"))
+                .compteDestination(compte("780000000"))
+                .build();
+    }
+
+    private static Compte compte(String telephone) {
+        User user = User.builder().nom("Diop").prenom("Awa").telephone(telephone).role(Role.USER).build();
+        return Compte.builder().numeroTelephone(telephone).typeCompte("COURANT").user(user).build();
+    }
+}
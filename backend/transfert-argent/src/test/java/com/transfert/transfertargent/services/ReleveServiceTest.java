@@ -0,0 +1,124 @@
+package com.transfert.transfertargent.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.Transaction;
+import com.transfert.transfertargent.support.Comptes;
+import com.transfert.transfertargent.support.TestJpaH2;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// ✅ Relevé en flux : fusion chronologique des envois et réceptions, au-delà d'un bloc de lecture
+@TestJpaH2
+@Import(ReleveService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReleveServiceTest {
+
+    private static final LocalDateTime ORIGINE = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime FIN = LocalDateTime.of(9999, 1, 1, 0, 0);
+    private static final int ALLERS_RETOURS = 700;
+
+    @Autowired
+    private ReleveService releveService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void preparer() {
+        for (String table : new String[]{"transaction", "comptes", "users"}) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            Compte titulaire = Comptes.creer(entityManager, "720000000");
+            Compte correspondant = Comptes.creer(entityManager, "720000001");
+            // Envois aux minutes paires, réceptions aux minutes impaires, plus un dépôt
+            for (int i = 0; i < ALLERS_RETOURS; i++) {
+                persister(titulaire, correspondant, 2 * i, 10_000 + i);
+                persister(correspondant, titulaire, 2 * i + 1, 20_000 + i);
+            }
+            persister(null, titulaire, 2 * ALLERS_RETOURS, 5_050);
+        });
+    }
+
+    @Test
+    void csvChronologiqueSurPlusieursBlocs() throws Exception {
+        List<String> lignes = exporter(ReleveService.Format.CSV, ORIGINE, FIN);
+
+        assertThat(lignes.get(0)).isEqualTo("id,date,type,montant,frais,statut,source,destination,recu");
+        assertThat(lignes).hasSize(1 + 2 * ALLERS_RETOURS + 1);
+
+        List<LocalDateTime> dates = new ArrayList<>();
+        for (String ligne : lignes.subList(1, lignes.size())) {
+            dates.add(LocalDateTime.parse(ligne.split(",")[1]));
+        }
+        assertThat(dates).isSorted().doesNotHaveDuplicates();
+
+        assertThat(lignes.get(1)).contains(",ENVOI,100.00,1.00,SUCCES,720000000,720000001,");
+        assertThat(lignes.get(2)).contains(",RECEPTION,200.00,2.00,SUCCES,720000001,720000000,");
+        assertThat(lignes.get(lignes.size() - 1)).contains(",RECEPTION,50.50,0.50,SUCCES,,720000000,");
+    }
+
+    @Test
+    void ndjsonBorneParLaPeriode() throws Exception {
+        // [minute 10, minute 20[ : cinq envois et cinq réceptions
+        List<String> lignes = exporter(ReleveService.Format.NDJSON, ORIGINE.plusMinutes(10), ORIGINE.plusMinutes(20));
+
+        assertThat(lignes).hasSize(10);
+        JsonNode premiere = objectMapper.readTree(lignes.get(0));
+        assertThat(premiere.get("type").asText()).isEqualTo("ENVOI");
+        assertThat(premiere.get("montant").decimalValue()).isEqualByComparingTo("100.05");
+        assertThat(premiere.get("date").asText()).isEqualTo("2024-01-01T00:10");
+        assertThat(premiere.get("recu").isNull()).isTrue();
+        assertThat(objectMapper.readTree(lignes.get(9)).get("type").asText()).isEqualTo("RECEPTION");
+    }
+
+    private List<String> exporter(ReleveService.Format format, LocalDateTime debut, LocalDateTime fin) throws Exception {
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+        releveService.exporter("720000000", format, debut, fin, sortie);
+        String contenu = sortie.toString(StandardCharsets.UTF_8);
+        assertThat(contenu).endsWith("\n");
+        return List.of(contenu.split("\n"));
+    }
+
+    // La date est fixée après persist : @PrePersist la remplace par l'heure courante
+    private void persister(Compte source, Compte destination, int minute, long montant) {
+        Transaction transaction = Transaction.builder()
+                .montant(montant)
+                .frais(montant / 100)
+                .statut("SUCCES")
+                .compteSource(source)
+                .compteDestination(destination)
+                .build();
+        entityManager.persist(transaction);
+        transaction.setDateTransaction(ORIGINE.plusMinutes(minute));
+    }
+}
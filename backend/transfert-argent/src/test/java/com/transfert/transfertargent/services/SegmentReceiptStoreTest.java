@@ -0,0 +1,106 @@
+package com.transfert.transfertargent.services;
+
+import com.transfert.transfertargent.models.Receipt;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// ✅ Segments : ajouts bout à bout, passage au segment suivant, lectures par position, segments par nœud et reçus en fichier isolé
+class SegmentReceiptStoreTest {
+
+    @TempDir
+    Path dossier;
+
+    @Test
+    void ajoutsRoulentEtSeRelisentParPosition() throws Exception {
+        SegmentReceiptStore store = new SegmentReceiptStore(dossier.toString(), DataSize.ofBytes(100), 0, new FichierReceiptStore());
+        Receipt[] recus = new Receipt[5];
+        for (int i = 0; i < recus.length; i++) {
+            recus[i] = Receipt.builder().numero("RC" + i).build();
+            store.enregistrer(recus[i], pdf(i));
+        }
+
+        // 40 octets par reçu, 100 par segment : deux reçus par segment
+        assertThat(recus).extracting(Receipt::getSegment).containsExactly(1L, 1L, 2L, 2L, 3L);
+        assertThat(recus).extracting(Receipt::getPositionSegment).containsExactly(0L, 40L, 0L, 40L, 0L);
+        assertThat(store.segmentsScelles()).containsExactly(1L, 2L);
+        for (int i = 0; i < recus.length; i++) {
+            assertThat(store.lire(recus[i])).isEqualTo(pdf(i));
+        }
+
+        ByteArrayOutputStream plage = new ByteArrayOutputStream();
+        store.copier(recus[3], 4, 8, Channels.newChannel(plage));
+        assertThat(plage.toString(StandardCharsets.US_ASCII)).isEqualTo("-1.4 #3 ");
+
+        ReceiptStore.Zone zone = store.localiser(recus[3]).orElseThrow();
+        assertThat(zone.fichier().getFileName().toString()).isEqualTo("segment-0000-000002.dat");
+        assertThat(zone.position()).isEqualTo(40);
+        assertThat(zone.taille()).isEqualTo(40);
+
+        // Redémarrage : les ajouts reprennent dans le dernier segment
+        store.fermer();
+        SegmentReceiptStore repris = new SegmentReceiptStore(dossier.toString(), DataSize.ofBytes(100), 0, new FichierReceiptStore());
+        Receipt suivant = Receipt.builder().numero("RC5").build();
+        repris.enregistrer(suivant, pdf(5));
+        assertThat(suivant.getSegment()).isEqualTo(3L);
+        assertThat(suivant.getPositionSegment()).isEqualTo(40L);
+        assertThat(repris.lire(recus[4])).isEqualTo(pdf(4));
+        repris.fermer();
+    }
+
+    @Test
+    void chaqueNoeudEcritDansSesPropresSegments() throws Exception {
+        SegmentReceiptStore noeud3 = new SegmentReceiptStore(dossier.toString(), DataSize.ofBytes(100), 3, new FichierReceiptStore());
+        SegmentReceiptStore noeud7 = new SegmentReceiptStore(dossier.toString(), DataSize.ofBytes(100), 7, new FichierReceiptStore());
+        Receipt[] recus = new Receipt[3];
+        for (int i = 0; i < recus.length; i++) {
+            recus[i] = Receipt.builder().numero("RC" + i).build();
+            noeud3.enregistrer(recus[i], pdf(i));
+        }
+        Receipt autre = Receipt.builder().numero("RC9").build();
+        noeud7.enregistrer(autre, pdf(9));
+
+        assertThat(recus).extracting(Receipt::getSegment).containsExactly(3_000_001L, 3_000_001L, 3_000_002L);
+        assertThat(autre.getSegment()).isEqualTo(7_000_001L);
+        assertThat(dossier.resolve("segment-0007-000001.dat")).exists();
+        // Chacun ne voit (et ne compacte) que ses segments, mais lit ceux des autres
+        assertThat(noeud3.segmentsScelles()).containsExactly(3_000_001L);
+        assertThat(noeud7.segmentsScelles()).isEmpty();
+        assertThat(noeud7.lire(recus[2])).isEqualTo(pdf(2));
+        assertThatThrownBy(() -> noeud7.supprimerSegment(3_000_001L)).isInstanceOf(IllegalStateException.class);
+
+        // Même nœud configuré deux fois sur le dossier : le segment actif est verrouillé
+        SegmentReceiptStore doublon = new SegmentReceiptStore(dossier.toString(), DataSize.ofBytes(100), 3, new FichierReceiptStore());
+        assertThatThrownBy(() -> doublon.enregistrer(Receipt.builder().numero("RC8").build(), pdf(8)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("segment-0003-000002.dat");
+        noeud3.fermer();
+        noeud7.fermer();
+    }
+
+    @Test
+    void recuEnFichierIsoleLuSansSegment() throws Exception {
+        Path fichier = Files.write(dossier.resolve("RC9.pdf"), pdf(9));
+        Receipt ancien = Receipt.builder().numero("RC9").urlFichier(fichier.toString()).build();
+        SegmentReceiptStore store = new SegmentReceiptStore(dossier.resolve("segments").toString(),
+                DataSize.ofMegabytes(1), 0, new FichierReceiptStore());
+
+        assertThat(store.localiser(ancien)).get().extracting(ReceiptStore.Zone::fichier).isEqualTo(fichier);
+        assertThat(store.lire(ancien)).isEqualTo(pdf(9));
+    }
+
+    private static byte[] pdf(int i) {
+        String contenu = "%PDF-1.4 #" + i;
+        return (contenu + " ".repeat(40 - contenu.length())).getBytes(StandardCharsets.US_ASCII);
+    }
+}
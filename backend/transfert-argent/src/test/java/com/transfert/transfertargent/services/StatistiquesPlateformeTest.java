@@ -0,0 +1,46 @@
+package com.transfert.transfertargent.services;
+
+import com.transfert.transfertargent.models.Montant;
+import com.transfert.transfertargent.models.Role;
+import com.transfert.transfertargent.repositories.CompteRepository;
+import com.transfert.transfertargent.repositories.TransactionRepository;
+import com.transfert.transfertargent.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// ✅ Réconciliation : une écriture déjà dans l'instantané n'est pas rejouée, une écriture validée après l'est
+class StatistiquesPlateformeTest {
+
+    @Test
+    void ecrituresConcurrentesCompteesUneSeuleFois() {
+        UserRepository userRepository = mock(UserRepository.class);
+        CompteRepository compteRepository = mock(CompteRepository.class);
+        StatistiquesPlateforme statistiques = new StatistiquesPlateforme(userRepository, compteRepository,
+                mock(TransactionRepository.class), mock(PlatformTransactionManager.class));
+
+        // Utilisateur validé juste avant l'instantané, son afterCommit arrive pendant la première lecture
+        when(userRepository.count()).thenAnswer(invocation -> {
+            statistiques.utilisateurCree(Role.USER, true);
+            return 1L;
+        });
+        // Compte validé après l'instantané : absent du comptage, rejoué
+        when(compteRepository.count()).thenAnswer(invocation -> {
+            statistiques.compteCree(500, true);
+            return 0L;
+        });
+
+        statistiques.reconcilier();
+
+        Map<String, Object> stats = statistiques.getStatistiques();
+        assertThat(stats.get("totalUsers")).isEqualTo(1L);
+        assertThat(stats.get("totalComptes")).isEqualTo(1L);
+        assertThat(stats.get("activeComptes")).isEqualTo(1L);
+        assertThat(stats.get("totalSolde")).isEqualTo(Montant.versDecimal(500));
+    }
+}
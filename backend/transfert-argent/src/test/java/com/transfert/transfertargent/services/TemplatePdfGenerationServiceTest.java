@@ -0,0 +1,56 @@
+package com.transfert.transfertargent.services;
+
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.Role;
+import com.transfert.transfertargent.models.Transaction;
+import com.transfert.transfertargent.models.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// ✅ Le gabarit écrit les textes fixes et les champs de chaque reçu, tampon réutilisé compris
+class TemplatePdfGenerationServiceTest {
+
+    @Test
+    void champsVariablesDeChaqueRecu() throws Exception {
+        TemplatePdfGenerationService service = new TemplatePdfGenerationService();
+
+        String premier = texte(service.generateReceiptPdf(transaction(41L, "Awa", 2_500_000)));
+        String second = texte(service.generateReceiptPdf(transaction(42L, "Fatou", 1_050)));
+
+        assertThat(premier).contains("REÇU DE TRANSFERT D'ARGENT", "EXPÉDITEUR", "DESTINATAIRE",
+                "41", "15/01/2024 à 10:45", "Awa Diop", "770000000", "Moussa Ndiaye", "780000000", "SUCCES");
+        assertThat(second).contains("42", "Fatou Diop").doesNotContain("Awa");
+    }
+
+    private static String texte(byte[] pdf) throws Exception {
+        PdfReader reader = new PdfReader(pdf);
+        try {
+            assertThat(reader.getNumberOfPages()).isEqualTo(1);
+            return PdfTextExtractor.getTextFromPage(reader, 1);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static Transaction transaction(Long id, String prenomExpediteur, long montant) {
+        return Transaction.builder()
+                .id(id)
+                .montant(montant)
+                .frais(montant / 100)
+                .statut("SUCCES")
+                .dateTransaction(LocalDateTime.of(2024, 1, 15, 10, 45))
+                .compteSource(compte(prenomExpediteur, "Diop", "770000000"))
+                .compteDestination(compte("Moussa", "Ndiaye", "780000000"))
+                .build();
+    }
+
+    private static Compte compte(String prenom, String nom, String telephone) {
+        User user = User.builder().nom(nom).prenom(prenom).telephone(telephone).role(Role.USER).build();
+        return Compte.builder().numeroTelephone(telephone).typeCompte("COURANT").user(user).build();
+    }
+}
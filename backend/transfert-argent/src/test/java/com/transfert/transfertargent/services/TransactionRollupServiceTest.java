@@ -0,0 +1,145 @@
+package com.transfert.transfertargent.services;
+
+import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.Montant;
+import com.transfert.transfertargent.models.Transaction;
+import com.transfert.transfertargent.repositories.TransactionRepository;
+import com.transfert.transfertargent.repositories.TransactionRollupRepository;
+import com.transfert.transfertargent.support.Comptes;
+import com.transfert.transfertargent.support.TestJpaH2;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// ✅ Les statistiques lues dans les rollups égalent celles d'un scan complet de la table ; transactions
+// longues redatées au commit
+@TestJpaH2
+@Import(TransactionRollupService.class)
+@TestPropertySource(properties = {
+        "rollups.delai-securite=PT0S",
+        "rollups.delai-initial=PT1H"
+})
+class TransactionRollupServiceTest {
+
+    @Autowired
+    private TransactionRollupService rollupService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionRollupRepository rollupRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void transactionLongueRedateeAuCommit() {
+        // Délai de sécurité nul : toute transaction est « longue », la date devient celle du commit
+        Transaction transaction = transactionTemplate.execute(status -> {
+            Compte compte = Comptes.creer(entityManager, "700000009");
+            Transaction depot = Transaction.builder().montant(5_000).frais(0).compteDestination(compte).build();
+            entityManager.persist(depot);
+            rollupService.enregistree(depot);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return depot;
+        });
+
+        LocalDateTime enBase = jdbcTemplate.queryForObject("SELECT date_transaction FROM transaction WHERE id = ?",
+                LocalDateTime.class, transaction.getId());
+        assertThat(enBase).isAfter(transaction.getDateTransaction().plusNanos(4_000_000));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void statistiquesIdentiquesAuScanComplet() {
+        Compte a = Comptes.creer(entityManager, "700000001");
+        Compte b = Comptes.creer(entityManager, "700000002");
+        entityManager.flush();
+        LocalDateTime maintenant = LocalDateTime.now();
+        // Trois jours de transactions, toutes les 37 minutes, des trois types
+        LocalDateTime date = maintenant.minusDays(3);
+        int i = 0;
+        while (date.isBefore(maintenant)) {
+            Long source = i % 3 == 1 ? null : a.getId();
+            Long destination = i % 3 == 2 ? null : b.getId();
+            inserer(date, 10_000 + i, i % 3 == 0 ? 100 : 0, source, destination, i % 5 == 0 ? "ANNULE" : "SUCCES");
+            date = date.plusMinutes(37);
+            i++;
+        }
+
+        rollupService.agreger();
+        assertThat(rollupRepository.count()).isPositive();
+
+        LocalDateTime debut = maintenant.minusDays(2).minusMinutes(13);
+        LocalDateTime fin = maintenant;
+        Map<String, Object> stats = rollupService.getStatistiques(debut, fin);
+
+        assertThat(stats.get("count")).isEqualTo(scan("COUNT(*)", debut, fin));
+        // Montants en centimes : sommes exactes
+        assertThat(stats.get("totalAmount")).isEqualTo(Montant.versDecimal(scan("SUM(montant)", debut, fin)));
+        assertThat(stats.get("totalFees")).isEqualTo(Montant.versDecimal(scan("SUM(frais)", debut, fin)));
+
+        // Détail par jour, le plus récent en tête
+        List<Map<String, Object>> attendu = jdbcTemplate.queryForList(
+                "SELECT CAST(date_transaction AS DATE) AS jour, COUNT(*) AS nombre, SUM(montant) AS montant " +
+                        "FROM transaction WHERE date_transaction BETWEEN ? AND ? " +
+                        "GROUP BY CAST(date_transaction AS DATE) ORDER BY jour DESC", debut, fin);
+        List<Map<String, Object>> parJour = (List<Map<String, Object>>) stats.get("daily");
+        assertThat(parJour).hasSize(attendu.size());
+        for (int j = 0; j < attendu.size(); j++) {
+            assertThat(parJour.get(j).get("date")).isEqualTo(((java.sql.Date) attendu.get(j).get("jour")).toLocalDate());
+            assertThat(parJour.get(j).get("count")).isEqualTo(((Number) attendu.get(j).get("nombre")).longValue());
+            assertThat(parJour.get(j).get("totalAmount"))
+                    .isEqualTo(Montant.versDecimal(((Number) attendu.get(j).get("montant")).longValue()));
+        }
+
+        // Une heure entière dans le passé
+        LocalDateTime heure = maintenant.minusDays(1).truncatedTo(ChronoUnit.HOURS);
+        Map<String, Object> uneHeure = rollupService.getStatistiques(heure, heure.plusHours(1).minusNanos(1000));
+        assertThat(uneHeure.get("count")).isEqualTo(scan("COUNT(*)", heure, heure.plusHours(1).minusNanos(1000)));
+    }
+
+    // Agrégat calculé directement sur la table, bornes incluses
+    private long scan(String agregat, LocalDateTime debut, LocalDateTime fin) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(" + agregat + ", 0) FROM transaction " +
+                "WHERE date_transaction BETWEEN ? AND ?", Long.class, debut, fin);
+    }
+
+    private void inserer(LocalDateTime date, long montant, long frais, Long source, Long destination, String statut) {
+        entityManager.createNativeQuery("INSERT INTO transaction (id, montant, frais, compte_source_id, " +
+                        "compte_destination_id, statut, date_transaction) " +
+                        "VALUES (NEXT VALUE FOR transaction_seq, ?, ?, ?, ?, ?, ?)")
+                .setParameter(1, montant)
+                .setParameter(2, frais)
+                .setParameter(3, source)
+                .setParameter(4, destination)
+                .setParameter(5, statut)
+                .setParameter(6, date)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,36 @@
+package com.transfert.transfertargent.support;
+
+import com.transfert.transfertargent.models.Compte;
+import com.transfert.transfertargent.models.Role;
+import com.transfert.transfertargent.models.User;
+import jakarta.persistence.EntityManager;
+
+// Comptes courants de test, chacun avec son utilisateur, persistés dans la transaction en cours
+public final class Comptes {
+
+    private Comptes() {
+    }
+
+    public static Compte creer(EntityManager entityManager, String telephone) {
+        return creer(entityManager, telephone, 0);
+    }
+
+    // Solde en centimes
+    public static Compte creer(EntityManager entityManager, String telephone, long solde) {
+        User user = User.builder()
+                .nom("Test")
+                .prenom("Test")
+                .telephone(telephone)
+                .role(Role.USER)
+                .build();
+        entityManager.persist(user);
+        Compte compte = Compte.builder()
+                .numeroTelephone(telephone)
+                .typeCompte("COURANT")
+                .solde(solde)
+                .user(user)
+                .build();
+        entityManager.persist(compte);
+        return compte;
+    }
+}
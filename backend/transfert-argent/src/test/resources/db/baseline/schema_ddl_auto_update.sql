@@ -0,0 +1,18 @@
+-- Schéma d'une base créée par la version d'avant Flyway (spring.jpa.hibernate.ddl-auto=update, dialecte
+-- MySQL), tel que généré par Hibernate depuis les entités de cette version, noms de contraintes compris.
+-- Sert à vérifier la migration des bases existantes (SchemaBaselineMigrationsTest).
+create table comptes (active bit not null, solde float(53), date_creation datetime(6) not null, id bigint not null auto_increment, user_id bigint not null, numero_telephone varchar(255) not null, type_compte varchar(255), primary key (id)) engine=InnoDB;
+create table historique_transaction (frais float(53), montant float(53), compte_destination_id bigint, compte_source_id bigint, date_transaction datetime(6), id bigint not null auto_increment, statut varchar(255), primary key (id)) engine=InnoDB;
+create table receipts (date_generation datetime(6), id bigint not null auto_increment, transaction_id bigint, numero varchar(255) not null, url_fichier varchar(255), primary key (id)) engine=InnoDB;
+create table transaction (frais float(53), montant float(53), compte_destination_id bigint, compte_source_id bigint, date_transaction datetime(6), id bigint not null auto_increment, statut varchar(255), primary key (id)) engine=InnoDB;
+create table users (enabled bit not null, created_at datetime(6), id bigint not null auto_increment, email varchar(255), nom varchar(255), numero_piece varchar(255), password varchar(255), pays varchar(255), photo_piece varchar(255), photo_profil varchar(255), prenom varchar(255), telephone varchar(255), role enum ('ADMIN','USER'), primary key (id)) engine=InnoDB;
+alter table comptes add constraint UKc8nuwo9d73bfbnf1n8xbbn24k unique (user_id);
+alter table comptes add constraint UK5ijg4pmsqingw7hp9qmsd96o2 unique (numero_telephone);
+alter table receipts add constraint UK5xd0grk0w61mgahn6h66b6u5x unique (transaction_id);
+alter table receipts add constraint UKal7917f6snnjjprbbbldqw3m5 unique (numero);
+alter table comptes add constraint FK2feaip4kenosusiyvkt6s1t6w foreign key (user_id) references users (id);
+alter table historique_transaction add constraint FKia36e7iq01tceawh9dtrp6q4v foreign key (compte_destination_id) references comptes (id);
+alter table historique_transaction add constraint FKci3ofjm4ahg76h224gerlahka foreign key (compte_source_id) references comptes (id);
+alter table receipts add constraint FK1hio02kps96yhj2ij8cvcvqy5 foreign key (transaction_id) references transaction (id);
+alter table transaction add constraint FK6xleb57ocpajpek8q3q87c5w9 foreign key (compte_destination_id) references comptes (id);
+alter table transaction add constraint FKjnbbuc7emyc2iixaog7q315if foreign key (compte_source_id) references comptes (id);
@@ -2,7 +2,7 @@ import { Component, OnInit, HostListener } from '@angular/core';
 import { CommonModule } from '@angular/common';
 import { FormsModule } from '@angular/forms';
 import { TransactionService } from '../../services/transaction';
-import { TransactionDTO } from '../../models/transaction.dto';
+import { TransactionDTO, TransactionPage } from '../../models/transaction.dto';
 import { AuthService } from '../../services/auth'; 
 import { Router, RouterLink } from '@angular/router';
 import { Observable } from 'rxjs';
@@ -18,6 +18,9 @@ export class HistoriqueComponent implements OnInit {
   transactions: TransactionDTO[] = [];
   filteredTransactions: TransactionDTO[] = [];
   loading = false;
+  loadingMore = false;
+  // Curseur de la page suivante (null : tout l'historique est chargé)
+  nextCursor: string | null = null;
   errorMessage = '';
   successMessage = '';
   currentFilter: 'all' | 'sent' | 'received' = 'all';
@@ -53,22 +56,12 @@ export class HistoriqueComponent implements OnInit {
   loadHistorique(): void {
     this.loading = true;
     this.errorMessage = '';
-    let observable$: Observable<TransactionDTO[]>;
+    this.nextCursor = null;
 
-    switch (this.currentFilter) {
-      case 'sent':
-        observable$ = this.transactionService.getTransactionsEnvoyees();
-        break;
-      case 'received':
-        observable$ = this.transactionService.getTransactionsRecues();
-        break;
-      default:
-        observable$ = this.transactionService.getHistoriqueComplet();
-    }
-
-    observable$.subscribe({
-      next: (transactions: TransactionDTO[]) => {
-        this.transactions = transactions;
+    this.pageSuivante().subscribe({
+      next: (page: TransactionPage) => {
+        this.transactions = page.items;
+        this.nextCursor = page.nextCursor;
         this.applyFilters();
         this.loading = false;
       },
@@ -80,6 +73,40 @@ export class HistoriqueComponent implements OnInit {
     });
   }
 
+  // ----------------- Charger plus (transactions plus anciennes) -----------------
+  loadMore(): void {
+    if (!this.nextCursor || this.loadingMore) return;
+    this.loadingMore = true;
+    const filtre = this.currentFilter;
+
+    this.pageSuivante(this.nextCursor).subscribe({
+      next: (page: TransactionPage) => {
+        // Onglet changé entre-temps : la page appartient à l'ancienne vue
+        if (filtre !== this.currentFilter) return;
+        this.transactions = [...this.transactions, ...page.items];
+        this.nextCursor = page.nextCursor;
+        this.applyFilters();
+        this.loadingMore = false;
+      },
+      error: (error: any) => {
+        this.errorMessage = 'Erreur lors du chargement des transactions plus anciennes';
+        this.loadingMore = false;
+        console.error(error);
+      }
+    });
+  }
+
+  private pageSuivante(cursor?: string): Observable<TransactionPage> {
+    switch (this.currentFilter) {
+      case 'sent':
+        return this.transactionService.getHistoriquePage('envoyees', cursor);
+      case 'received':
+        return this.transactionService.getHistoriquePage('recues', cursor);
+      default:
+        return this.transactionService.getHistoriquePage('historique', cursor);
+    }
+  }
+
   // ----------------- Télécharger reçu -----------------
   downloadReceipt(transaction: TransactionDTO): void {
     this.errorMessage = '';
@@ -161,6 +188,7 @@ export class HistoriqueComponent implements OnInit {
 
   setFilter(filter: 'all' | 'sent' | 'received') {
     this.currentFilter = filter;
+    this.loadingMore = false;
     this.loadHistorique();
   }
 
@@ -9,4 +9,10 @@ export interface TransactionDTO {
   compteDestinationNumero: string;
   type: 'ENVOI' | 'RECEPTION';
   receiptNumero?: string; 
-}
\ No newline at end of file
+}
+
+// Page d'historique paginée par curseur (nextCursor absent sur la dernière page)
+export interface TransactionPage {
+  items: TransactionDTO[];
+  nextCursor: string | null;
+}
@@ -2,7 +2,7 @@ import { Injectable } from '@angular/core';
 import { HttpClient, HttpHeaders, HttpErrorResponse } from '@angular/common/http';
 import { Observable, catchError, throwError } from 'rxjs';
 import { AuthService } from './auth';
-import { TransactionDTO } from '../models/transaction.dto'; 
+import { TransactionDTO, TransactionPage } from '../models/transaction.dto'; 
 
 @Injectable({
   providedIn: 'root'
@@ -74,18 +74,11 @@ export class TransactionService {
   }
 
   // ----------------- Historique -----------------
-  getHistoriqueComplet(): Observable<TransactionDTO[]> {
-    return this.http.get<TransactionDTO[]>(`${this.baseUrl}/historique`, { headers: this.getHeaders() })
-      .pipe(catchError(error => this.handleError(error)));
-  }
-
-  getTransactionsEnvoyees(): Observable<TransactionDTO[]> {
-    return this.http.get<TransactionDTO[]>(`${this.baseUrl}/envoyees`, { headers: this.getHeaders() })
-      .pipe(catchError(error => this.handleError(error)));
-  }
-
-  getTransactionsRecues(): Observable<TransactionDTO[]> {
-    return this.http.get<TransactionDTO[]>(`${this.baseUrl}/recues`, { headers: this.getHeaders() })
+  // Page suivante : repasser le nextCursor de la page précédente (null : dernière page)
+  getHistoriquePage(vue: 'historique' | 'envoyees' | 'recues', cursor?: string, limit = 50): Observable<TransactionPage> {
+    const params: Record<string, string> = { limit: String(limit) };
+    if (cursor) params['cursor'] = cursor;
+    return this.http.get<TransactionPage>(`${this.baseUrl}/${vue}`, { headers: this.getHeaders(), params })
       .pipe(catchError(error => this.handleError(error)));
   }
 
@@ -95,12 +88,15 @@ export class TransactionService {
   }
 
   // ----------------- Filtre par date -----------------
-  getTransactionsByDateRange(startDate: Date, endDate: Date): Observable<TransactionDTO[]> {
-    const params = {
+  // Paginé comme l'historique : suivre nextCursor pour les transactions plus anciennes
+  getTransactionsByDateRange(startDate: Date, endDate: Date, cursor?: string, limit = 50): Observable<TransactionPage> {
+    const params: Record<string, string> = {
       start: startDate.toISOString().split('T')[0],
-      end: endDate.toISOString().split('T')[0]
+      end: endDate.toISOString().split('T')[0],
+      limit: String(limit)
     };
-    return this.http.get<TransactionDTO[]>(`${this.baseUrl}/periode`, { headers: this.getHeaders(), params })
+    if (cursor) params['cursor'] = cursor;
+    return this.http.get<TransactionPage>(`${this.baseUrl}/periode`, { headers: this.getHeaders(), params })
       .pipe(catchError(error => this.handleError(error)));
   }
 